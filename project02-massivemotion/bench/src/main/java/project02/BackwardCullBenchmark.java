@@ -0,0 +1,68 @@
+package project02;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the original tick pattern, which culls by calling get(i)
+ * and remove(i) from the back of the list. This is O(n^2) on the linked
+ * lists, so by default it only runs up to 100k bodies; pass
+ * -p size=1000000 to include the largest size (expect minutes per
+ * invocation on the linked lists).
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BackwardCullBenchmark {
+
+    @Param({ "arraylist", "single", "double", "dummyhead", "unrolled", "skiplist", "ring" })
+    public String list;
+
+    @Param({ "1000", "10000", "100000" })
+    public int size;
+
+    private List<CelestialBody> bodies;
+    private TickWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workload = new TickWorkload(42);
+        bodies = Simulation.newList(list);
+        workload.fill(bodies, size);
+    }
+
+    /**
+     * The tick with the backward indexed cull.
+     *
+     * @return the body count after the tick.
+     */
+    @Benchmark
+    public int tick() {
+        TickWorkload.update(bodies);
+        for (int i = bodies.size() - 1; i >= 0; i--) {
+            if (TickWorkload.isOffScreen(bodies.get(i))) {
+                bodies.remove(i);
+            }
+        }
+        workload.refill(bodies, size);
+        return bodies.size();
+    }
+}
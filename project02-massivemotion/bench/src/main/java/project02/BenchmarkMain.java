@@ -0,0 +1,27 @@
+package project02;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of benchmarks.jar. Runs JMH with the given arguments and
+ * always adds the gc profiler, so every report includes the allocation
+ * rate per operation.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class BenchmarkMain {
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args the usual JMH command line arguments.
+     * @throws Exception if JMH fails to run.
+     */
+    public static void main(String[] args) throws Exception {
+        String[] withGc = Arrays.copyOf(args, args.length + 2);
+        withGc[args.length] = "-prof";
+        withGc[args.length + 1] = "gc";
+        org.openjdk.jmh.Main.main(withGc);
+    }
+}
@@ -0,0 +1,114 @@
+package project02;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the Kernels over primitive body arrays, scalar and at each
+ * vector width: a drift of every body, the off-screen test of every
+ * body, and the direct gravity sum on PROBES bodies from all the others.
+ *
+ * Every width runs in its own fork with the jdk.incubator.vector module
+ * added. A width the CPU does not have is still run, in software, which
+ * is far slower. To see the AVX2 speedups on an AVX-512 CPU, pass
+ * -jvmArgsAppend "--add-modules jdk.incubator.vector -XX:UseAVX=2".
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class KernelBenchmark {
+
+    // the bodies whose gravity is summed from all the others
+    private static final int PROBES = 64;
+
+    @Param({ "scalar", "128", "256", "512" })
+    public String kernels;
+
+    @Param({ "1000", "100000" })
+    public int size;
+
+    private Kernels k;
+    private double[] x, y, vx, vy, m;
+    private int[] sizes;
+    private boolean[] off;
+    private double[] ax, ay;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        k = kernels.equals("scalar") ? new ScalarKernels()
+                : Simulation.newKernels("vector", Integer.parseInt(kernels));
+
+        Random random = new Random(42);
+        x = new double[size];
+        y = new double[size];
+        vx = new double[size];
+        vy = new double[size];
+        m = new double[size];
+        sizes = new int[size];
+        off = new boolean[size];
+        ax = new double[size];
+        ay = new double[size];
+        for (int i = 0; i < size; i++) {
+            // a tenth of the bodies are just outside the window
+            x[i] = random.nextDouble() * TickWorkload.WIDTH * 1.1 - TickWorkload.WIDTH * 0.05;
+            y[i] = random.nextDouble() * TickWorkload.HEIGHT * 1.1 - TickWorkload.HEIGHT * 0.05;
+            vx[i] = random.nextDouble() * 2 - 1;
+            vy[i] = random.nextDouble() * 2 - 1;
+            m[i] = TickWorkload.MASS;
+            sizes[i] = TickWorkload.BODY_SIZE;
+        }
+    }
+
+    /**
+     * Drifts every body, x += vx dt and y += vy dt, by a step so small
+     * that the bodies stay where they are.
+     *
+     * @return a position, so the work is not dropped.
+     */
+    @Benchmark
+    public double drift() {
+        k.axpy(1E-12, vx, x, 0, size);
+        k.axpy(1E-12, vy, y, 0, size);
+        return x[size - 1];
+    }
+
+    /**
+     * Flags the bodies outside the window.
+     *
+     * @return the number of bodies off screen.
+     */
+    @Benchmark
+    public int offScreen() {
+        return k.offScreen(x, y, sizes, TickWorkload.WIDTH, TickWorkload.HEIGHT, off, 0, size);
+    }
+
+    /**
+     * Sums the gravity on the first PROBES bodies from all size bodies.
+     *
+     * @return an acceleration, so the work is not dropped.
+     */
+    @Benchmark
+    public double gravity() {
+        k.gravity(x, y, m, size, 1E-26, 25, 0, PROBES, ax, ay);
+        return ax[PROBES - 1];
+    }
+}
@@ -0,0 +1,77 @@
+package project02;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks one simulation tick on each List implementation: move every
+ * body, cull the ones that left the window with removeIf, and append new
+ * comets at the edges until the list is back to its starting size.
+ *
+ * Throughput gives ticks per second, sample time gives the latency
+ * percentiles of a single tick, and running through BenchmarkMain adds
+ * the gc profiler for the allocation rate.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListTickBenchmark {
+
+    @Param({ "arraylist", "single", "double", "dummyhead", "unrolled", "skiplist", "ring" })
+    public String list;
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int size;
+
+    private List<CelestialBody> bodies;
+    private TickWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workload = new TickWorkload(42);
+        bodies = Simulation.newList(list);
+        workload.fill(bodies, size);
+    }
+
+    /**
+     * Only the iterate-and-update loop of the tick.
+     *
+     * @return the list, so the work is not eliminated.
+     */
+    @Benchmark
+    public Object update() {
+        TickWorkload.update(bodies);
+        return bodies;
+    }
+
+    /**
+     * The full tick: update, single-pass cull, append spawn.
+     *
+     * @return the body count after the tick.
+     */
+    @Benchmark
+    public int tick() {
+        TickWorkload.update(bodies);
+        bodies.removeIf(TickWorkload::isOffScreen);
+        workload.refill(bodies, size);
+        return bodies.size();
+    }
+}
@@ -0,0 +1,124 @@
+package project02;
+
+import java.util.Random;
+
+/**
+ * Class that reproduces the per-tick work MassiveMotion does on its body
+ * list, using the default window and comet settings, so the benchmarks
+ * measure the list implementations under the real access pattern.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+final class TickWorkload {
+
+    static final int WIDTH = 1024;
+    static final int HEIGHT = 768;
+    static final int BODY_SIZE = 10;
+    static final int VELOCITY = 10;
+    static final double MASS = 1E21;
+
+    private final Random random;
+
+    /**
+     * Constructs a workload whose bodies come from a seeded generator,
+     * so every run sees the same bodies.
+     *
+     * @param seed the seed for the random generator.
+     */
+    TickWorkload(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Fills the list with size comets spread over the window, with the
+     * velocities a spawned comet can have, so the list starts in the
+     * mix of ages it has during a long run.
+     *
+     * @param bodies the list to fill.
+     * @param size the number of comets to add.
+     */
+    void fill(List<CelestialBody> bodies, int size) {
+        for (int i = 0; i < size; i++) {
+            CelestialBody b = spawn();
+            b.setX(random.nextDouble() * WIDTH);
+            b.setY(random.nextDouble() * HEIGHT);
+            bodies.add(b);
+        }
+    }
+
+    /**
+     * Moves every body by its velocity, as the first loop of the tick.
+     *
+     * @param bodies the bodies to move.
+     */
+    static void update(List<CelestialBody> bodies) {
+        for (CelestialBody body : bodies) {
+            body.setX(body.getX() + body.getVx());
+            body.setY(body.getY() + body.getVy());
+        }
+    }
+
+    /**
+     * Returns true if the body has left the window by more than its size.
+     *
+     * @param b the body to check.
+     * @return true if the body should be culled.
+     */
+    static boolean isOffScreen(CelestialBody b) {
+        return b.getX() < -b.getSize() || b.getX() > WIDTH + b.getSize()
+            || b.getY() < -b.getSize() || b.getY() > HEIGHT + b.getSize();
+    }
+
+    /**
+     * Appends new comets until the list is back to the given size.
+     *
+     * @param bodies the list to append to.
+     * @param size the size to restore.
+     */
+    void refill(List<CelestialBody> bodies, int size) {
+        while (bodies.size() < size) {
+            bodies.add(spawn());
+        }
+    }
+
+    /**
+     * Creates a comet at a random edge heading inwards, the same way
+     * MassiveMotion spawns them.
+     *
+     * @return the new comet.
+     */
+    CelestialBody spawn() {
+        double x, y, vx, vy;
+
+        if (random.nextBoolean()) {
+            x = random.nextDouble() * WIDTH;
+            if (random.nextBoolean()) {
+                y = 0;
+                vy = 1 + random.nextInt(VELOCITY);
+            } else {
+                y = HEIGHT;
+                vy = -1 - random.nextInt(VELOCITY);
+            }
+            vx = random.nextInt(VELOCITY * 2 + 1) - VELOCITY;
+            if (vx == 0) {
+                vx = 1;
+            }
+        } else {
+            y = random.nextDouble() * HEIGHT;
+            if (random.nextBoolean()) {
+                x = 0;
+                vx = 1 + random.nextInt(VELOCITY);
+            } else {
+                x = WIDTH;
+                vx = -1 - random.nextInt(VELOCITY);
+            }
+            vy = random.nextInt(VELOCITY * 2 + 1) - VELOCITY;
+            if (vy == 0) {
+                vy = 1;
+            }
+        }
+
+        return new CelestialBody(x, y, BODY_SIZE, vx, vy, MASS, Palette.COMET);
+    }
+}
@@ -2,6 +2,7 @@ package project02;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 /**
  * Class that mimics the built-in ArrayList, maintaining an array that
@@ -31,14 +32,23 @@ public class ArrayList<T> implements List<T>, Iterable<T> {
      */
     private void grow() {
         T[] newArr = (T[]) new Object[arr.length * 2];
-        
-        for (int i = 0; i < arr.length; i++) {
-            newArr[i] = arr[i];
-        }
-        
+        System.arraycopy(arr, 0, newArr, 0, size);
         arr = newArr;
     }
     
+    /**
+     * Grows the array once so it holds at least the given number of
+     * elements.
+     */
+    @SuppressWarnings("unchecked")
+    private void ensureCapacity(int capacity) {
+        if (capacity > arr.length) {
+            T[] newArr = (T[]) new Object[Math.max(capacity, arr.length * 2)];
+            System.arraycopy(arr, 0, newArr, 0, size);
+            arr = newArr;
+        }
+    }
+    
     /**
      * Adds the item to a specified position in the list,
      * while shifting subsequent values to the right.
@@ -57,10 +67,7 @@ public class ArrayList<T> implements List<T>, Iterable<T> {
             grow();
         }
         
-        for (int i = size; i > pos; i--) {
-            arr[i] = arr[i - 1];
-        }
-        
+        System.arraycopy(arr, pos, arr, pos + 1, size - pos);
         arr[pos] = item;
         size++;
     }
@@ -110,14 +117,84 @@ public class ArrayList<T> implements List<T>, Iterable<T> {
         }
         
         T copy = arr[pos];
-        for (int i = pos; i < size - 1; i++) {
-            arr[i] = arr[i + 1];
-        }
-        
+        System.arraycopy(arr, pos + 1, arr, pos, size - pos - 1);
         size--;
+        arr[size] = null;
         return copy;
     }
     
+    /**
+     * Removes every element that matches the filter, compacting the
+     * remaining elements in one pass.
+     * 
+     * @param filter the predicate that returns true for elements to remove.
+     * @return true if any element was removed.
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            T item = arr[i];
+            if (!filter.test(item)) {
+                arr[kept++] = item;
+            }
+        }
+        
+        if (kept == size) {
+            return false;
+        }
+        
+        for (int i = kept; i < size; i++) {
+            arr[i] = null;
+        }
+        size = kept;
+        return true;
+    }
+    
+    /**
+     * Removes the elements from fromIndex (inclusive) to toIndex
+     * (exclusive), shifting the tail to the left once.
+     * 
+     * @param fromIndex the index of the first element to remove.
+     * @param toIndex one past the index of the last element to remove.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public void removeRange(int fromIndex, int toIndex) throws IndexOutOfBoundsException {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        
+        System.arraycopy(arr, toIndex, arr, fromIndex, size - toIndex);
+        int newSize = size - (toIndex - fromIndex);
+        for (int i = newSize; i < size; i++) {
+            arr[i] = null;
+        }
+        size = newSize;
+    }
+    
+    /**
+     * Adds every item of the given iterable at the end of the list. When
+     * the items are a list, the array grows at most once for all of them.
+     * 
+     * @param items the items to be added.
+     * @return true if the list changed.
+     */
+    public boolean addAll(Iterable<? extends T> items) {
+        // only copy the original elements when adding the list to itself
+        int limit = items == this ? size : Integer.MAX_VALUE;
+        int added = 0;
+        
+        if (items instanceof List) {
+            ensureCapacity(size + ((List<?>) items).size());
+        }
+        
+        Iterator<? extends T> it = items.iterator();
+        while (added < limit && it.hasNext()) {
+            add(it.next());
+            added++;
+        }
+        return added > 0;
+    }
+    
     /**
      * Returns the number of items currently stored in the list.
      * 
@@ -137,6 +214,7 @@ public class ArrayList<T> implements List<T>, Iterable<T> {
     public Iterator<T> iterator() {
         return new Iterator<T>() {
             private int index = 0;
+            private int last = -1;
             
             /**
              * Returns true if there are more elements to iterate over.
@@ -160,8 +238,26 @@ public class ArrayList<T> implements List<T>, Iterable<T> {
                     throw new NoSuchElementException();
                 }
                 
+                last = index;
                 return arr[index++];
             }
+            
+            /**
+             * Removes the last element returned by next.
+             * 
+             * @throws IllegalStateException if next has not been called, or
+             * remove was already called after the last call to next.
+             */
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                
+                ArrayList.this.remove(last);
+                index = last;
+                last = -1;
+            }
         };
     }
 
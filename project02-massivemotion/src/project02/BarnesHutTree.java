@@ -0,0 +1,365 @@
+package project02;
+
+/**
+ * Class that approximates the gravitational pull between every pair of
+ * bodies using a Barnes-Hut quadtree. The tree is rebuilt every tick
+ * over the current body positions, and any cell that is far enough away
+ * (its width divided by its distance is below the opening angle theta)
+ * is treated as a single point mass at its center of mass. This brings
+ * the cost of a gravity step from O(n^2) down to O(n log n).
+ *
+ * Bodies closer together than a cell at MAX_DEPTH share one leaf,
+ * chained through next. Such a leaf is never taken as one point: every
+ * body in it but the one being pulled is summed directly, so no body
+ * pulls on itself and none is left out.
+ *
+ * The nodes are stored in parallel primitive arrays that are kept
+ * between ticks, so rebuilding the tree does not allocate once the
+ * arrays have grown large enough for the current body count.
+ *
+ * Up to directMax bodies no tree is built at all, and the pull of every
+ * other body is summed directly by the given Kernels. With few bodies
+ * this is exact and, with VectorKernels, faster than walking a tree.
+ *
+ * Building is single threaded, but once built the tree is only read, so
+ * computeAccelerations may be called from several threads at once on
+ * disjoint ranges of bodies. Every thread walks the tree with its own
+ * stack.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class BarnesHutTree {
+
+    private static final int EMPTY = -1;
+    private static final int INTERNAL = -2;
+    private static final int MAX_DEPTH = 48;
+
+    private final double gravity;
+    private final double theta2;
+    private final double softening2;
+    private final Kernels kernels;
+    private final int directMax;
+
+    // node storage, children of a node are stored next to each other
+    private int[] firstChild;
+    private int[] body;
+    private double[] mass, comX, comY;
+    private double[] centerX, centerY, half;
+    private int[] depth;
+    private int nodeCount;
+
+    // the next body in the same leaf, by body index, or EMPTY
+    private int[] next = new int[0];
+
+    private final ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[3 * MAX_DEPTH + 4]);
+
+    private double[] x, y, m;
+    private int count;
+    private boolean direct;
+
+    /**
+     * Constructs an empty tree with the given force settings, which
+     * always builds the tree.
+     *
+     * @param gravity the gravitational constant in pixel/tick units.
+     * @param theta the opening angle; 0 sums every pair exactly, larger
+     * values trade accuracy for speed.
+     * @param softening the distance added to every pair to keep close
+     * passes from producing infinite forces.
+     */
+    public BarnesHutTree(double gravity, double theta, double softening) {
+        this(gravity, theta, softening, new ScalarKernels(), 0);
+    }
+
+    /**
+     * Constructs an empty tree with the given force settings that sums
+     * the forces directly for up to directMax bodies.
+     *
+     * @param gravity the gravitational constant in pixel/tick units.
+     * @param theta the opening angle; 0 sums every pair exactly, larger
+     * values trade accuracy for speed.
+     * @param softening the distance added to every pair to keep close
+     * passes from producing infinite forces.
+     * @param kernels the kernels to sum the forces directly with.
+     * @param directMax the largest body count to sum directly.
+     */
+    public BarnesHutTree(double gravity, double theta, double softening, Kernels kernels, int directMax) {
+        this.gravity = gravity;
+        this.theta2 = theta * theta;
+        this.softening2 = softening * softening;
+        this.kernels = kernels;
+        this.directMax = directMax;
+        allocate(64);
+    }
+
+    /**
+     * Resizes the node arrays to the given capacity, keeping the nodes
+     * that are already stored.
+     *
+     * @param capacity the new number of nodes the arrays can hold.
+     */
+    private void allocate(int capacity) {
+        firstChild = copy(firstChild, capacity);
+        body = copy(body, capacity);
+        depth = copy(depth, capacity);
+        mass = copy(mass, capacity);
+        comX = copy(comX, capacity);
+        comY = copy(comY, capacity);
+        centerX = copy(centerX, capacity);
+        centerY = copy(centerY, capacity);
+        half = copy(half, capacity);
+    }
+
+    private static int[] copy(int[] src, int capacity) {
+        int[] dst = new int[capacity];
+        if (src != null) {
+            System.arraycopy(src, 0, dst, 0, src.length);
+        }
+        return dst;
+    }
+
+    private static double[] copy(double[] src, int capacity) {
+        double[] dst = new double[capacity];
+        if (src != null) {
+            System.arraycopy(src, 0, dst, 0, src.length);
+        }
+        return dst;
+    }
+
+    /**
+     * Rebuilds the tree over the first count bodies of the given arrays.
+     * The arrays are referenced, not copied, and must not change until
+     * the accelerations have been computed. Up to directMax bodies only
+     * the arrays are kept.
+     *
+     * @param x the x-coordinates of the bodies.
+     * @param y the y-coordinates of the bodies.
+     * @param m the masses of the bodies.
+     * @param count the number of bodies to insert.
+     */
+    public void build(double[] x, double[] y, double[] m, int count) {
+        this.x = x;
+        this.y = y;
+        this.m = m;
+        this.count = count;
+        direct = count <= directMax;
+        if (direct) {
+            nodeCount = 0;
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        nodeCount = 0;
+        if (count == 0) {
+            return;
+        }
+        if (next.length < count) {
+            next = new int[Math.max(count, next.length * 2)];
+        }
+
+        double h = Math.max(maxX - minX, maxY - minY) / 2.0 + 1.0;
+        newNode((minX + maxX) / 2.0, (minY + maxY) / 2.0, h, 0);
+
+        for (int i = 0; i < count; i++) {
+            insert(i);
+        }
+
+        for (int n = 0; n < nodeCount; n++) {
+            if (mass[n] > 0) {
+                comX[n] /= mass[n];
+                comY[n] /= mass[n];
+            }
+        }
+    }
+
+    /**
+     * Appends an empty leaf node covering the given square.
+     *
+     * @return the index of the new node.
+     */
+    private int newNode(double cx, double cy, double h, int d) {
+        if (nodeCount == firstChild.length) {
+            allocate(firstChild.length * 2);
+        }
+
+        int n = nodeCount++;
+        firstChild[n] = EMPTY;
+        body[n] = EMPTY;
+        mass[n] = 0;
+        comX[n] = 0;
+        comY[n] = 0;
+        centerX[n] = cx;
+        centerY[n] = cy;
+        half[n] = h;
+        depth[n] = d;
+        return n;
+    }
+
+    /**
+     * Splits a leaf into four children, in the order north-west,
+     * north-east, south-west, south-east.
+     */
+    private void subdivide(int n) {
+        double q = half[n] / 2.0;
+        double cx = centerX[n], cy = centerY[n];
+        int d = depth[n] + 1;
+
+        int first = newNode(cx - q, cy - q, q, d);
+        newNode(cx + q, cy - q, q, d);
+        newNode(cx - q, cy + q, q, d);
+        newNode(cx + q, cy + q, q, d);
+
+        firstChild[n] = first;
+        body[n] = INTERNAL;
+    }
+
+    private int quadrant(int n, double px, double py) {
+        int q = 0;
+        if (px >= centerX[n]) {
+            q += 1;
+        }
+        if (py >= centerY[n]) {
+            q += 2;
+        }
+        return q;
+    }
+
+    private void accumulate(int n, int i) {
+        mass[n] += m[i];
+        comX[n] += m[i] * x[i];
+        comY[n] += m[i] * y[i];
+    }
+
+    /**
+     * Inserts body i, adding its mass to every cell along the way.
+     */
+    private void insert(int i) {
+        int n = 0;
+
+        while (true) {
+            if (body[n] == INTERNAL) {
+                accumulate(n, i);
+                n = firstChild[n] + quadrant(n, x[i], y[i]);
+            } else if (body[n] == EMPTY) {
+                body[n] = i;
+                next[i] = EMPTY;
+                accumulate(n, i);
+                return;
+            } else if (depth[n] >= MAX_DEPTH) {
+                // bodies at (almost) the same point share one leaf, chained after its first body
+                int head = body[n];
+                next[i] = next[head];
+                next[head] = i;
+                accumulate(n, i);
+                return;
+            } else {
+                int j = body[n];
+                subdivide(n);
+
+                int c = firstChild[n] + quadrant(n, x[j], y[j]);
+                body[c] = j;
+                accumulate(c, j);
+                // the parent already holds body j, i is added on the next pass
+            }
+        }
+    }
+
+    /**
+     * Computes the acceleration on bodies from (inclusive) to to
+     * (exclusive) and stores it in ax and ay. Safe to call from several
+     * threads at once for disjoint ranges.
+     *
+     * @param from the first body to compute.
+     * @param to one past the last body to compute.
+     * @param ax the array receiving the x-direction acceleration.
+     * @param ay the array receiving the y-direction acceleration.
+     */
+    public void computeAccelerations(int from, int to, double[] ax, double[] ay) {
+        if (direct) {
+            kernels.gravity(x, y, m, count, gravity, softening2, from, to, ax, ay);
+            return;
+        }
+        int[] stack = stacks.get();
+        for (int i = from; i < to; i++) {
+            accelerate(i, ax, ay, stack);
+        }
+    }
+
+    /**
+     * Walks the tree for body i using the given stack of node indices.
+     */
+    private void accelerate(int i, double[] ax, double[] ay, int[] stack) {
+        double px = x[i], py = y[i];
+        double sumX = 0, sumY = 0;
+        int sp = 0;
+
+        if (nodeCount > 0) {
+            stack[sp++] = 0;
+        }
+
+        while (sp > 0) {
+            int n = stack[--sp];
+            if (mass[n] == 0) {
+                continue;
+            }
+            int b = body[n];
+            if (b >= 0 && next[b] != EMPTY) {
+                for (int k = b; k != EMPTY; k = next[k]) {
+                    if (k != i) {
+                        double dx = x[k] - px;
+                        double dy = y[k] - py;
+                        double r2 = dx * dx + dy * dy + softening2;
+                        double inv = 1.0 / Math.sqrt(r2);
+                        double f = gravity * m[k] * inv * inv * inv;
+                        sumX += f * dx;
+                        sumY += f * dy;
+                    }
+                }
+                continue;
+            }
+            if (b == i) {
+                continue;
+            }
+
+            double dx = comX[n] - px;
+            double dy = comY[n] - py;
+            double d2 = dx * dx + dy * dy;
+            double width = 2 * half[n];
+
+            if (body[n] != INTERNAL || width * width < theta2 * d2) {
+                double r2 = d2 + softening2;
+                double inv = 1.0 / Math.sqrt(r2);
+                double f = gravity * mass[n] * inv * inv * inv;
+                sumX += f * dx;
+                sumY += f * dy;
+            } else {
+                int c = firstChild[n];
+                stack[sp++] = c;
+                stack[sp++] = c + 1;
+                stack[sp++] = c + 2;
+                stack[sp++] = c + 3;
+            }
+        }
+
+        ax[i] = sumX;
+        ay[i] = sumY;
+    }
+
+    /**
+     * Returns the number of bodies inserted by the last build.
+     *
+     * @return the body count.
+     */
+    public int size() {
+        return count;
+    }
+}
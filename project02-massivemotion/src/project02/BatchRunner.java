@@ -0,0 +1,214 @@
+package project02;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+
+/**
+ * Headless entry point that runs the simulation from a property file
+ * as fast as possible, with no window or timer, and prints a
+ * throughput report at the end.
+ *
+ * Usage: java project02.BatchRunner [propertyFile] [--steps N] [--seed S] [--scenario file]
+ *            [--workers N]
+ *        java project02.BatchRunner --restore checkpointFile [--steps N]
+ *
+ * With --restore the run continues from a checkpoint written by an
+ * earlier run, with that run's configuration and random generator
+ * state, for N more steps. --seed S overrides the seed property,
+ * --scenario file the scenario_file property, and --workers N the
+ * workers property. With more than one worker the run is split over
+ * that many DomainWorker processes by a DomainCoordinator.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class BatchRunner {
+
+    /**
+     * Runs the simulation for the requested number of steps and prints
+     * ticks per second, body-ticks per second, the peak body count, the
+     * heap use, the bytes allocated per tick by the main thread, the
+     * pool hit and miss counts, the bodies spawned and culled, the force
+     * evaluations per tick, the kernels in use, the time spent in each
+     * phase of a tick, and the off-heap memory in use. A distributed run
+     * reports the worker count and the exchange time per tick in place
+     * of the pools, kernels, and off-heap memory, which are the workers'.
+     *
+     * @param args the property file, --steps N (default 10000),
+     * --seed S (default the seed property, or a random seed if that is
+     * not set), --scenario file, --workers N, and --restore
+     * checkpointFile.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        String propertyFile = "MassiveMotion.txt";
+        long steps = 10000;
+        String seed = null;
+        String restore = null;
+        String scenario = null;
+        String workers = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--steps") && i + 1 < args.length) {
+                steps = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.toString(Long.parseLong(args[++i]));
+            } else if (args[i].equals("--scenario") && i + 1 < args.length) {
+                scenario = args[++i];
+            } else if (args[i].equals("--workers") && i + 1 < args.length) {
+                workers = Integer.toString(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--restore") && i + 1 < args.length) {
+                restore = args[++i];
+            } else if (args[i].startsWith("--")) {
+                System.err.println("Unknown option " + args[i]);
+                System.exit(2);
+            } else {
+                propertyFile = args[i];
+            }
+        }
+
+        World world;
+        Simulation simulation = null;
+        if (restore != null) {
+            try {
+                simulation = Simulation.restore(Checkpoint.read(Paths.get(restore)));
+            } catch (IOException e) {
+                System.err.println("Cannot restore " + restore + ": " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+            System.out.println("Restored " + restore + " at tick " + simulation.getTicks());
+            world = simulation;
+        } else {
+            PropertyReader reader = new PropertyReader(propertyFile);
+            if (seed != null) {
+                reader.getProperties().setProperty("seed", seed);
+            }
+            if (scenario != null) {
+                reader.getProperties().setProperty("scenario_file", scenario);
+            }
+            if (workers != null) {
+                reader.getProperties().setProperty("workers", workers);
+            }
+            long loadStart = System.nanoTime();
+            if (reader.getInt("workers", 1) > 1) {
+                try {
+                    world = new DomainCoordinator(reader, false);
+                } catch (IOException e) {
+                    System.err.println("Cannot start the workers: " + e.getMessage());
+                    System.exit(1);
+                    return;
+                }
+            } else {
+                simulation = new Simulation(reader);
+                world = simulation;
+            }
+            if (reader.getProperties().getProperty("scenario_file") != null) {
+                System.out.printf("Loaded %d bodies in %.3f s%n", world.getBodyCount(),
+                        (System.nanoTime() - loadStart) / 1e9);
+            }
+        }
+
+        long bodyTicks = 0;
+        int peak = world.getBodyCount();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        try {
+            for (long t = 0; t < steps; t++) {
+                world.tick();
+                int count = world.getBodyCount();
+                bodyTicks += count;
+                peak = Math.max(peak, count);
+            }
+        } catch (UncheckedIOException e) {
+            // only a distributed run does I/O in a tick
+            System.err.println("Stopped at tick " + world.getTicks() + ": " + e.getCause().getMessage());
+            world.close();
+            System.exit(1);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = allocatedBytes() - allocatedBefore;
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+
+        System.out.printf("ticks:           %d in %.3f s%n", steps, seconds);
+        System.out.printf("ticks/sec:       %.1f%n", steps / seconds);
+        System.out.printf("body-ticks/sec:  %.1f%n", bodyTicks / seconds);
+        System.out.printf("peak bodies:     %d%n", peak);
+        System.out.printf("final bodies:    %d%n", world.getBodyCount());
+        System.out.printf("heap used:       %.1f MB%n", heapUsed / 1048576.0);
+        System.out.printf("peak heap:       %.1f MB%n", peakHeap() / 1048576.0);
+        if (allocatedBefore >= 0) {
+            System.out.printf("alloc/tick:      %.1f bytes%n", steps > 0 ? (double) allocated / steps : 0.0);
+        }
+
+        if (simulation != null) {
+            Pool<?> bodyPool = simulation.getBodyPool();
+            System.out.printf("body pool:       %d hits, %d misses%n", bodyPool.getHits(), bodyPool.getMisses());
+            if (simulation.getBodies() != null && simulation.getBodies().getNodePool() != null) {
+                Pool<?> nodePool = simulation.getBodies().getNodePool();
+                System.out.printf("node pool:       %d hits, %d misses%n", nodePool.getHits(),
+                        nodePool.getMisses());
+            }
+        }
+        SimulationMetrics metrics = world.getMetrics();
+        System.out.printf("spawned/culled:  %d / %d%n", metrics.getBodiesSpawned(), metrics.getBodiesCulled());
+        System.out.printf("forces/tick:     %.1f%n", steps > 0 ? (double) metrics.getForceEvaluations() / steps : 0.0);
+        if (simulation != null) {
+            System.out.printf("kernels:         %s%n", simulation.getKernels().describe());
+        }
+        System.out.printf("integrate:       %s%n", metrics.getIntegrate());
+        System.out.printf("collide:         %s%n", metrics.getCollide());
+        System.out.printf("cull:            %s%n", metrics.getCull());
+        System.out.printf("spawn:           %s%n", metrics.getSpawn());
+        System.out.printf("tick:            %s%n", metrics.getTick());
+        if (world instanceof DomainCoordinator) {
+            DomainCoordinator coordinator = (DomainCoordinator) world;
+            System.out.printf("workers:         %d%n", coordinator.getWorkers());
+            System.out.printf("exchange:        %s%n", PhaseStats.of(coordinator.getExchange()));
+        }
+        if (simulation != null && simulation.getStorage() instanceof OffHeapBodyStore) {
+            OffHeapBodyStore offHeap = (OffHeapBodyStore) simulation.getStorage();
+            System.out.printf("off-heap:        %.1f MB%n", offHeap.getAllocated() / 1048576.0);
+        }
+
+        world.close();
+    }
+
+    /**
+     * Returns the number of bytes the current thread has allocated so
+     * far, or -1 if the JVM cannot report it.
+     *
+     * @return the allocated bytes, or -1.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the sum of the peak usage of every heap memory pool.
+     *
+     * @return the peak heap use in bytes.
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,230 @@
+package project02;
+
+import java.util.Arrays;
+
+/**
+ * Integrator that gives every body its own power-of-two fraction of the
+ * step, so the few bodies passing close to the star take many small
+ * sub-steps while the rest take one.
+ *
+ * At the start of a step each body is put on a level l, and takes 2^l
+ * sub-steps of dt / 2^l, the first level whose sub-step is no longer
+ * than block_accuracy times the body's shortest time scale: its free-fall
+ * time toward the star, sqrt(r^3 / GM), the time to cover its distance
+ * to the star, r / v, and the time its other forces take to move it by
+ * the softening length. Levels stop at block_max_level.
+ *
+ * Every sub-step is a drift-kick-drift leapfrog: a body drifts to the
+ * middle of its sub-step, is kicked there, and drifts on. Drifts are
+ * done lazily, only when a body is kicked or the step ends, so a body
+ * costs work in proportion to its own sub-steps and not the finest
+ * level in use. A kick re-evaluates the star's pull at the current
+ * positions of the body and the star. The far weaker pull of every
+ * other body comes from a BarnesHutTree built once at the start of the
+ * step, with the star left out, and is held for the whole step.
+ *
+ * Bodies on the same level are kicked at the same times and do not
+ * depend on each other, so a level with many bodies is kicked over the
+ * stepper's threads, with the same result for any thread count.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class BlockTimestepIntegrator implements Integrator {
+
+    private final BarnesHutTree tree;
+    private final ParallelStepper stepper;
+    private final double gravity, softening, softening2;
+    private final int maxLevel;
+    private final double accuracy;
+
+    private double[] fx = new double[0], fy = new double[0];
+    private double[] farMass = new double[0];
+    private double[] time = new double[0];
+    private int[] level = new int[0];
+    private int[] order = new int[0];
+    private final int[] levelStart, cursor;
+
+    // the state of the current kick, for the ranges below
+    private double[] x, y, vx, vy;
+    private double starMass, now, subStep;
+    private int first;
+    private final ParallelStepper.Range far = this::far;
+    private final ParallelStepper.Range kick = this::kick;
+
+    /**
+     * Constructs a block timestep integrator.
+     *
+     * @param tree the tree to compute the pull of the other bodies with.
+     * @param stepper the threads to split the bodies over.
+     * @param gravity the gravitational constant, as given to the tree.
+     * @param softening the softening length, as given to the tree.
+     * @param maxLevel the finest level, whose sub-steps are dt / 2^maxLevel.
+     * @param accuracy the fraction of a body's time scale its sub-step
+     * may be at most.
+     */
+    public BlockTimestepIntegrator(BarnesHutTree tree, ParallelStepper stepper, double gravity,
+            double softening, int maxLevel, double accuracy) {
+        this.tree = tree;
+        this.stepper = stepper;
+        this.gravity = gravity;
+        this.softening = softening;
+        this.softening2 = softening * softening;
+        this.maxLevel = Math.max(0, Math.min(30, maxLevel));
+        this.accuracy = accuracy;
+        this.levelStart = new int[this.maxLevel + 2];
+        this.cursor = new int[this.maxLevel + 1];
+    }
+
+    @Override
+    public long step(double[] x, double[] y, double[] vx, double[] vy, double[] m, int n, double dt) {
+        if (n == 0) {
+            return 0;
+        }
+        if (fx.length < n) {
+            int capacity = Math.max(n, fx.length * 2);
+            fx = new double[capacity];
+            fy = new double[capacity];
+            farMass = new double[capacity];
+            time = new double[capacity];
+            level = new int[capacity];
+            order = new int[capacity];
+        }
+        this.x = x;
+        this.y = y;
+        this.vx = vx;
+        this.vy = vy;
+        starMass = m[0];
+
+        System.arraycopy(m, 0, farMass, 0, n);
+        farMass[0] = 0;
+        tree.build(x, y, farMass, n);
+        stepper.forRange(n, far);
+
+        int top = assignLevels(n, dt);
+        long evaluations = n;
+
+        // boundary j of the 2^(top + 1) half sub-steps of the finest level
+        // is the middle of a sub-step of level top - (trailing zeros of j)
+        int halves = 1 << (top + 1);
+        for (int j = 1; j < halves; j++) {
+            int l = top - Integer.numberOfTrailingZeros(j);
+            int count = levelStart[l + 1] - levelStart[l];
+            if (count == 0) {
+                continue;
+            }
+
+            now = dt * j / halves;
+            subStep = dt / (1 << l);
+            first = levelStart[l];
+            x[0] += vx[0] * (now - time[0]);
+            y[0] += vy[0] * (now - time[0]);
+            time[0] = now;
+
+            stepper.forRange(count, kick);
+            evaluations += count;
+        }
+
+        for (int i = 0; i < n; i++) {
+            x[i] += vx[i] * (dt - time[i]);
+            y[i] += vy[i] * (dt - time[i]);
+        }
+        return evaluations;
+    }
+
+    /**
+     * Computes the pull of the other bodies, without the star, on a range
+     * of bodies into fx and fy.
+     *
+     * @param from the first body index.
+     * @param to one past the last body index.
+     */
+    private void far(int from, int to) {
+        tree.computeAccelerations(from, to, fx, fy);
+    }
+
+    /**
+     * Puts every body on a level and sorts the bodies by level into
+     * order, with the bodies of level l from levelStart[l] to
+     * levelStart[l + 1]. The star is always on level 0.
+     *
+     * @return the finest level in use.
+     */
+    private int assignLevels(int n, double dt) {
+        double gm = gravity * starMass;
+        Arrays.fill(levelStart, 0);
+        int top = 0;
+
+        level[0] = 0;
+        time[0] = 0;
+        for (int i = 1; i < n; i++) {
+            double dx = x[i] - x[0], dy = y[i] - y[0];
+            double r2 = dx * dx + dy * dy + softening2;
+            double r = Math.sqrt(r2);
+            double dvx = vx[i] - vx[0], dvy = vy[i] - vy[0];
+            double v = Math.sqrt(dvx * dvx + dvy * dvy);
+            double f = Math.sqrt(fx[i] * fx[i] + fy[i] * fy[i]);
+
+            double scale = Double.POSITIVE_INFINITY;
+            if (gm > 0) {
+                scale = Math.sqrt(r2 * r / gm);
+            }
+            if (v > 0) {
+                scale = Math.min(scale, r / v);
+            }
+            if (f > 0) {
+                scale = Math.min(scale, Math.sqrt(softening / f));
+            }
+
+            double h = accuracy * scale / dt;
+            int l = !(h < 1) ? 0 : Math.min(maxLevel, -Math.getExponent(h));
+            level[i] = l;
+            time[i] = 0;
+            top = Math.max(top, l);
+            levelStart[l + 1]++;
+        }
+        levelStart[1]++;  // the star
+
+        for (int l = 1; l <= maxLevel + 1; l++) {
+            levelStart[l] += levelStart[l - 1];
+        }
+        System.arraycopy(levelStart, 0, cursor, 0, maxLevel + 1);
+        for (int i = 0; i < n; i++) {
+            order[cursor[level[i]]++] = i;
+        }
+        return top;
+    }
+
+    /**
+     * Drifts a range of the bodies being kicked to the current time and
+     * kicks them by the pull of the star there plus the pull of the
+     * other bodies from the start of the step.
+     *
+     * @param from the first index into the level's bodies.
+     * @param to one past the last index into the level's bodies.
+     */
+    private void kick(int from, int to) {
+        double sx = x[0], sy = y[0];
+        double gm = gravity * starMass;
+
+        for (int k = first + from; k < first + to; k++) {
+            int i = order[k];
+            double ax = fx[i], ay = fy[i];
+
+            if (i != 0) {
+                x[i] += vx[i] * (now - time[i]);
+                y[i] += vy[i] * (now - time[i]);
+                time[i] = now;
+
+                double dx = sx - x[i], dy = sy - y[i];
+                double inv = 1.0 / Math.sqrt(dx * dx + dy * dy + softening2);
+                double f = gm * inv * inv * inv;
+                ax += f * dx;
+                ay += f * dy;
+            }
+
+            vx[i] += ax * subStep;
+            vy[i] += ay * subStep;
+        }
+    }
+}
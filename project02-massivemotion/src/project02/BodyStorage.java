@@ -0,0 +1,180 @@
+package project02;
+
+/**
+ * Interface that defines index-based storage of celestial bodies as
+ * plain fields rather than objects: adding, reading and writing each
+ * field of a body by its index, and removing a body by moving the last
+ * body into its slot.
+ *
+ * The body at index 0 is never moved by the removal of another body,
+ * so the simulation keeps the star there.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public interface BodyStorage extends AutoCloseable {
+
+    /**
+     * Adds a body at the end of the storage.
+     *
+     * @param x the x-coordinate of the body.
+     * @param y the y-coordinate of the body.
+     * @param size the diameter of the body in pixels.
+     * @param vx the velocity in the x-direction.
+     * @param vy the velocity in the y-direction.
+     * @param mass the mass of the body.
+     * @param palette the palette index of the body's color.
+     * @return the index of the new body.
+     */
+    public int add(double x, double y, int size, double vx, double vy, double mass, byte palette);
+
+    /**
+     * Removes the body at the given index by moving the last body into
+     * its slot.
+     *
+     * @param i the index of the body to remove.
+     * @throws IndexOutOfBoundsException if the given index is out of range.
+     */
+    public void swapRemove(int i);
+
+    /**
+     * Removes every body, keeping the capacity.
+     */
+    public void clear();
+
+    /**
+     * Returns the number of bodies currently stored.
+     *
+     * @return the number of bodies.
+     */
+    public int size();
+
+    /**
+     * Returns a CelestialBody holding a copy of the body at the given
+     * index. Changes to the returned object are not written back.
+     *
+     * @param i the index of the body.
+     * @return a copy of the body.
+     * @throws IndexOutOfBoundsException if the given index is out of range.
+     */
+    public default CelestialBody get(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return new CelestialBody(getX(i), getY(i), getSize(i), getVx(i), getVy(i), getMass(i),
+                getPalette(i));
+    }
+
+    /**
+     * Returns the x-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the x-coordinate.
+     */
+    public double getX(int i);
+
+    /**
+     * Sets the x-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param x the new x-coordinate.
+     */
+    public void setX(int i, double x);
+
+    /**
+     * Returns the y-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the y-coordinate.
+     */
+    public double getY(int i);
+
+    /**
+     * Sets the y-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param y the new y-coordinate.
+     */
+    public void setY(int i, double y);
+
+    /**
+     * Returns the x-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the x-direction velocity.
+     */
+    public double getVx(int i);
+
+    /**
+     * Sets the x-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param vx the new x-direction velocity.
+     */
+    public void setVx(int i, double vx);
+
+    /**
+     * Returns the y-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the y-direction velocity.
+     */
+    public double getVy(int i);
+
+    /**
+     * Sets the y-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param vy the new y-direction velocity.
+     */
+    public void setVy(int i, double vy);
+
+    /**
+     * Returns the mass of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the mass.
+     */
+    public double getMass(int i);
+
+    /**
+     * Sets the mass of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param mass the new mass.
+     */
+    public void setMass(int i, double mass);
+
+    /**
+     * Returns the diameter in pixels of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the diameter in pixels.
+     */
+    public int getSize(int i);
+
+    /**
+     * Sets the diameter in pixels of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param size the new diameter in pixels.
+     */
+    public void setSize(int i, int size);
+
+    /**
+     * Returns the palette index of the color of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the palette index of the color.
+     */
+    public byte getPalette(int i);
+
+    /**
+     * Releases any memory held outside the Java heap. The storage must
+     * not be used afterwards. Does nothing for storage on the heap.
+     */
+    @Override
+    public default void close() {
+    }
+}
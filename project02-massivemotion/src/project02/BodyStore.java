@@ -0,0 +1,286 @@
+package project02;
+
+import java.util.Arrays;
+
+/**
+ * Class that stores celestial bodies as a structure of arrays: one
+ * primitive array per field instead of one object per body. Walking the
+ * bodies in the simulation loop then reads memory linearly, and no body
+ * needs its own object header.
+ *
+ * Removal swaps the last body into the removed slot, so the order of
+ * the bodies is not kept, but every removal is O(1). The body at index 0
+ * is never moved by a removal of another body, so it is used for the
+ * star.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class BodyStore implements BodyStorage {
+
+    double[] x, y, vx, vy, mass;
+    int[] size;
+    byte[] palette;
+    int count;
+
+    /**
+     * Constructs an empty BodyStore with an initial capacity of 16.
+     */
+    public BodyStore() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty BodyStore with the given initial capacity.
+     *
+     * @param capacity the number of bodies that fit before growing.
+     */
+    public BodyStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        mass = new double[capacity];
+        size = new int[capacity];
+        palette = new byte[capacity];
+        count = 0;
+    }
+
+    /**
+     * Doubles the capacity of every array when the store is full.
+     */
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        size = Arrays.copyOf(size, capacity);
+        palette = Arrays.copyOf(palette, capacity);
+    }
+
+    /**
+     * Adds a body at the end of the store.
+     *
+     * @param x the x-coordinate of the body.
+     * @param y the y-coordinate of the body.
+     * @param size the diameter of the body in pixels.
+     * @param vx the velocity in the x-direction.
+     * @param vy the velocity in the y-direction.
+     * @param mass the mass of the body.
+     * @param palette the palette index of the body's color.
+     * @return the index of the new body.
+     */
+    public int add(double x, double y, int size, double vx, double vy, double mass, byte palette) {
+        if (count == this.x.length) {
+            grow();
+        }
+
+        int i = count++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.mass[i] = mass;
+        this.size[i] = size;
+        this.palette[i] = palette;
+        return i;
+    }
+
+    /**
+     * Adds a copy of the given body at the end of the store.
+     *
+     * @param body the body to copy.
+     * @return the index of the new body.
+     */
+    public int add(CelestialBody body) {
+        return add(body.getX(), body.getY(), body.getSize(), body.getVx(), body.getVy(),
+                body.getMass(), body.getPalette());
+    }
+
+    /**
+     * Removes the body at the given index by moving the last body into
+     * its slot.
+     *
+     * @param i the index of the body to remove.
+     * @throws IndexOutOfBoundsException if the given index is out of range.
+     */
+    public void swapRemove(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+        mass[i] = mass[last];
+        size[i] = size[last];
+        palette[i] = palette[last];
+    }
+
+    /**
+     * Removes every body from the store, keeping its capacity.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Returns a CelestialBody holding a copy of the body at the given
+     * index. Changes to the returned object are not written back.
+     *
+     * @param i the index of the body.
+     * @return a copy of the body.
+     * @throws IndexOutOfBoundsException if the given index is out of range.
+     */
+    public CelestialBody get(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return new CelestialBody(x[i], y[i], size[i], vx[i], vy[i], mass[i], palette[i]);
+    }
+
+    /**
+     * Returns the number of bodies currently stored.
+     *
+     * @return the number of bodies.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the x-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the x-coordinate.
+     */
+    public double getX(int i) {
+        return x[i];
+    }
+
+    /**
+     * Sets the x-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param x the new x-coordinate.
+     */
+    public void setX(int i, double x) {
+        this.x[i] = x;
+    }
+
+    /**
+     * Returns the y-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the y-coordinate.
+     */
+    public double getY(int i) {
+        return y[i];
+    }
+
+    /**
+     * Sets the y-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param y the new y-coordinate.
+     */
+    public void setY(int i, double y) {
+        this.y[i] = y;
+    }
+
+    /**
+     * Returns the x-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the x-direction velocity.
+     */
+    public double getVx(int i) {
+        return vx[i];
+    }
+
+    /**
+     * Sets the x-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param vx the new x-direction velocity.
+     */
+    public void setVx(int i, double vx) {
+        this.vx[i] = vx;
+    }
+
+    /**
+     * Returns the y-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the y-direction velocity.
+     */
+    public double getVy(int i) {
+        return vy[i];
+    }
+
+    /**
+     * Sets the y-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param vy the new y-direction velocity.
+     */
+    public void setVy(int i, double vy) {
+        this.vy[i] = vy;
+    }
+
+    /**
+     * Returns the mass of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the mass.
+     */
+    public double getMass(int i) {
+        return mass[i];
+    }
+
+    /**
+     * Sets the mass of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param mass the new mass.
+     */
+    public void setMass(int i, double mass) {
+        this.mass[i] = mass;
+    }
+
+    /**
+     * Returns the diameter in pixels of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the diameter in pixels.
+     */
+    public int getSize(int i) {
+        return size[i];
+    }
+
+    /**
+     * Sets the diameter in pixels of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param size the new diameter in pixels.
+     */
+    public void setSize(int i, int size) {
+        this.size[i] = size;
+    }
+
+    /**
+     * Returns the palette index of the color of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the palette index of the color.
+     */
+    public byte getPalette(int i) {
+        return palette[i];
+    }
+}
@@ -1,108 +1,177 @@
-package project02;
-
-import java.awt.Color;
-
-/**
- * Object class that represents a celestial body with a position,
- * velocity, size, and color.
- * 
- * @Author: Oliver Reyes
- * @version: 1.0
- */
-public class CelestialBody {
-    private double x, y, vx, vy;
-    private int size;
-    private Color color;
-    
-    /**
-     * Constructs a new CelestialBody a specified position, size, velocity, and color.
-     *
-     * @param x the x-coordinate of the celestial body.
-     * @param y the y-coordinate of the celestial body.
-     * @param size the size of the celestial body.
-     * @param vx the velocity in the x-direction.
-     * @param vy the velocity in the y-direction.
-     * @param color the color of the celestial body.
-     */
-    CelestialBody (double x, double y, int size, double vx, double vy, Color color) {
-        this.x = x;
-        this.y = y;
-        this.size = size;
-        this.vx = vx;
-        this.vy = vy;
-        this.color = color;
-    }
-    
-    /**
-     * Sets the x-coordinate of this celestial body.
-     *
-     * @param x the new x-coordinate
-     */
-    public void setX (double x) {
-    	this.x = x;
-    }
-    
-    /**
-     * Returns the x-coordinate of this celestial body.
-     *
-     * @return the x-coordinate.
-     */
-    public double getX () { 
-    	return x; 
-    }
-    
-    /**
-     * Sets the y-coordinate of this celestial body.
-     *
-     * @param y the new y-coordinate.
-     */
-    public void setY (double y) {
-    	this.y = y;
-    }
-    
-    /**
-     * Returns the y-coordinate of this celestial body.
-     *
-     * @return the y-coordinate.
-     */
-    public double getY () { 
-    	return y; 
-    }
-    
-
-    /**
-     * Returns the velocity of this celestial body in the x-direction.
-     *
-     * @return the x-direction velocity.
-     */
-    public double getVx() {
-    	return vx;
-    }
-    
-    /**
-     * Returns the velocity of this celestial body in the y-direction.
-     *
-     * @return the y-direction velocity.
-     */
-    public double getVy() {
-    	return vy;
-    }
-    
-    /**
-     * Returns the size of this celestial body.
-     *
-     * @return the size, with diameter in pixels.
-     */
-    public int getSize () { 
-    	return size; 
-    }
-    
-    /**
-     * Returns the color of this celestial body.
-     *
-     * @return the color.
-     */
-    public Color getColor() { 
-    	return color; 
-    }
+package project02;
+
+/**
+ * Object class that represents a celestial body with a position,
+ * velocity, mass, size, and palette index for its color.
+ * 
+ * @Author: Oliver Reyes
+ * @version: 1.0
+ */
+public class CelestialBody {
+    private double x, y, vx, vy, mass;
+    private int size;
+    private byte palette;
+    
+    /**
+     * Constructs a new CelestialBody a specified position, size, velocity, mass, and palette index.
+     *
+     * @param x the x-coordinate of the celestial body.
+     * @param y the y-coordinate of the celestial body.
+     * @param size the size of the celestial body.
+     * @param vx the velocity in the x-direction.
+     * @param vy the velocity in the y-direction.
+     * @param mass the mass of the celestial body.
+     * @param palette the Palette index of the celestial body's color.
+     */
+    CelestialBody (double x, double y, int size, double vx, double vy, double mass, byte palette) {
+        this.x = x;
+        this.y = y;
+        this.size = size;
+        this.vx = vx;
+        this.vy = vy;
+        this.mass = mass;
+        this.palette = palette;
+    }
+    
+    /**
+     * Reinitializes this celestial body with a new position, size,
+     * velocity, mass, and palette index, so a recycled body can be reused for a
+     * new spawn instead of allocating another.
+     *
+     * @param x the new x-coordinate.
+     * @param y the new y-coordinate.
+     * @param size the new diameter in pixels.
+     * @param vx the new x-direction velocity.
+     * @param vy the new y-direction velocity.
+     * @param mass the new mass.
+     * @param palette the new Palette index.
+     * @return this celestial body.
+     */
+    public CelestialBody reset(double x, double y, int size, double vx, double vy, double mass, byte palette) {
+        this.x = x;
+        this.y = y;
+        this.size = size;
+        this.vx = vx;
+        this.vy = vy;
+        this.mass = mass;
+        this.palette = palette;
+        return this;
+    }
+    
+    /**
+     * Sets the x-coordinate of this celestial body.
+     *
+     * @param x the new x-coordinate
+     */
+    public void setX (double x) {
+    	this.x = x;
+    }
+    
+    /**
+     * Returns the x-coordinate of this celestial body.
+     *
+     * @return the x-coordinate.
+     */
+    public double getX () { 
+    	return x; 
+    }
+    
+    /**
+     * Sets the y-coordinate of this celestial body.
+     *
+     * @param y the new y-coordinate.
+     */
+    public void setY (double y) {
+    	this.y = y;
+    }
+    
+    /**
+     * Returns the y-coordinate of this celestial body.
+     *
+     * @return the y-coordinate.
+     */
+    public double getY () { 
+    	return y; 
+    }
+    
+    /**
+     * Sets the velocity of this celestial body in the x-direction.
+     *
+     * @param vx the new x-direction velocity.
+     */
+    public void setVx(double vx) {
+    	this.vx = vx;
+    }
+
+    /**
+     * Returns the velocity of this celestial body in the x-direction.
+     *
+     * @return the x-direction velocity.
+     */
+    public double getVx() {
+    	return vx;
+    }
+    
+    /**
+     * Returns the velocity of this celestial body in the y-direction.
+     *
+     * @return the y-direction velocity.
+     */
+    public double getVy() {
+    	return vy;
+    }
+    
+    /**
+     * Sets the velocity of this celestial body in the y-direction.
+     *
+     * @param vy the new y-direction velocity.
+     */
+    public void setVy(double vy) {
+    	this.vy = vy;
+    }
+    
+    /**
+     * Returns the mass of this celestial body.
+     *
+     * @return the mass.
+     */
+    public double getMass() {
+    	return mass;
+    }
+    
+    /**
+     * Sets the mass of this celestial body.
+     *
+     * @param mass the new mass.
+     */
+    public void setMass(double mass) {
+    	this.mass = mass;
+    }
+    
+    /**
+     * Returns the size of this celestial body.
+     *
+     * @return the size, with diameter in pixels.
+     */
+    public int getSize () { 
+    	return size; 
+    }
+    
+    /**
+     * Sets the size of this celestial body.
+     *
+     * @param size the new diameter in pixels.
+     */
+    public void setSize(int size) {
+    	this.size = size;
+    }
+    
+    /**
+     * Returns the Palette index of this celestial body's color.
+     *
+     * @return the palette index.
+     */
+    public byte getPalette() { 
+    	return palette; 
+    }
 }
\ No newline at end of file
@@ -0,0 +1,288 @@
+package project02;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Class that holds a copy of the full simulation state, the bodies, the
+ * random generator, the tick counter, and the configuration, and reads
+ * and writes it as a binary file.
+ *
+ * The file is little-endian and laid out as:
+ *
+ *   int     magic "MMCK"
+ *   int     format version
+ *   long    tick
+ *   int     body count n
+ *   int     config length c
+ *   int     random state length r
+ *   int     reserved, 0
+ *   byte[c] configuration in Properties text format, UTF-8
+ *   byte[r] serialized java.util.Random
+ *           zero padding to a multiple of 8 bytes
+ *   double[n] x, then y, vx, vy, and mass
+ *   int[n]    size
+ *   byte[n]   palette
+ *
+ * Every body field is one contiguous column, so reading maps each
+ * column with FileChannel.map and copies it into an array in bulk. The
+ * star is body 0. Writing goes to a temporary file that replaces the
+ * target only once it is complete, so a run killed mid-write leaves the
+ * previous checkpoint intact.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class Checkpoint {
+
+    /**
+     * The format version written by this class.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4B434D4D;  // "MMCK" in little-endian order
+    private static final int HEADER_BYTES = 32;
+
+    private final Properties config;
+    private final long tick;
+    private final byte[] random;
+    final int count;
+    final double[] x, y, vx, vy, mass;
+    final int[] size;
+    final byte[] palette;
+
+    /**
+     * Constructs an empty checkpoint with room for the given number of
+     * bodies, to be filled in by the simulation.
+     *
+     * @param config the configuration of the run.
+     * @param tick the number of ticks run so far.
+     * @param random the random generator, whose state is copied.
+     * @param count the number of bodies.
+     */
+    Checkpoint(Properties config, long tick, Random random, int count) {
+        this(config, tick, saveRandom(random), count);
+    }
+
+    private Checkpoint(Properties config, long tick, byte[] random, int count) {
+        this.config = config;
+        this.tick = tick;
+        this.random = random;
+        this.count = count;
+        x = new double[count];
+        y = new double[count];
+        vx = new double[count];
+        vy = new double[count];
+        mass = new double[count];
+        size = new int[count];
+        palette = new byte[count];
+    }
+
+    /**
+     * Returns the configuration the run was started with.
+     *
+     * @return the configuration.
+     */
+    public Properties getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the number of ticks run when the checkpoint was taken.
+     *
+     * @return the tick count.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the number of bodies, including the star.
+     *
+     * @return the body count.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns a new random generator in exactly the state the run's
+     * generator was in.
+     *
+     * @return the restored random generator.
+     * @throws IllegalStateException if the stored state cannot be read.
+     */
+    public Random getRandom() {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(random))) {
+            in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("java.util.Random;!*"));
+            return (Random) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Unreadable random state in checkpoint", e);
+        }
+    }
+
+    private static byte[] saveRandom(Random random) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(random);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot save random state", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file next to the given path,
+     * then moves it over the path.
+     *
+     * @param path the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        byte[] configBytes = configText().getBytes(StandardCharsets.UTF_8);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(tick).putInt(count)
+                    .putInt(configBytes.length).putInt(random.length).putInt(0);
+            buffer.flip();
+            writeFully(channel, buffer);
+
+            writeFully(channel, ByteBuffer.wrap(configBytes));
+            writeFully(channel, ByteBuffer.wrap(random));
+            writeFully(channel, ByteBuffer.allocate(padding(configBytes.length + random.length)));
+
+            for (double[] column : new double[][] { x, y, vx, vy, mass }) {
+                for (int i = 0; i < count; ) {
+                    buffer.clear();
+                    for (; i < count && buffer.remaining() >= Double.BYTES; i++) {
+                        buffer.putDouble(column[i]);
+                    }
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                }
+            }
+            for (int i = 0; i < count; ) {
+                buffer.clear();
+                for (; i < count && buffer.remaining() >= Integer.BYTES; i++) {
+                    buffer.putInt(size[i]);
+                }
+                buffer.flip();
+                writeFully(channel, buffer);
+            }
+            writeFully(channel, ByteBuffer.wrap(palette, 0, count));
+
+            channel.force(true);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Returns the number of zero bytes that pad the header and the
+     * variable-length sections to a multiple of 8 bytes.
+     */
+    private static int padding(int variableBytes) {
+        return (8 - (HEADER_BYTES + variableBytes) % 8) % 8;
+    }
+
+    private String configText() {
+        StringWriter text = new StringWriter();
+        try {
+            config.store(text, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads a checkpoint written by write, mapping each body column of
+     * the file and copying it into an array in one bulk get.
+     *
+     * @param path the file to read.
+     * @return the checkpoint.
+     * @throws IOException if the file cannot be read, is not a
+     * checkpoint, or has an unsupported version.
+     */
+    public static Checkpoint read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(path + " is not a checkpoint");
+            }
+
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a checkpoint");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(path + " has unsupported checkpoint version " + version);
+            }
+            long tick = header.getLong();
+            int count = header.getInt();
+            int configLength = header.getInt();
+            int randomLength = header.getInt();
+
+            long at = HEADER_BYTES;
+            long bodiesAt = at + configLength + randomLength + padding(configLength + randomLength);
+            long expected = bodiesAt + (long) count * (5 * Double.BYTES + Integer.BYTES + 1);
+            if (count < 0 || configLength < 0 || randomLength < 0 || channel.size() < expected) {
+                throw new IOException(path + " is truncated");
+            }
+
+            byte[] configBytes = new byte[configLength];
+            map(channel, at, configLength).get(configBytes);
+            at += configLength;
+            byte[] random = new byte[randomLength];
+            map(channel, at, randomLength).get(random);
+
+            Properties config = new Properties();
+            config.load(new StringReader(new String(configBytes, StandardCharsets.UTF_8)));
+
+            Checkpoint checkpoint = new Checkpoint(config, tick, random, count);
+            at = bodiesAt;
+            for (double[] column : new double[][] { checkpoint.x, checkpoint.y, checkpoint.vx,
+                    checkpoint.vy, checkpoint.mass }) {
+                map(channel, at, (long) count * Double.BYTES).asDoubleBuffer().get(column);
+                at += (long) count * Double.BYTES;
+            }
+            map(channel, at, (long) count * Integer.BYTES).asIntBuffer().get(checkpoint.size);
+            at += (long) count * Integer.BYTES;
+            map(channel, at, count).get(checkpoint.palette);
+
+            return checkpoint;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long at, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, at, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+}
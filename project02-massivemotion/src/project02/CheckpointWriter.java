@@ -0,0 +1,112 @@
+package project02;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Class that writes checkpoints to a file on a background thread, so
+ * the simulation only pays for copying its state into a Checkpoint and
+ * never waits on the disk.
+ *
+ * Only the newest checkpoint matters: one submitted while another is
+ * still waiting replaces it, so at most one checkpoint is being written
+ * and one waiting at any time, however slow the disk.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class CheckpointWriter implements AutoCloseable {
+
+    private final Path path;
+    private final Thread thread;
+    private Checkpoint pending;
+    private boolean closed;
+    private long written;
+
+    /**
+     * Constructs a writer for the given file and starts its thread.
+     *
+     * @param path the file every checkpoint replaces.
+     */
+    public CheckpointWriter(Path path) {
+        this.path = path;
+        thread = new Thread(this::run, "checkpoint-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a checkpoint to be written, replacing any that is still
+     * waiting.
+     *
+     * @param checkpoint the checkpoint to write.
+     * @throws IllegalStateException if the writer is closed.
+     */
+    public synchronized void submit(Checkpoint checkpoint) {
+        if (closed) {
+            throw new IllegalStateException("checkpoint writer is closed");
+        }
+        pending = checkpoint;
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of checkpoints written so far.
+     *
+     * @return the written count.
+     */
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * Writes checkpoints as they are submitted until the writer is
+     * closed and nothing is left waiting.
+     */
+    private void run() {
+        while (true) {
+            Checkpoint checkpoint;
+            synchronized (this) {
+                while (pending == null && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending == null) {
+                    return;
+                }
+                checkpoint = pending;
+                pending = null;
+            }
+
+            try {
+                checkpoint.write(path);
+                synchronized (this) {
+                    written++;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not write checkpoint " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finishes writing the waiting checkpoint, if any, and stops the
+     * thread.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
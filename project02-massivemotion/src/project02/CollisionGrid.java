@@ -0,0 +1,257 @@
+package project02;
+
+import java.util.Arrays;
+
+/**
+ * Class that finds overlapping bodies with a uniform grid spatial hash
+ * and merges them. Every body is hashed into the grid cell holding its
+ * center, and a body only checks the cells its own radius plus the
+ * largest radius can reach, so finding the overlapping pairs is close to
+ * O(n) instead of comparing every pair.
+ *
+ * Two overlapping comets merge into one whose mass is the sum of both,
+ * whose velocity keeps the total momentum, whose position is their
+ * center of mass, and whose area is the sum of both areas. A comet that
+ * touches the star is absorbed the same way, except the star keeps its
+ * size.
+ *
+ * The grid is a counting sort of body indices by cell hash into arrays
+ * that are kept between ticks, so rebuilding it every tick is O(n) and
+ * does not allocate once the arrays are large enough. A body whose
+ * reach covers more cells than the table has buckets scans the buckets
+ * instead of the cells, so one huge body costs O(n) rather than a pass
+ * over every cell it covers. Bodies that are not finite or lie more
+ * than GRID_LIMIT cells from the origin are left out of the grid and
+ * never merge; they are far off-screen and are culled after the tick.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class CollisionGrid {
+
+    // the farthest cell from the origin a body is hashed into, well inside int range
+    private static final long GRID_LIMIT = 1 << 30;
+
+    private final double cellSize;
+
+    private int[] cellOf = new int[0];
+    private int[] sorted = new int[0];
+    private int[] bucketStart = new int[1];
+    private int[] cursor = new int[0];
+    private boolean[] dead = new boolean[0];
+    private int mask;
+
+    private double[] x, y, vx, vy, m;
+    private int[] size;
+
+    /**
+     * Constructs a grid whose cells are the given size, usually the
+     * diameter of a newly spawned comet.
+     *
+     * @param cellSize the width and height of a grid cell in pixels.
+     */
+    public CollisionGrid(double cellSize) {
+        this.cellSize = Math.max(cellSize, 1.0);
+    }
+
+    /**
+     * Merges every pair of overlapping bodies among the first n bodies
+     * and lets the star absorb every body touching it. Survivors have
+     * their position, velocity, mass, and size updated in place; bodies
+     * merged into another are flagged in the array returned by
+     * getDead until the next call.
+     *
+     * @param x the x-coordinates.
+     * @param y the y-coordinates.
+     * @param vx the x-direction velocities.
+     * @param vy the y-direction velocities.
+     * @param m the masses.
+     * @param size the diameters in pixels.
+     * @param n the number of bodies.
+     * @param star the index of the star, or -1 if there is none.
+     * @return the number of bodies merged away.
+     */
+    public int resolve(double[] x, double[] y, double[] vx, double[] vy, double[] m, int[] size, int n, int star) {
+        this.x = x;
+        this.y = y;
+        this.vx = vx;
+        this.vy = vy;
+        this.m = m;
+        this.size = size;
+
+        if (dead.length < n) {
+            int capacity = Math.max(n, dead.length * 2);
+            dead = new boolean[capacity];
+            cellOf = new int[capacity];
+            sorted = new int[capacity];
+        }
+        Arrays.fill(dead, 0, n, false);
+
+        int merged = 0;
+        if (star >= 0) {
+            merged += absorbIntoStar(n, star);
+        }
+
+        int maxSize = build(n, star);
+        double reach = maxSize / 2.0;
+        long buckets = mask + 1L;
+
+        for (int i = 0; i < n; i++) {
+            // the star and bodies left out of the grid have no cell
+            if (cellOf[i] < 0 || dead[i]) {
+                continue;
+            }
+
+            double r = size[i] / 2.0 + reach;
+            long minCx = cell(x[i] - r), maxCx = cell(x[i] + r);
+            long minCy = cell(y[i] - r), maxCy = cell(y[i] + r);
+
+            if ((maxCx - minCx + 1) * (maxCy - minCy + 1) > buckets) {
+                merged += mergeInRange(i, 0, bucketStart[mask + 1]);
+                continue;
+            }
+            for (long cy = minCy; cy <= maxCy; cy++) {
+                for (long cx = minCx; cx <= maxCx; cx++) {
+                    int b = hash(cx, cy);
+                    merged += mergeInRange(i, bucketStart[b], bucketStart[b + 1]);
+                }
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Merges into body i every later live body overlapping it among the
+     * sorted bodies from index from up to index to.
+     *
+     * @return the number of bodies merged away.
+     */
+    private int mergeInRange(int i, int from, int to) {
+        int merged = 0;
+        for (int k = from; k < to; k++) {
+            int j = sorted[k];
+            if (j > i && !dead[j] && overlaps(i, j)) {
+                merge(i, j, true);
+                merged++;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the flags marking which bodies were merged away by the
+     * last call to resolve.
+     *
+     * @return the dead flags, indexed like the body arrays.
+     */
+    public boolean[] getDead() {
+        return dead;
+    }
+
+    /**
+     * Lets the star absorb every body touching it.
+     *
+     * @return the number of bodies absorbed.
+     */
+    private int absorbIntoStar(int n, int star) {
+        int absorbed = 0;
+        for (int j = 0; j < n; j++) {
+            if (j != star && overlaps(star, j)) {
+                merge(star, j, false);
+                absorbed++;
+            }
+        }
+        return absorbed;
+    }
+
+    /**
+     * Counting-sorts the live bodies other than the star by cell hash,
+     * leaving out bodies that are not finite or too far out to hash.
+     *
+     * @return the largest diameter among the sorted bodies.
+     */
+    private int build(int n, int star) {
+        int buckets = Integer.highestOneBit(Math.max(2 * n, 16) - 1) << 1;
+        if (bucketStart.length < buckets + 1) {
+            bucketStart = new int[buckets + 1];
+            cursor = new int[buckets];
+        }
+        mask = buckets - 1;
+        Arrays.fill(bucketStart, 0, buckets + 1, 0);
+
+        int maxSize = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == star || dead[i] || !inGrid(x[i]) || !inGrid(y[i])) {
+                cellOf[i] = -1;
+                continue;
+            }
+            int b = hash(cell(x[i]), cell(y[i]));
+            cellOf[i] = b;
+            bucketStart[b + 1]++;
+            maxSize = Math.max(maxSize, size[i]);
+        }
+
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+
+        System.arraycopy(bucketStart, 0, cursor, 0, buckets);
+        for (int i = 0; i < n; i++) {
+            int b = cellOf[i];
+            if (b >= 0) {
+                sorted[cursor[b]++] = i;
+            }
+        }
+
+        return maxSize;
+    }
+
+    private boolean inGrid(double v) {
+        // false for NaN and the infinities too
+        return Math.abs(v / cellSize) <= GRID_LIMIT;
+    }
+
+    /**
+     * Returns the cell holding the coordinate, clamped to GRID_LIMIT
+     * cells either side of the origin so the reach of a huge body stays
+     * a countable range.
+     */
+    private long cell(double v) {
+        return Math.max(-GRID_LIMIT, Math.min(GRID_LIMIT, (long) Math.floor(v / cellSize)));
+    }
+
+    private int hash(long cx, long cy) {
+        return (((int) cx * 73856093) ^ ((int) cy * 19349663)) & mask;
+    }
+
+    private boolean overlaps(int i, int j) {
+        double dx = x[j] - x[i];
+        double dy = y[j] - y[i];
+        double reach = (size[i] + size[j]) / 2.0;
+        return dx * dx + dy * dy < reach * reach;
+    }
+
+    /**
+     * Merges body j into body i, conserving mass and momentum, and marks
+     * j as dead.
+     *
+     * @param grow whether i takes on the combined area of both bodies.
+     */
+    private void merge(int i, int j, boolean grow) {
+        double mi = m[i], mj = m[j], total = mi + mj;
+
+        if (total > 0) {
+            x[i] = (x[i] * mi + x[j] * mj) / total;
+            y[i] = (y[i] * mi + y[j] * mj) / total;
+            vx[i] = (vx[i] * mi + vx[j] * mj) / total;
+            vy[i] = (vy[i] * mi + vy[j] * mj) / total;
+        }
+        m[i] = total;
+
+        if (grow) {
+            size[i] = (int) Math.round(Math.sqrt((double) size[i] * size[i] + (double) size[j] * size[j]));
+        }
+        dead[j] = true;
+    }
+}
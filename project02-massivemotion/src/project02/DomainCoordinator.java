@@ -0,0 +1,732 @@
+package project02;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that runs a simulation split over several DomainWorker
+ * processes on this machine, one per vertical strip of the window, for
+ * runs larger than one JVM's heap or cores. It is a World, so the
+ * SimulationThread and the panel, or BatchRunner, drive it exactly like
+ * a Simulation.
+ *
+ * The coordinator builds the initial bodies with a Simulation, so the
+ * star, scenario_file, storage, and list settings mean what they do in
+ * one process, and hands each body to the worker owning its strip. It
+ * starts the workers property's number of worker processes with the
+ * same class path, plus the options in worker_jvm_args, and they
+ * connect back to it on a loopback port. With launch_workers set to
+ * false it instead waits on worker_port for workers started by hand.
+ *
+ * Every tick is one round of messages in the DomainProtocol: each
+ * worker is sent its STEP and answers with a RESULT, all at once over
+ * non-blocking channels on one Selector. A STEP carries the star, the
+ * bodies that moved into the worker's strip during the last tick, and
+ * its ghosts: the halos of its neighbours, every other body that
+ * changed strips, and the summary cells of every other strip, leaving
+ * out the cells of a neighbour whose bodies are already in its halo.
+ * The records are copied between the workers' messages as bytes; only
+ * the x of each migrating body is decoded to find its new owner.
+ *
+ * The frame is assembled from the bodies every worker sends back, with
+ * the star first. The phases recorded in the metrics are the slowest
+ * worker's, and the time the rest of a tick takes, sending, waiting, and
+ * routing, is recorded in the exchange histogram.
+ *
+ * checkpoint_file and record_file are not supported across processes
+ * and are ignored.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class DomainCoordinator implements World {
+
+    // how long launched workers get to connect, in milliseconds
+    private static final long CONNECT_TIMEOUT = 60000;
+
+    /**
+     * The connection to one worker and its last RESULT.
+     */
+    private static final class Link {
+
+        final int index;
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer out = DomainProtocol.allocate(1 << 16);
+        ByteBuffer in = DomainProtocol.allocate(1 << 16);
+
+        // the counts and phase times of the last tick
+        int bodies, spawned, culled;
+        long evaluations, integrate, collide, cull, spawn;
+
+        // where each block of the last RESULT starts in in, and its count
+        int emigrantsAt, emigrants, leftAt, lefts, rightAt, rights, cellsAt, cells, frameAt, framed;
+
+        Link(int index, SocketChannel channel) {
+            this.index = index;
+            this.channel = channel;
+        }
+    }
+
+    private final int workers, width, height;
+    private final boolean frames;
+    private final Process[] processes;
+    private final Link[] links;
+    private final Selector selector;
+    private final ByteBuffer star = ByteBuffer.allocate(DomainProtocol.BODY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private int starOwner;
+    // the comets absorbed by copies of the star in the last RESULTs: mass, mass times position and velocity
+    private double absorbedMass, absorbedX, absorbedY, absorbedVx, absorbedVy;
+    private int bodyCount;
+    private long ticks;
+    private final SimulationMetrics metrics = new SimulationMetrics();
+    private final LatencyHistogram exchange = new LatencyHistogram();
+
+    /**
+     * Constructs a coordinator for the given configuration, starts or
+     * waits for its workers, and hands them the initial bodies.
+     *
+     * @param reader the configuration of the run.
+     * @param frames whether the workers send their bodies back every
+     * tick, for drawing; without them copyTo gives only the star.
+     * @throws IOException if the workers cannot be started or do not
+     * connect.
+     */
+    public DomainCoordinator(PropertyReader reader, boolean frames) throws IOException {
+        this.frames = frames;
+        workers = Math.max(1, reader.getInt("workers", 1));
+        width = reader.getInt("window_size_x", 1024);
+        height = reader.getInt("window_size_y", 768);
+        links = new Link[workers];
+
+        Properties config = new Properties();
+        config.putAll(reader.getProperties());
+        for (String key : new String[] {"checkpoint_file", "record_file"}) {
+            if (config.remove(key) != null) {
+                System.err.println("Ignoring " + key + ", which is not supported with workers");
+            }
+        }
+        Checkpoint initial = initialBodies(config);
+        // the bodies are sent from here, and every worker has to spawn from the same seed
+        config.remove("scenario_file");
+        if (config.getProperty("seed") == null) {
+            config.setProperty("seed", Long.toString(new Random().nextLong()));
+        }
+
+        boolean launch = Boolean.parseBoolean(config.getProperty("launch_workers", "true").trim());
+        processes = new Process[launch ? workers : 0];
+        selector = Selector.open();
+        try {
+            connect(reader.getInt("worker_port", 0), config.getProperty("worker_jvm_args", ""), launch);
+            byte[] configBytes = DomainProtocol.encodeConfig(config);
+            for (Link link : links) {
+                link.out = init(link.out, link.index, configBytes, initial);
+            }
+            run();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        metrics.register();
+    }
+
+    /**
+     * Builds the bodies the run starts with, the configured star or the
+     * scenario, in a Simulation that holds them in a BodyStore and is
+     * closed again.
+     *
+     * @param config the configuration of the run.
+     * @return the bodies, with the star first.
+     */
+    private static Checkpoint initialBodies(Properties config) {
+        PropertyReader reader = new PropertyReader(config);
+        reader.getProperties().setProperty("storage", "soa");
+        reader.getProperties().setProperty("threads", "1");
+        reader.getProperties().remove("jfr_events");
+        Simulation simulation = new Simulation(reader);
+        try {
+            return simulation.snapshot();
+        } finally {
+            simulation.close();
+        }
+    }
+
+    /**
+     * Listens on a loopback port, starts the workers if asked to, and
+     * waits until all of them have connected.
+     *
+     * @param port the port to listen on, or 0 for any free one.
+     * @param jvmArgs the extra options for launched workers' JVMs.
+     * @param launch whether to start the worker processes.
+     * @throws IOException if the port cannot be opened, a worker exits,
+     * or launched workers do not connect within a minute.
+     */
+    private void connect(int port, String jvmArgs, boolean launch) throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            int bound = ((InetSocketAddress) server.getLocalAddress()).getPort();
+
+            if (launch) {
+                for (int i = 0; i < workers; i++) {
+                    processes[i] = launch(bound, jvmArgs);
+                }
+            } else {
+                System.out.println("Waiting for " + workers + " workers, start each with: java -cp "
+                        + System.getProperty("java.class.path") + " project02.DomainWorker "
+                        + InetAddress.getLoopbackAddress().getHostAddress() + " " + bound);
+            }
+
+            long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+            int accepted = 0;
+            while (accepted < workers) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (launch && remaining <= 0) {
+                    throw new IOException("only " + accepted + " of " + workers + " workers connected");
+                }
+                selector.select(launch ? Math.min(1000, remaining) : 1000);
+                selector.selectedKeys().clear();
+                checkProcesses();
+
+                SocketChannel channel;
+                while (accepted < workers && (channel = server.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    Link link = new Link(accepted++, channel);
+                    link.key = channel.register(selector, 0, link);
+                    links[link.index] = link;
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts one worker process with this JVM's class path.
+     *
+     * @param port the port the coordinator listens on.
+     * @param jvmArgs the extra JVM options, separated by spaces.
+     * @return the process.
+     * @throws IOException if the process cannot be started.
+     */
+    private static Process launch(int port, String jvmArgs) throws IOException {
+        String[] extra = jvmArgs.trim().isEmpty() ? new String[0] : jvmArgs.trim().split("\\s+");
+        boolean vector = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+        ArrayList<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String arg : extra) {
+            command.add(arg);
+        }
+        if (vector) {
+            // the workers can use the vector kernels whenever this JVM can
+            command.add("--add-modules");
+            command.add("jdk.incubator.vector");
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("project02.DomainWorker");
+        command.add(InetAddress.getLoopbackAddress().getHostAddress());
+        command.add(Integer.toString(port));
+
+        String[] args = new String[command.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = command.get(i);
+        }
+        return new ProcessBuilder(args).inheritIO().start();
+    }
+
+    /**
+     * Throws if any launched worker process has exited.
+     *
+     * @throws IOException naming the worker's exit code.
+     */
+    private void checkProcesses() throws IOException {
+        for (Process process : processes) {
+            if (process != null && !process.isAlive()) {
+                throw new IOException("a worker process exited with code " + process.exitValue());
+            }
+        }
+    }
+
+    /**
+     * Writes the INIT message for one worker: the configuration, the
+     * star, and the initial bodies in its strip.
+     *
+     * @param out the buffer to reuse.
+     * @param index the worker's index.
+     * @param config the encoded configuration.
+     * @param initial the initial bodies, with the star first.
+     * @return the buffer holding the message, flipped for sending.
+     */
+    private ByteBuffer init(ByteBuffer out, int index, byte[] config, Checkpoint initial) {
+        int n = initial.getCount();
+        starOwner = DomainProtocol.owner(initial.x[0], width, workers);
+        star.clear();
+        DomainProtocol.putBody(star, initial.x[0], initial.y[0], initial.vx[0], initial.vy[0], initial.mass[0],
+                initial.size[0], initial.palette[0]);
+
+        out.clear();
+        out = DomainProtocol.ensure(out, 6 * Integer.BYTES + 1 + config.length + DomainProtocol.BODY_BYTES + 1
+                + Integer.BYTES);
+        DomainProtocol.begin(out, DomainProtocol.INIT);
+        out.putInt(DomainProtocol.MAGIC).putInt(DomainProtocol.VERSION).putInt(index).putInt(workers)
+                .putInt(config.length).put(config);
+        DomainProtocol.copy(out, star, 0, DomainProtocol.BODY_BYTES);
+        out.put((byte) (starOwner == index ? 1 : 0));
+
+        int countAt = out.position();
+        out.putInt(0);
+        int count = 0;
+        for (int i = 1; i < n; i++) {
+            if (DomainProtocol.owner(initial.x[i], width, workers) == index) {
+                out = DomainProtocol.ensure(out, DomainProtocol.BODY_BYTES);
+                DomainProtocol.putBody(out, initial.x[i], initial.y[i], initial.vx[i], initial.vy[i],
+                        initial.mass[i], initial.size[i], initial.palette[i]);
+                count++;
+            }
+        }
+        out.putInt(countAt, count);
+        DomainProtocol.finish(out);
+        return out;
+    }
+
+    /**
+     * Advances every worker by one tick and records the slowest worker's
+     * phase times and the exchange time.
+     *
+     * @throws UncheckedIOException if a worker fails or disconnects.
+     */
+    @Override
+    public void tick() {
+        long start = System.nanoTime();
+        for (Link link : links) {
+            link.out = step(link.out, link.index);
+        }
+        ticks++;
+        try {
+            run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long end = System.nanoTime();
+
+        long integrate = 0, collide = 0, cull = 0, spawn = 0, slowest = 0, evaluations = 0;
+        int spawned = 0, culled = 0;
+        for (Link link : links) {
+            integrate = Math.max(integrate, link.integrate);
+            collide = Math.max(collide, link.collide);
+            cull = Math.max(cull, link.cull);
+            spawn = Math.max(spawn, link.spawn);
+            slowest = Math.max(slowest, link.integrate + link.collide + link.cull + link.spawn);
+            evaluations += link.evaluations;
+            spawned += link.spawned;
+            culled += link.culled;
+        }
+        metrics.recordPhases(ticks, integrate, collide, cull, spawn, end - start, spawned, culled, bodyCount,
+                evaluations);
+        exchange.record(Math.max(0, end - start - slowest));
+    }
+
+    /**
+     * Writes the STEP message for one worker from the workers' last
+     * results.
+     *
+     * @param out the buffer to reuse.
+     * @param w the worker's index.
+     * @return the buffer holding the message, flipped for sending.
+     */
+    private ByteBuffer step(ByteBuffer out, int w) {
+        out.clear();
+        out = DomainProtocol.ensure(out, Integer.BYTES + 1 + Long.BYTES + 1 + DomainProtocol.BODY_BYTES + 1
+                + 2 * Integer.BYTES);
+        DomainProtocol.begin(out, DomainProtocol.STEP);
+        out.putLong(ticks).put((byte) (frames ? 1 : 0));
+        DomainProtocol.copy(out, star, 0, DomainProtocol.BODY_BYTES);
+        out.put((byte) (starOwner == w ? 1 : 0));
+
+        int countAt = out.position();
+        out.putInt(0);
+        int count = 0;
+        for (Link v : links) {
+            for (int k = 0, at = v.emigrantsAt; k < v.emigrants; k++, at += DomainProtocol.BODY_BYTES) {
+                if (DomainProtocol.owner(v.in.getDouble(at), width, workers) == w) {
+                    out = DomainProtocol.ensure(out, DomainProtocol.BODY_BYTES);
+                    DomainProtocol.copy(out, v.in, at, DomainProtocol.BODY_BYTES);
+                    count++;
+                }
+            }
+        }
+        out.putInt(countAt, count);
+
+        out = DomainProtocol.ensure(out, Integer.BYTES);
+        countAt = out.position();
+        out.putInt(0);
+        count = 0;
+        if (w > 0) {
+            Link v = links[w - 1];
+            out = DomainProtocol.ensure(out, v.rights * DomainProtocol.POINT_BYTES);
+            DomainProtocol.copy(out, v.in, v.rightAt, v.rights * DomainProtocol.POINT_BYTES);
+            count += v.rights;
+        }
+        if (w < workers - 1) {
+            Link v = links[w + 1];
+            out = DomainProtocol.ensure(out, v.lefts * DomainProtocol.POINT_BYTES);
+            DomainProtocol.copy(out, v.in, v.leftAt, v.lefts * DomainProtocol.POINT_BYTES);
+            count += v.lefts;
+        }
+        for (Link v : links) {
+            for (int k = 0, at = v.emigrantsAt; k < v.emigrants; k++, at += DomainProtocol.BODY_BYTES) {
+                if (DomainProtocol.owner(v.in.getDouble(at), width, workers) != w) {
+                    out = DomainProtocol.ensure(out, DomainProtocol.POINT_BYTES);
+                    DomainProtocol.copy(out, v.in, at, DomainProtocol.POINT_BYTES);
+                    count++;
+                }
+            }
+            if (v.index == w) {
+                continue;
+            }
+            // a neighbour's bodies next to the shared edge are already ghosts
+            int skip = v.index == w - 1 ? DomainProtocol.RIGHT : v.index == w + 1 ? DomainProtocol.LEFT : 0;
+            for (int k = 0, at = v.cellsAt; k < v.cells; k++, at += DomainProtocol.CELL_BYTES) {
+                if ((v.in.get(at) & skip) == 0) {
+                    out = DomainProtocol.ensure(out, DomainProtocol.POINT_BYTES);
+                    DomainProtocol.copy(out, v.in, at + 1, DomainProtocol.POINT_BYTES);
+                    count++;
+                }
+            }
+        }
+        out.putInt(countAt, count);
+        DomainProtocol.finish(out);
+        return out;
+    }
+
+    /**
+     * Sends every worker its message and reads every worker's RESULT,
+     * all at once, then reads the star and the body count from them.
+     *
+     * @throws IOException if a worker fails, disconnects, or sends
+     * something other than a RESULT.
+     */
+    private void run() throws IOException {
+        for (Link link : links) {
+            link.in.clear();
+            link.key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        int pending = workers;
+        while (pending > 0) {
+            if (selector.select(1000) == 0) {
+                checkProcesses();
+                continue;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Link link = (Link) key.attachment();
+                if (key.isWritable()) {
+                    link.channel.write(link.out);
+                    if (!link.out.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                } else if (key.isReadable() && read(link)) {
+                    key.interestOps(0);
+                    pending--;
+                }
+            }
+        }
+
+        // bodies changing strips are in no worker's store until the next STEP
+        bodyCount = 1;
+        absorbedMass = absorbedX = absorbedY = absorbedVx = absorbedVy = 0;
+        for (Link link : links) {
+            parse(link);
+            bodyCount += link.bodies + link.emigrants;
+        }
+        if (absorbedMass > 0) {
+            absorbIntoStar();
+        }
+        starOwner = DomainProtocol.owner(star.getDouble(0), width, workers);
+    }
+
+    /**
+     * Adds the comets absorbed by the copies of the star that other
+     * workers hold to the star its owner reported, conserving mass and
+     * momentum as a merge does; the star keeps its size.
+     */
+    private void absorbIntoStar() {
+        double m = star.getDouble(4 * Double.BYTES);
+        double total = m + absorbedMass;
+        star.putDouble(0, (star.getDouble(0) * m + absorbedX) / total);
+        star.putDouble(Double.BYTES, (star.getDouble(Double.BYTES) * m + absorbedY) / total);
+        star.putDouble(2 * Double.BYTES, (star.getDouble(2 * Double.BYTES) * m + absorbedVx) / total);
+        star.putDouble(3 * Double.BYTES, (star.getDouble(3 * Double.BYTES) * m + absorbedVy) / total);
+        star.putDouble(4 * Double.BYTES, total);
+    }
+
+    /**
+     * Reads what has arrived of a worker's RESULT, growing its buffer to
+     * fit.
+     *
+     * @param link the worker.
+     * @return true once the whole message has arrived.
+     * @throws IOException if the worker has disconnected.
+     */
+    private static boolean read(Link link) throws IOException {
+        if (link.channel.read(link.in) < 0) {
+            throw new EOFException("worker " + link.index + " closed the connection");
+        }
+        ByteBuffer in = link.in;
+        if (in.position() < Integer.BYTES) {
+            return false;
+        }
+        int length = in.getInt(0);
+        if (in.capacity() < Integer.BYTES + length) {
+            in.flip();
+            link.in = DomainProtocol.allocate(Integer.BYTES + length).put(in);
+            return false;
+        }
+        return in.position() >= Integer.BYTES + length;
+    }
+
+    /**
+     * Reads the counts of a worker's RESULT, copies the star if the
+     * worker owns it, adds up what its copy of the star absorbed, and
+     * notes where each block starts.
+     *
+     * @param link the worker.
+     * @throws IOException if the message is not the RESULT of this tick.
+     */
+    private void parse(Link link) throws IOException {
+        ByteBuffer in = link.in;
+        in.flip();
+        in.position(Integer.BYTES);
+        if (in.get() != DomainProtocol.RESULT || in.getLong() != ticks) {
+            throw new IOException("worker " + link.index + " is out of step");
+        }
+        link.bodies = in.getInt();
+        link.spawned = in.getInt();
+        link.culled = in.getInt();
+        link.evaluations = in.getLong();
+        link.integrate = in.getLong();
+        link.collide = in.getLong();
+        link.cull = in.getLong();
+        link.spawn = in.getLong();
+        if (in.get() != 0) {
+            star.clear();
+            DomainProtocol.copy(star, in, in.position(), DomainProtocol.BODY_BYTES);
+            in.position(in.position() + DomainProtocol.BODY_BYTES);
+        }
+        double x = in.getDouble(), y = in.getDouble(), vx = in.getDouble(), vy = in.getDouble();
+        double mass = in.getDouble();
+        absorbedMass += mass;
+        absorbedX += mass * x;
+        absorbedY += mass * y;
+        absorbedVx += mass * vx;
+        absorbedVy += mass * vy;
+
+        link.emigrants = in.getInt();
+        link.emigrantsAt = in.position();
+        in.position(in.position() + link.emigrants * DomainProtocol.BODY_BYTES);
+        link.lefts = in.getInt();
+        link.leftAt = in.position();
+        in.position(in.position() + link.lefts * DomainProtocol.POINT_BYTES);
+        link.rights = in.getInt();
+        link.rightAt = in.position();
+        in.position(in.position() + link.rights * DomainProtocol.POINT_BYTES);
+        link.cells = in.getInt();
+        link.cellsAt = in.position();
+        in.position(in.position() + link.cells * DomainProtocol.CELL_BYTES);
+        link.framed = in.getInt();
+        link.frameAt = in.position();
+    }
+
+    /**
+     * Copies the star, the bodies every worker sent back in its last
+     * RESULT, and the bodies on their way to another strip into the given
+     * frame, stamped with the current tick.
+     *
+     * @param frame the frame to write into.
+     */
+    @Override
+    public void copyTo(Frame frame) {
+        int n = 1;
+        for (Link link : links) {
+            n += link.framed + link.emigrants;
+        }
+        frame.resize(n);
+        frame.x[0] = star.getDouble(0);
+        frame.y[0] = star.getDouble(Double.BYTES);
+        frame.size[0] = star.getInt(5 * Double.BYTES);
+        frame.palette[0] = star.get(5 * Double.BYTES + Integer.BYTES);
+
+        int i = 1;
+        for (Link link : links) {
+            ByteBuffer in = link.in;
+            for (int k = 0, at = link.frameAt; k < link.framed; k++, at += DomainProtocol.FRAME_BYTES) {
+                frame.x[i] = in.getDouble(at);
+                frame.y[i] = in.getDouble(at + Double.BYTES);
+                frame.size[i] = in.getInt(at + 2 * Double.BYTES);
+                frame.palette[i] = in.get(at + 2 * Double.BYTES + Integer.BYTES);
+                i++;
+            }
+            for (int k = 0, at = link.emigrantsAt; k < link.emigrants; k++, at += DomainProtocol.BODY_BYTES) {
+                frame.x[i] = in.getDouble(at);
+                frame.y[i] = in.getDouble(at + Double.BYTES);
+                frame.size[i] = in.getInt(at + 5 * Double.BYTES);
+                frame.palette[i] = in.get(at + 5 * Double.BYTES + Integer.BYTES);
+                i++;
+            }
+        }
+        frame.tick = ticks;
+    }
+
+    /**
+     * Returns the number of bodies over all workers, including the star.
+     *
+     * @return the body count.
+     */
+    @Override
+    public int getBodyCount() {
+        return bodyCount;
+    }
+
+    /**
+     * Returns the total mass of the star and every other body after the
+     * last tick, summed from the workers' cells and the bodies changing
+     * strips, which between them hold every body but the star once.
+     *
+     * @return the total mass.
+     */
+    public double getTotalMass() {
+        double total = star.getDouble(4 * Double.BYTES);
+        for (Link link : links) {
+            ByteBuffer in = link.in;
+            for (int k = 0, at = link.emigrantsAt; k < link.emigrants; k++, at += DomainProtocol.BODY_BYTES) {
+                total += in.getDouble(at + 4 * Double.BYTES);
+            }
+            for (int k = 0, at = link.cellsAt; k < link.cells; k++, at += DomainProtocol.CELL_BYTES) {
+                total += in.getDouble(at + 1 + 4 * Double.BYTES);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of ticks run so far.
+     *
+     * @return the tick count.
+     */
+    @Override
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the width of the simulated area in pixels.
+     *
+     * @return the width.
+     */
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the simulated area in pixels.
+     *
+     * @return the height.
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the timing histograms and body counters of the run, with
+     * the slowest worker's phase times.
+     *
+     * @return the metrics.
+     */
+    @Override
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the histogram of the time each tick spent on anything but
+     * the slowest worker's own work: sending, waiting, and routing.
+     *
+     * @return the exchange histogram.
+     */
+    public LatencyHistogram getExchange() {
+        return exchange;
+    }
+
+    /**
+     * Returns the number of worker processes.
+     *
+     * @return the worker count.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Tells the workers to stop, closes the connections, and waits a few
+     * seconds for launched workers to exit before killing them.
+     */
+    @Override
+    public void close() {
+        metrics.unregister();
+        ByteBuffer stop = DomainProtocol.allocate(Integer.BYTES + 1);
+        for (Link link : links) {
+            if (link == null) {
+                continue;
+            }
+            try {
+                DomainProtocol.begin(stop, DomainProtocol.STOP);
+                DomainProtocol.finish(stop);
+                link.channel.write(stop);
+                link.channel.close();
+            } catch (IOException e) {
+                // the worker is gone already
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+
+        for (Process process : processes) {
+            if (process == null) {
+                continue;
+            }
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
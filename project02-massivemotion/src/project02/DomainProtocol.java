@@ -0,0 +1,289 @@
+package project02;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * Class holding the binary protocol a DomainCoordinator and its
+ * DomainWorker processes speak over localhost sockets, and the strip
+ * layout they share.
+ *
+ * The window is split into vertical strips of equal width, one per
+ * worker, with worker 0 on the left. A body belongs to the strip its x
+ * falls in; bodies left of the window belong to the first strip and
+ * bodies right of it to the last.
+ *
+ * Every message is little-endian and framed as an int length, counting
+ * the bytes after it, followed by a type byte and the payload:
+ *
+ *   INIT    int magic "MMDM", int version, int worker index,
+ *           int worker count, int config length c, byte[c] the
+ *           configuration in Properties text format, UTF-8, the star,
+ *           byte 1 if this worker owns the star, then a body block
+ *   STEP    long tick, byte 1 to send a frame back, the star, byte 1 if
+ *           this worker owns the star, a body block of immigrants, and
+ *           a point block of ghosts
+ *   RESULT  long tick, int bodies, int spawned, int culled,
+ *           long force evaluations, long integrate, collide, cull, and
+ *           spawn nanoseconds, byte 1 if the star follows, the star if
+ *           so, a point for the comets absorbed by a copy of the star
+ *           the worker does not own, a body block of emigrants, a point
+ *           block of the left
+ *           halo, a point block of the right halo, a cell block, and a
+ *           frame block
+ *   STOP    nothing
+ *
+ * A block is an int count followed by that many fixed-size records. A
+ * body is five doubles (x, y, vx, vy, mass), an int size, and a palette
+ * byte, the record of a binary ScenarioFile; the star is one body. A
+ * point is the five doubles alone, a cell is a band byte followed by a
+ * point, and a frame entry is x, y, size, and palette. A point standing
+ * for several bodies, a cell or the absorbed comets, is at their center
+ * of mass with their total mass and momentum, and the absorbed comets
+ * are all zero if there are none. The bodies a worker reports never
+ * include the star, which is sent on its own.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+final class DomainProtocol {
+
+    static final int MAGIC = 0x4D444D4D;  // "MMDM" in little-endian order
+    static final int VERSION = 2;
+
+    static final byte INIT = 1;
+    static final byte STEP = 2;
+    static final byte RESULT = 3;
+    static final byte STOP = 4;
+
+    static final int BODY_BYTES = 5 * Double.BYTES + Integer.BYTES + 1;
+    static final int POINT_BYTES = 5 * Double.BYTES;
+    static final int CELL_BYTES = 1 + POINT_BYTES;
+    static final int FRAME_BYTES = 2 * Double.BYTES + Integer.BYTES + 1;
+
+    // band bits of a cell: its bodies are also in the left or right halo
+    static final byte LEFT = 1;
+    static final byte RIGHT = 2;
+
+    private DomainProtocol() {
+    }
+
+    /**
+     * Returns the worker whose strip the given x falls in.
+     *
+     * @param x the x-coordinate.
+     * @param width the width of the window.
+     * @param workers the number of workers.
+     * @return the worker index, from 0 to workers - 1.
+     */
+    static int owner(double x, int width, int workers) {
+        int strip = (int) Math.floor(x * workers / width);
+        return Math.max(0, Math.min(workers - 1, strip));
+    }
+
+    /**
+     * Returns the x-coordinate of the left edge of the given strip; the
+     * strip runs up to the left edge of the next one.
+     *
+     * @param strip the strip index, up to the worker count for the right
+     * edge of the window.
+     * @param width the width of the window.
+     * @param workers the number of workers.
+     * @return the x-coordinate.
+     */
+    static double edge(int strip, int width, int workers) {
+        return (double) strip * width / workers;
+    }
+
+    /**
+     * Allocates a direct little-endian buffer of the given capacity.
+     *
+     * @param capacity the capacity in bytes.
+     * @return the buffer.
+     */
+    static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns a buffer with room for at least the given number of bytes
+     * more than the one given holds, which is returned itself if it has
+     * room, or copied into one twice as large, or larger, if not.
+     *
+     * @param buffer the buffer being written.
+     * @param bytes the number of bytes about to be written.
+     * @return a buffer with the same contents and position and room for
+     * the bytes.
+     */
+    static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        long needed = (long) buffer.position() + bytes;
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("message of " + needed + " bytes is too large");
+        }
+        long doubled = Math.min(Integer.MAX_VALUE - 8L, 2L * buffer.capacity());
+        ByteBuffer grown = allocate((int) Math.max(needed, doubled));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    /**
+     * Starts a message of the given type at the beginning of the buffer,
+     * leaving room for the length, which finish fills in.
+     *
+     * @param buffer the buffer to write the message into.
+     * @param type the message type.
+     */
+    static void begin(ByteBuffer buffer, byte type) {
+        buffer.clear();
+        buffer.putInt(0).put(type);
+    }
+
+    /**
+     * Fills in the length of the message written since begin and flips
+     * the buffer for sending.
+     *
+     * @param buffer the buffer holding the message.
+     */
+    static void finish(ByteBuffer buffer) {
+        buffer.putInt(0, buffer.position() - Integer.BYTES);
+        buffer.flip();
+    }
+
+    /**
+     * Writes a whole finished message to a blocking channel.
+     *
+     * @param channel the channel to write to.
+     * @param buffer the message, flipped by finish.
+     * @throws IOException if the channel cannot be written.
+     */
+    static void send(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads one whole message from a blocking channel into the given
+     * buffer, or a larger one if it does not fit, positioned at the
+     * type byte with the limit at the end of the message.
+     *
+     * @param channel the channel to read from.
+     * @param buffer the buffer to reuse.
+     * @return the buffer holding the message.
+     * @throws EOFException if the channel closes before a whole message
+     * arrives.
+     * @throws IOException if the channel cannot be read.
+     */
+    static ByteBuffer receive(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear().limit(Integer.BYTES);
+        readFully(channel, buffer);
+        int length = buffer.getInt(0);
+        if (length < 1) {
+            throw new IOException("bad message length " + length);
+        }
+        if (buffer.capacity() < Integer.BYTES + length) {
+            buffer = allocate(Integer.BYTES + length);
+            buffer.putInt(length);
+        }
+        buffer.limit(Integer.BYTES + length);
+        readFully(channel, buffer);
+        buffer.position(Integer.BYTES);
+        return buffer;
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("connection closed");
+            }
+        }
+    }
+
+    /**
+     * Copies length bytes from the given index of one buffer to the
+     * position of another, advancing only the target.
+     *
+     * @param target the buffer to append to.
+     * @param source the buffer to copy from.
+     * @param from the index of the first byte to copy.
+     * @param length the number of bytes.
+     */
+    static void copy(ByteBuffer target, ByteBuffer source, int from, int length) {
+        target.put(target.position(), source, from, length);
+        target.position(target.position() + length);
+    }
+
+    /**
+     * Appends a body record.
+     *
+     * @param buffer the buffer to append to.
+     * @param x the x-coordinate.
+     * @param y the y-coordinate.
+     * @param vx the x-velocity.
+     * @param vy the y-velocity.
+     * @param mass the mass.
+     * @param size the diameter in pixels.
+     * @param palette the palette index of the color.
+     */
+    static void putBody(ByteBuffer buffer, double x, double y, double vx, double vy, double mass, int size,
+            byte palette) {
+        buffer.putDouble(x).putDouble(y).putDouble(vx).putDouble(vy).putDouble(mass).putInt(size).put(palette);
+    }
+
+    /**
+     * Appends a point record, a body without its size and color.
+     *
+     * @param buffer the buffer to append to.
+     * @param x the x-coordinate.
+     * @param y the y-coordinate.
+     * @param vx the x-velocity.
+     * @param vy the y-velocity.
+     * @param mass the mass.
+     */
+    static void putPoint(ByteBuffer buffer, double x, double y, double vx, double vy, double mass) {
+        buffer.putDouble(x).putDouble(y).putDouble(vx).putDouble(vy).putDouble(mass);
+    }
+
+    /**
+     * Encodes a configuration in Properties text format as UTF-8.
+     *
+     * @param config the configuration.
+     * @return the encoded bytes.
+     */
+    static byte[] encodeConfig(Properties config) {
+        StringWriter text = new StringWriter();
+        try {
+            config.store(text, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);  // a StringWriter does not fail
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a configuration written by encodeConfig.
+     *
+     * @param bytes the encoded bytes.
+     * @return the configuration.
+     */
+    static Properties decodeConfig(byte[] bytes) {
+        Properties config = new Properties();
+        try {
+            config.load(new StringReader(new String(bytes, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);  // a StringReader does not fail
+        }
+        return config;
+    }
+}
@@ -0,0 +1,561 @@
+package project02;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Properties;
+
+/**
+ * Entry point of one worker process of a distributed run. A worker owns
+ * one vertical strip of the window, holds the bodies in it in a
+ * BodyStore, and advances them one tick at a time as its
+ * DomainCoordinator asks, speaking the DomainProtocol over a localhost
+ * socket.
+ *
+ * Usage: java project02.DomainWorker host port
+ *
+ * The coordinator normally starts its workers itself. With
+ * launch_workers set to false it waits for them to be started by hand
+ * with the host and port it prints.
+ *
+ * Every worker keeps a copy of the star at index 0 of its store, which
+ * the coordinator overwrites each tick with the state the worker owning
+ * the star reported, so the integrators, which expect the star first,
+ * and the collision grid work unchanged. Before a tick the store is
+ * extended by the ghosts the coordinator sent: the bodies of the
+ * neighbouring strips within halo_width of the shared edge (default
+ * 128), the bodies that changed strips in the last tick, and one point
+ * per cell of summary_cell pixels for the rest of every other strip, at
+ * its center of mass with its total mass and momentum. The whole store
+ * is integrated, so the tree sees every other body either exactly or
+ * through a cell, and the ghosts are then dropped again. By default a
+ * cell is half as wide as the widest tree node the tree would treat as
+ * one point from halo_width away.
+ *
+ * The owned bodies then collide, with comets touching the star absorbed
+ * as in a single process, are culled, and spawn along this strip's share
+ * of the window edges. Bodies only merge with bodies in the same strip.
+ * A worker that does not own the star sends back what its copy absorbed,
+ * which the coordinator adds to the star the owner reports. Comets are
+ * always spawned Poisson
+ * distributed: each edge with the rate spawn_rate gives it, or, without
+ * spawn_rate, the expected comets per tick the gen_x and gen_y chances
+ * give it, both in proportion to the length of the edge in this strip,
+ * and drawn from a SpawnStream reseeded from the seed, the tick, and
+ * the worker index. Bodies that left the strip are sent back
+ * to be handed to their new owner.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class DomainWorker {
+
+    // the edges comets spawn at, in the order of Simulation's spawn rates
+    private static final int TOP = 0, BOTTOM = 1, LEFT = 2, RIGHT = 3;
+    private static final int EDGES = 4;
+
+    private final int index, workers, width, height;
+    private final double left, right;
+    private final double halo, cellSize;
+    private final int cols, rows;
+    private final double[] cellMass, cellX, cellY, cellVx, cellVy;
+
+    private final int bodySize, bodyVelocity;
+    private final double bodyMass;
+    private final double[] edgeShare = new double[EDGES];
+    private final double[] rates = new double[EDGES];
+    private final int spawnInitial;
+    private final long spawnSeed;
+    private final SpawnStream stream = new SpawnStream();
+
+    private final Kernels kernels;
+    private final Integrator integrator;
+    private final int substeps;
+    private final ParallelStepper stepper;
+    private final CollisionGrid collisions;
+
+    private final BodyStore store = new BodyStore();
+    private boolean ownsStar;
+
+    // what this tick's copy of the star absorbed, when another worker owns the star
+    private double absorbedMass, absorbedX, absorbedY, absorbedVx, absorbedVy;
+    private long ticks;
+    private boolean[] offScreen = new boolean[0];
+    private ByteBuffer out = DomainProtocol.allocate(1 << 16);
+
+    /**
+     * Constructs the worker for the given strip of a run with the given
+     * configuration.
+     *
+     * @param index the index of this worker's strip, from the left.
+     * @param workers the number of workers.
+     * @param config the configuration of the run, with the seed set.
+     */
+    DomainWorker(int index, int workers, Properties config) {
+        this.index = index;
+        this.workers = workers;
+        PropertyReader reader = new PropertyReader(config);
+
+        width = reader.getInt("window_size_x", 1024);
+        height = reader.getInt("window_size_y", 768);
+        left = DomainProtocol.edge(index, width, workers);
+        right = DomainProtocol.edge(index + 1, width, workers);
+
+        bodySize = reader.getInt("body_size", 10);
+        bodyVelocity = reader.getInt("body_velocity", 3);
+        bodyMass = reader.getDouble("body_mass", 1E21);
+        spawnInitial = reader.getInt("spawn_initial", 0);
+        spawnSeed = reader.getLong("seed", 0);
+
+        double[] spawnRates = Simulation.readSpawnRates(reader);
+        if (spawnRates == null) {
+            // the chance of a comet per tick, with each edge equally likely
+            double genX = reader.getDouble("gen_x", 0.06);
+            double genY = reader.getDouble("gen_y", 0.06);
+            double chance = genX + (1 - genX) * genY;
+            spawnRates = new double[] {chance / 4, chance / 4, chance / 4, chance / 4};
+        }
+        edgeShare[TOP] = (right - left) / width;
+        edgeShare[BOTTOM] = edgeShare[TOP];
+        edgeShare[LEFT] = index == 0 ? 1 : 0;
+        edgeShare[RIGHT] = index == workers - 1 ? 1 : 0;
+        for (int edge = 0; edge < EDGES; edge++) {
+            rates[edge] = spawnRates[edge] * edgeShare[edge];
+        }
+
+        double gravity = reader.getDouble("gravity", 1E-26);
+        double theta = reader.getDouble("theta", 0.5);
+        double softening = reader.getDouble("softening", bodySize / 2.0);
+        kernels = Simulation.newKernels(config.getProperty("simd", "scalar").trim().toLowerCase(),
+                reader.getInt("simd_bits", 0));
+        BarnesHutTree tree = new BarnesHutTree(gravity, theta, softening, kernels,
+                reader.getInt("direct_sum_max", 0));
+        // the workers share the machine, so by default they split its processors
+        int threads = reader.getInt("threads", 0);
+        stepper = new ParallelStepper(threads > 0 ? threads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / workers));
+        integrator = Simulation.newIntegrator(config.getProperty("integrator", "euler").trim().toLowerCase(),
+                tree, stepper, kernels, gravity, softening, reader);
+        substeps = Math.max(1, reader.getInt("substeps", 1));
+
+        boolean collide = Boolean.parseBoolean(config.getProperty("collisions", "true").trim());
+        collisions = collide ? new CollisionGrid(bodySize) : null;
+
+        halo = Math.max(0, reader.getDouble("halo_width", 128));
+        cellSize = Math.max(1, reader.getDouble("summary_cell", Math.max(8, halo * theta / 2)));
+        cols = Math.max(1, (int) Math.ceil((right - left) / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int cells = 4 * cols * rows;
+        cellMass = new double[cells];
+        cellX = new double[cells];
+        cellY = new double[cells];
+        cellVx = new double[cells];
+        cellVy = new double[cells];
+    }
+
+    /**
+     * Connects to the coordinator and serves it until it sends STOP or
+     * closes the connection.
+     *
+     * @param args the host and port the coordinator listens on.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 2) {
+            System.err.println("Usage: java project02.DomainWorker host port");
+            System.exit(2);
+        }
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(args[0], Integer.parseInt(args[1])))) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            serve(channel);
+        } catch (EOFException e) {
+            // the coordinator went away
+        } catch (IOException e) {
+            System.err.println("Worker stopped: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Answers the coordinator's messages until it sends STOP.
+     *
+     * @param channel the connection to the coordinator.
+     * @throws IOException if the connection fails or a message is bad.
+     */
+    private static void serve(SocketChannel channel) throws IOException {
+        ByteBuffer in = DomainProtocol.allocate(1 << 16);
+        DomainWorker worker = null;
+        try {
+            while (true) {
+                in = DomainProtocol.receive(channel, in);
+                byte type = in.get();
+                if (type == DomainProtocol.STOP) {
+                    return;
+                } else if (type == DomainProtocol.INIT && worker == null) {
+                    worker = init(in);
+                    worker.result(false, 0, 0, 0, 0, 0, 0, 0);
+                } else if (type == DomainProtocol.STEP && worker != null) {
+                    worker.step(in);
+                } else {
+                    throw new IOException("unexpected message type " + type);
+                }
+                DomainProtocol.send(channel, worker.out);
+            }
+        } finally {
+            if (worker != null) {
+                worker.stepper.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Creates the worker described by an INIT message and loads the star
+     * and the bodies it carries.
+     *
+     * @param in the message, positioned after the type.
+     * @return the worker.
+     * @throws IOException if the message is for another protocol version.
+     */
+    private static DomainWorker init(ByteBuffer in) throws IOException {
+        if (in.getInt() != DomainProtocol.MAGIC) {
+            throw new IOException("not a coordinator");
+        }
+        int version = in.getInt();
+        if (version != DomainProtocol.VERSION) {
+            throw new IOException("unsupported protocol version " + version);
+        }
+        int index = in.getInt();
+        int workers = in.getInt();
+        byte[] config = new byte[in.getInt()];
+        in.get(config);
+
+        DomainWorker worker = new DomainWorker(index, workers, DomainProtocol.decodeConfig(config));
+        worker.readStar(in);
+        worker.readBodies(in);
+        return worker;
+    }
+
+    /**
+     * Runs one tick as described by a STEP message and writes the RESULT
+     * into out.
+     *
+     * @param in the message, positioned after the type.
+     */
+    private void step(ByteBuffer in) {
+        long start = System.nanoTime();
+        ticks = in.getLong();
+        boolean frame = in.get() != 0;
+        readStar(in);
+        readBodies(in);
+
+        // the ghosts go after the owned bodies and are dropped once integrated
+        int own = store.count;
+        for (int p = in.getInt(); p > 0; p--) {
+            double x = in.getDouble(), y = in.getDouble();
+            double vx = in.getDouble(), vy = in.getDouble(), mass = in.getDouble();
+            store.add(x, y, 0, vx, vy, mass, Palette.COMET);
+        }
+        double dt = 1.0 / substeps;
+        long evaluations = 0;
+        for (int s = 0; s < substeps; s++) {
+            evaluations += integrator.step(store.x, store.y, store.vx, store.vy, store.mass, store.count, dt);
+        }
+        store.count = own;
+        long integrated = System.nanoTime();
+
+        double m0 = store.mass[0], x0 = store.x[0], y0 = store.y[0], vx0 = store.vx[0], vy0 = store.vy[0];
+        boolean[] dead = null;
+        if (collisions != null && collisions.resolve(store.x, store.y, store.vx, store.vy, store.mass,
+                store.size, store.count, 0) > 0) {
+            dead = collisions.getDead();
+        }
+        absorb(m0, x0, y0, vx0, vy0);
+        long collided = System.nanoTime();
+
+        int before = store.count;
+        int n = store.count;
+        if (offScreen.length < n) {
+            offScreen = new boolean[Math.max(n, offScreen.length * 2)];
+        }
+        if (kernels.offScreen(store.x, store.y, store.size, width, height, offScreen, 1, n) > 0 || dead != null) {
+            for (int i = n - 1; i > 0; i--) {
+                if (offScreen[i] || (dead != null && dead[i])) {
+                    store.swapRemove(i);
+                }
+            }
+        }
+        int culled = before - store.count;
+        long culledAt = System.nanoTime();
+
+        int spawned = spawn();
+        ticks++;
+        long end = System.nanoTime();
+
+        result(frame, spawned, culled, evaluations, integrated - start, collided - integrated,
+                culledAt - collided, end - culledAt);
+    }
+
+    /**
+     * Works out the center of mass, total mass, and momentum of the
+     * comets the copy of the star absorbed, from its state before and
+     * after the collisions, if another worker owns the star.
+     *
+     * @param m0 the star's mass before the collisions.
+     * @param x0 its x-coordinate before.
+     * @param y0 its y-coordinate before.
+     * @param vx0 its x-velocity before.
+     * @param vy0 its y-velocity before.
+     */
+    private void absorb(double m0, double x0, double y0, double vx0, double vy0) {
+        double m1 = store.mass[0];
+        absorbedMass = ownsStar ? 0 : m1 - m0;
+        if (absorbedMass <= 0) {
+            absorbedMass = absorbedX = absorbedY = absorbedVx = absorbedVy = 0;
+            return;
+        }
+        absorbedX = (m1 * store.x[0] - m0 * x0) / absorbedMass;
+        absorbedY = (m1 * store.y[0] - m0 * y0) / absorbedMass;
+        absorbedVx = (m1 * store.vx[0] - m0 * vx0) / absorbedMass;
+        absorbedVy = (m1 * store.vy[0] - m0 * vy0) / absorbedMass;
+    }
+
+    /**
+     * Overwrites the copy of the star at index 0 with the star in the
+     * message and reads whether this worker owns it.
+     *
+     * @param in the message, positioned at the star.
+     */
+    private void readStar(ByteBuffer in) {
+        if (store.count == 0) {
+            store.add(0, 0, 0, 0, 0, 0, Palette.STAR);
+        }
+        store.x[0] = in.getDouble();
+        store.y[0] = in.getDouble();
+        store.vx[0] = in.getDouble();
+        store.vy[0] = in.getDouble();
+        store.mass[0] = in.getDouble();
+        store.size[0] = in.getInt();
+        store.palette[0] = in.get();
+        ownsStar = in.get() != 0;
+    }
+
+    /**
+     * Adds the bodies of a body block to the store.
+     *
+     * @param in the message, positioned at the block.
+     */
+    private void readBodies(ByteBuffer in) {
+        for (int b = in.getInt(); b > 0; b--) {
+            double x = in.getDouble(), y = in.getDouble();
+            double vx = in.getDouble(), vy = in.getDouble(), mass = in.getDouble();
+            int size = in.getInt();
+            store.add(x, y, size, vx, vy, mass, in.get());
+        }
+    }
+
+    /**
+     * Spawns this tick's comets along this strip's share of the window
+     * edges: spawn_initial spread over all edges on the first tick, and
+     * the Poisson-distributed comets of every tick.
+     *
+     * @return the number of comets spawned.
+     */
+    private int spawn() {
+        stream.reseed(SpawnStream.seed(spawnSeed, ticks, index));
+
+        int before = store.count;
+        for (int edge = 0; edge < EDGES; edge++) {
+            double mean = rates[edge];
+            if (ticks == 0) {
+                mean += spawnInitial * edgeShare[edge] / EDGES;
+            }
+            for (int k = Simulation.poisson(stream, mean); k > 0; k--) {
+                comet(edge, stream.nextDouble(), stream);
+            }
+        }
+        return store.count - before;
+    }
+
+    /**
+     * Adds a comet on this strip's part of the given edge of the window,
+     * with a random velocity heading inwards, drawn as Simulation does.
+     *
+     * @param edge TOP, BOTTOM, LEFT, or RIGHT.
+     * @param along the position along this strip's part of the edge,
+     * from 0 to 1.
+     * @param rng the generator to draw the velocity from.
+     */
+    private void comet(int edge, double along, SpawnStream rng) {
+        double x, y, vx, vy;
+
+        if (edge == TOP || edge == BOTTOM) {
+            x = left + along * (right - left);
+            if (edge == TOP) {
+                y = 0;
+                vy = 1 + rng.nextInt(bodyVelocity);
+            } else {
+                y = height;
+                vy = -1 - rng.nextInt(bodyVelocity);
+            }
+            vx = rng.nextInt(bodyVelocity * 2 + 1) - bodyVelocity;
+            if (vx == 0) {
+                vx = 1; // ensure non-zero velocity
+            }
+        } else {
+            y = along * height;
+            if (edge == LEFT) {
+                x = 0;
+                vx = 1 + rng.nextInt(bodyVelocity);
+            } else {
+                x = width;
+                vx = -1 - rng.nextInt(bodyVelocity);
+            }
+            vy = rng.nextInt(bodyVelocity * 2 + 1) - bodyVelocity;
+            if (vy == 0) {
+                vy = 1; // ensure non-zero velocity
+            }
+        }
+        store.add(x, y, bodySize, vx, vy, bodyMass, Palette.COMET);
+    }
+
+    /**
+     * Writes a RESULT into out: the counts and phase times of the tick,
+     * the star if this worker owns it, the bodies that left the strip,
+     * which are removed from the store, the halos and cells of the
+     * bodies that stay, and the frame if asked for.
+     *
+     * @param frame whether to include the frame.
+     * @param spawned the number of comets spawned in the tick.
+     * @param culled the number of bodies merged away or culled.
+     * @param evaluations the number of force evaluations, ghosts included.
+     * @param integrate the nanoseconds spent on gravity and drift.
+     * @param collide the nanoseconds spent on collisions.
+     * @param cull the nanoseconds spent on the cull.
+     * @param spawn the nanoseconds spent spawning.
+     */
+    private void result(boolean frame, int spawned, int culled, long evaluations, long integrate, long collide,
+            long cull, long spawn) {
+        out.clear();
+        out = DomainProtocol.ensure(out, Integer.BYTES + 1 + 6 * Long.BYTES + 3 * Integer.BYTES + 1
+                + DomainProtocol.BODY_BYTES + DomainProtocol.POINT_BYTES + Integer.BYTES);
+        DomainProtocol.begin(out, DomainProtocol.RESULT);
+        out.putLong(ticks);
+        int countAt = out.position();
+        out.putInt(0).putInt(spawned).putInt(culled).putLong(evaluations)
+                .putLong(integrate).putLong(collide).putLong(cull).putLong(spawn);
+
+        out.put((byte) (ownsStar ? 1 : 0));
+        if (ownsStar) {
+            DomainProtocol.putBody(out, store.x[0], store.y[0], store.vx[0], store.vy[0], store.mass[0],
+                    store.size[0], store.palette[0]);
+        }
+        DomainProtocol.putPoint(out, absorbedX, absorbedY, absorbedVx, absorbedVy, absorbedMass);
+
+        int emigrantsAt = out.position();
+        out.putInt(0);
+        int emigrants = 0;
+        for (int i = store.count - 1; i > 0; i--) {
+            if (DomainProtocol.owner(store.x[i], width, workers) != index) {
+                out = DomainProtocol.ensure(out, DomainProtocol.BODY_BYTES);
+                DomainProtocol.putBody(out, store.x[i], store.y[i], store.vx[i], store.vy[i], store.mass[i],
+                        store.size[i], store.palette[i]);
+                store.swapRemove(i);
+                emigrants++;
+            }
+        }
+        out.putInt(emigrantsAt, emigrants);
+        out.putInt(countAt, store.count - 1);
+
+        putHalo(index > 0, true);
+        putHalo(index < workers - 1, false);
+        putCells();
+
+        int framed = frame ? store.count - 1 : 0;
+        out = DomainProtocol.ensure(out, Integer.BYTES + framed * DomainProtocol.FRAME_BYTES);
+        out.putInt(framed);
+        for (int i = 1; i <= framed; i++) {
+            out.putDouble(store.x[i]).putDouble(store.y[i]).putInt(store.size[i]).put(store.palette[i]);
+        }
+        DomainProtocol.finish(out);
+    }
+
+    /**
+     * Writes the point block of the bodies within halo_width of the left
+     * or right edge of the strip, or an empty block if there is no
+     * neighbour on that side.
+     *
+     * @param neighbour whether there is a strip on that side.
+     * @param leftSide true for the left edge, false for the right.
+     */
+    private void putHalo(boolean neighbour, boolean leftSide) {
+        int countAt = out.position();
+        out = DomainProtocol.ensure(out, Integer.BYTES);
+        out.putInt(0);
+        if (!neighbour) {
+            return;
+        }
+
+        int count = 0;
+        for (int i = 1; i < store.count; i++) {
+            if (leftSide ? store.x[i] < left + halo : store.x[i] >= right - halo) {
+                out = DomainProtocol.ensure(out, DomainProtocol.POINT_BYTES);
+                DomainProtocol.putPoint(out, store.x[i], store.y[i], store.vx[i], store.vy[i], store.mass[i]);
+                count++;
+            }
+        }
+        out.putInt(countAt, count);
+    }
+
+    /**
+     * Writes the cell block: the bodies other than the star summed into
+     * cells of summary_cell pixels, separately for the bodies that are
+     * in the left halo, the right halo, both, or neither, so a neighbour
+     * can leave out the cells whose bodies it already has as ghosts.
+     */
+    private void putCells() {
+        int plane = cols * rows;
+        for (int i = 1; i < store.count; i++) {
+            double x = store.x[i], y = store.y[i], m = store.mass[i];
+            int band = 0;
+            if (index > 0 && x < left + halo) {
+                band |= DomainProtocol.LEFT;
+            }
+            if (index < workers - 1 && x >= right - halo) {
+                band |= DomainProtocol.RIGHT;
+            }
+            int col = Math.max(0, Math.min(cols - 1, (int) ((x - left) / cellSize)));
+            int row = Math.max(0, Math.min(rows - 1, (int) (y / cellSize)));
+            int c = band * plane + row * cols + col;
+            cellMass[c] += m;
+            cellX[c] += m * x;
+            cellY[c] += m * y;
+            cellVx[c] += m * store.vx[i];
+            cellVy[c] += m * store.vy[i];
+        }
+
+        int countAt = out.position();
+        out = DomainProtocol.ensure(out, Integer.BYTES);
+        out.putInt(0);
+        int count = 0;
+        for (int c = 0; c < cellMass.length; c++) {
+            double m = cellMass[c];
+            if (m == 0) {
+                continue;
+            }
+            out = DomainProtocol.ensure(out, DomainProtocol.CELL_BYTES);
+            out.put((byte) (c / plane));
+            DomainProtocol.putPoint(out, cellX[c] / m, cellY[c] / m, cellVx[c] / m, cellVy[c] / m, m);
+            cellMass[c] = 0;
+            cellX[c] = 0;
+            cellY[c] = 0;
+            cellVx[c] = 0;
+            cellVy[c] = 0;
+            count++;
+        }
+        out.putInt(countAt, count);
+    }
+}
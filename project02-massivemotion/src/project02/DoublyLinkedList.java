@@ -2,6 +2,7 @@ package project02;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 /**
  * Class that implements a doubly linked list, a variation of
@@ -30,6 +31,29 @@ public class DoublyLinkedList<T> implements List<T>, Iterable<T> {
     private Node<T> head;
     private Node<T> tail;
     private int size;
+    private final Pool<Node<T>> nodes = new Pool<>(Pool.DEFAULT_CAPACITY, () -> new Node<>(null));
+    
+    /**
+     * Returns a node holding the given item, recycled from the node pool
+     * when one is spare.
+     */
+    private Node<T> newNode(T item) {
+        Node<T> node = nodes.acquire();
+        node.data = item;
+        node.next = null;
+        node.prev = null;
+        return node;
+    }
+    
+    /**
+     * Clears an unlinked node and hands it back to the node pool.
+     */
+    private void free(Node<T> node) {
+        node.data = null;
+        node.next = null;
+        node.prev = null;
+        nodes.release(node);
+    }
     
     /**
      * Adds an item at the specified position in the list.
@@ -49,12 +73,8 @@ public class DoublyLinkedList<T> implements List<T>, Iterable<T> {
             return;
         }
 
-        Node<T> curr = head;
-        for (int i = 0; i < pos; i++) {
-            curr = curr.next;
-        }
-        
-        Node<T> node = new Node<>(item);
+        Node<T> curr = node(pos);
+        Node<T> node = newNode(item);
         node.next = curr;
         node.prev = curr.prev;
 
@@ -75,7 +95,7 @@ public class DoublyLinkedList<T> implements List<T>, Iterable<T> {
      * @return returns true if the item is added successfully.
      */
     public boolean add(T item) {
-        Node<T> node = new Node<>(item);
+        Node<T> node = newNode(item);
 
         if (head == null) {
             head = tail = node;
@@ -102,12 +122,7 @@ public class DoublyLinkedList<T> implements List<T>, Iterable<T> {
             throw new IndexOutOfBoundsException();
         }
         
-        Node<T> curr = head;
-        for (int i = 0; i < pos; i++) {
-            curr = curr.next;
-        }
-        
-        return curr.data;
+        return node(pos).data;
     }
     
     /**
@@ -123,11 +138,42 @@ public class DoublyLinkedList<T> implements List<T>, Iterable<T> {
             throw new IndexOutOfBoundsException();
         }
 
-        Node<T> curr = head;
-        for (int i = 0; i < pos; i++) {
-            curr = curr.next;
+        Node<T> curr = node(pos);
+        T removed = curr.data;
+        unlink(curr);
+        return removed;
+    }
+    
+    /**
+     * Returns the node at the given position, walking from the head or
+     * the tail, whichever is closer.
+     * 
+     * @param pos the position of the node, which must be in range.
+     * @return the node at that position.
+     */
+    private Node<T> node(int pos) {
+        Node<T> curr;
+        if (pos < size / 2) {
+            curr = head;
+            for (int i = 0; i < pos; i++) {
+                curr = curr.next;
+            }
+        } else {
+            curr = tail;
+            for (int i = size - 1; i > pos; i--) {
+                curr = curr.prev;
+            }
         }
-
+        return curr;
+    }
+    
+    /**
+     * Unlinks the given node from its neighbors, updating head and tail
+     * when needed, and returns it to the node pool.
+     * 
+     * @param curr the node to unlink.
+     */
+    private void unlink(Node<T> curr) {
         if (curr.prev != null) {
             curr.prev.next = curr.next;
         } else {
@@ -141,7 +187,88 @@ public class DoublyLinkedList<T> implements List<T>, Iterable<T> {
         }
         
         size--;
-        return curr.data;
+        free(curr);
+    }
+    
+    /**
+     * Removes every element that matches the filter, unlinking the
+     * matching nodes in one walk from the head.
+     * 
+     * @param filter the predicate that returns true for elements to remove.
+     * @return true if any element was removed.
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        
+        Node<T> curr = head;
+        while (curr != null) {
+            Node<T> next = curr.next;
+            if (filter.test(curr.data)) {
+                unlink(curr);
+            }
+            curr = next;
+        }
+        return size != before;
+    }
+    
+    /**
+     * Removes the elements from fromIndex (inclusive) to toIndex
+     * (exclusive) by relinking around them once.
+     * 
+     * @param fromIndex the index of the first element to remove.
+     * @param toIndex one past the index of the last element to remove.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        
+        if (fromIndex == toIndex) {
+            return;
+        }
+        
+        Node<T> first = node(fromIndex);
+        Node<T> before = first.prev;
+        Node<T> after = first;
+        for (int i = fromIndex; i < toIndex; i++) {
+            Node<T> removed = after;
+            after = after.next;
+            free(removed);
+        }
+        
+        if (before != null) {
+            before.next = after;
+        } else {
+            head = after;
+        }
+        
+        if (after != null) {
+            after.prev = before;
+        } else {
+            tail = before;
+        }
+        
+        size -= toIndex - fromIndex;
+    }
+    
+    /**
+     * Adds every item of the given iterable after the tail.
+     * 
+     * @param items the items to be added.
+     * @return true if the list changed.
+     */
+    public boolean addAll(Iterable<? extends T> items) {
+        // only copy the original elements when adding the list to itself
+        int limit = items == this ? size : Integer.MAX_VALUE;
+        int added = 0;
+        
+        Iterator<? extends T> it = items.iterator();
+        while (added < limit && it.hasNext()) {
+            add(it.next());
+            added++;
+        }
+        return added > 0;
     }
     
     /**
@@ -153,6 +280,16 @@ public class DoublyLinkedList<T> implements List<T>, Iterable<T> {
         return size;
     }
     
+    /**
+     * Returns the pool this list recycles its nodes through.
+     * 
+     * @return the node pool.
+     */
+    @Override
+    public Pool<?> getNodePool() {
+        return nodes;
+    }
+    
     /**
      * Inner class that returns an iterator over the elements
      * in the list in the proper sequence.
@@ -163,6 +300,7 @@ public class DoublyLinkedList<T> implements List<T>, Iterable<T> {
     public Iterator<T> iterator() {
         return new Iterator<T>() {
             Node<T> current = head;
+            Node<T> lastReturned;
             
             /**
              * Returns true if there are more elements to iterate over.
@@ -186,10 +324,27 @@ public class DoublyLinkedList<T> implements List<T>, Iterable<T> {
                 	throw new NoSuchElementException();
                 }
                 
+                lastReturned = current;
                 T data = current.data;
                 current = current.next;
                 return data;
             }
+            
+            /**
+             * Unlinks the last element returned by next.
+             * 
+             * @throws IllegalStateException if next has not been called, or
+             * remove was already called after the last call to next.
+             */
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                
+                unlink(lastReturned);
+                lastReturned = null;
+            }
         };
     }
 }
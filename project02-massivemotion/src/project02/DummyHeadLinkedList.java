@@ -2,6 +2,7 @@ package project02;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 /**
  * A singly linked list implementation using a dummy head node.
@@ -28,16 +29,39 @@ public class DummyHeadLinkedList<T> implements List<T>, Iterable<T> {
     }
 
     private Node<T> head;  // dummy head node
+    private Node<T> tail;  // last node, or the dummy head when empty
     private int size;
+    private final Pool<Node<T>> nodes = new Pool<>(Pool.DEFAULT_CAPACITY, () -> new Node<>(null, null));
 
     /**
      * Constructs an empty DummyHeadLinkedList with a dummy head node.
      */
     public DummyHeadLinkedList() {
         head = new Node<>(null, null);
+        tail = head;
         size = 0;
     }
 
+    /**
+     * Returns a node holding the given item and linked to next, recycled
+     * from the node pool when one is spare.
+     */
+    private Node<T> newNode(T item, Node<T> next) {
+        Node<T> node = nodes.acquire();
+        node.data = item;
+        node.next = next;
+        return node;
+    }
+
+    /**
+     * Clears an unlinked node and hands it back to the node pool.
+     */
+    private void free(Node<T> node) {
+        node.data = null;
+        node.next = null;
+        nodes.release(node);
+    }
+
     /**
      * Adds an item at the specified position in the list.
      *
@@ -55,21 +79,21 @@ public class DummyHeadLinkedList<T> implements List<T>, Iterable<T> {
             prev = prev.next;
         }
 
-        prev.next = new Node<>(item, prev.next);
+        prev.next = newNode(item, prev.next);
+        if (prev == tail) {
+            tail = prev.next;
+        }
         size++;
     }
 
     /**
-     * Adds the item at the end of the list.
+     * Adds the item at the end of the list, after the tail.
      *
      * @return true if the item was added successfully
      */
     public boolean add(T item) {
-        Node<T> curr = head;
-        while (curr.next != null) {
-            curr = curr.next;
-        }
-        curr.next = new Node<>(item, null);
+        tail.next = newNode(item, null);
+        tail = tail.next;
         size++;
         return true;
     }
@@ -110,10 +134,98 @@ public class DummyHeadLinkedList<T> implements List<T>, Iterable<T> {
             prev = prev.next;
         }
 
-        T removed = prev.next.data;
-        prev.next = prev.next.next;
+        Node<T> removed = prev.next;
+        prev.next = removed.next;
+        if (removed == tail) {
+            tail = prev;
+        }
         size--;
-        return removed;
+
+        T data = removed.data;
+        free(removed);
+        return data;
+    }
+
+    /**
+     * Removes every element that matches the filter, unlinking the
+     * matching nodes in one walk from the dummy head.
+     *
+     * @param filter the predicate that returns true for elements to remove
+     * @return true if any element was removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+
+        Node<T> prev = head;
+        while (prev.next != null) {
+            if (filter.test(prev.next.data)) {
+                Node<T> removed = prev.next;
+                prev.next = removed.next;
+                free(removed);
+                size--;
+            } else {
+                prev = prev.next;
+            }
+        }
+        tail = prev;
+        return size != before;
+    }
+
+    /**
+     * Removes the elements from fromIndex (inclusive) to toIndex
+     * (exclusive) by relinking around them once.
+     *
+     * @param fromIndex the index of the first element to remove
+     * @param toIndex   one past the index of the last element to remove
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        Node<T> prev = head;
+        for (int i = 0; i < fromIndex; i++) {
+            prev = prev.next;
+        }
+
+        Node<T> curr = prev.next;
+        for (int i = fromIndex; i < toIndex; i++) {
+            Node<T> removed = curr;
+            curr = curr.next;
+            free(removed);
+        }
+
+        prev.next = curr;
+        if (curr == null) {
+            tail = prev;
+        }
+        size -= toIndex - fromIndex;
+    }
+
+    /**
+     * Adds every item of the given iterable after the tail, in time
+     * proportional to the number of items added.
+     *
+     * @param items the items to be added
+     * @return true if the list changed
+     */
+    public boolean addAll(Iterable<? extends T> items) {
+        // only copy the original elements when adding the list to itself
+        int limit = items == this ? size : Integer.MAX_VALUE;
+        int added = 0;
+
+        Node<T> last = tail;
+
+        Iterator<? extends T> it = items.iterator();
+        while (added < limit && it.hasNext()) {
+            last.next = newNode(it.next(), null);
+            last = last.next;
+            size++;
+            added++;
+        }
+        tail = last;
+        return added > 0;
     }
 
     /**
@@ -125,6 +237,16 @@ public class DummyHeadLinkedList<T> implements List<T>, Iterable<T> {
         return size;
     }
 
+    /**
+     * Returns the pool this list recycles its nodes through.
+     *
+     * @return the node pool
+     */
+    @Override
+    public Pool<?> getNodePool() {
+        return nodes;
+    }
+
     /**
      * Inner class that returns an iterator over the elements
      * in the list in the proper sequence.
@@ -135,6 +257,8 @@ public class DummyHeadLinkedList<T> implements List<T>, Iterable<T> {
     public Iterator<T> iterator() {
         return new Iterator<T>() {
             private Node<T> current = head.next;
+            private Node<T> lastReturned;
+            private Node<T> beforeLast = head;
 
             @Override
             public boolean hasNext() {
@@ -146,10 +270,28 @@ public class DummyHeadLinkedList<T> implements List<T>, Iterable<T> {
                 if (!hasNext()) {
                     throw new NoSuchElementException();
                 }
+                if (lastReturned != null) {
+                    beforeLast = lastReturned;
+                }
+                lastReturned = current;
                 T data = current.data;
                 current = current.next;
                 return data;
             }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                beforeLast.next = current;
+                if (current == null) {
+                    tail = beforeLast;
+                }
+                free(lastReturned);
+                lastReturned = null;
+                size--;
+            }
         };
     }
 }
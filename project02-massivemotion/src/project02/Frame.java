@@ -0,0 +1,57 @@
+package project02;
+
+/**
+ * Class holding a snapshot of every body's position, size, and color at
+ * the end of one tick, which is everything the panel needs to draw.
+ *
+ * A frame is written only by the simulation thread before it is
+ * published, and is never changed while the panel may be reading it.
+ * The arrays are reused when the frame is recycled for a later tick, so
+ * taking snapshots does not allocate once they are large enough.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class Frame {
+
+    double[] x = new double[0], y = new double[0];
+    int[] size = new int[0];
+    byte[] palette = new byte[0];
+    int count;
+    long tick = -1;
+
+    /**
+     * Makes sure the frame can hold n bodies, growing the arrays if
+     * needed, and sets the body count to n.
+     *
+     * @param n the number of bodies the frame will hold.
+     */
+    void resize(int n) {
+        if (x.length < n) {
+            int capacity = Math.max(n, x.length * 2);
+            x = new double[capacity];
+            y = new double[capacity];
+            size = new int[capacity];
+            palette = new byte[capacity];
+        }
+        count = n;
+    }
+
+    /**
+     * Returns the number of bodies in this frame.
+     *
+     * @return the body count.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the tick this frame was taken at, or -1 for an empty frame.
+     *
+     * @return the tick number.
+     */
+    public long getTick() {
+        return tick;
+    }
+}
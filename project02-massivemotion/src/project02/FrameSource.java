@@ -0,0 +1,22 @@
+package project02;
+
+/**
+ * Interface for anything the panel can draw frames from: a running
+ * simulation or a recorded one being played back.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public interface FrameSource {
+
+    /**
+     * Returns the newest frame to draw, handing the caller's current
+     * frame back for reuse. If there is nothing newer, the caller's
+     * frame is returned unchanged. Only one thread (the painter) may
+     * call this.
+     *
+     * @param front the frame the caller is done with.
+     * @return the frame to draw.
+     */
+    public Frame acquire(Frame front);
+}
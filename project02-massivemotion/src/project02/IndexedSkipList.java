@@ -0,0 +1,402 @@
+package project02;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Class that implements a list as an indexable skip list. Every node
+ * has a random number of levels, and every forward link also stores its
+ * width: how many positions it skips. Finding a position walks down from
+ * the top level, adding up widths, so get, add, and remove by position
+ * are O(log n) expected instead of a walk from the head.
+ *
+ * The link out of the last node on each level points to null and has
+ * the width to one past the end of the list, so the position of the last
+ * node on each level is always known. Appending uses those last nodes
+ * directly and is O(1) expected.
+ *
+ * @param <T> the type of elements stored in the list.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class IndexedSkipList<T> implements List<T>, Iterable<T> {
+
+    private static final int MAX_LEVEL = 32;
+
+    /**
+     * A private static inner class representing a node with one forward
+     * link, and its width, per level.
+     */
+    private static class Node<T> {
+        T data;
+        final Node<T>[] next;
+        final int[] width;
+
+        Node(T value, int levels) {
+            data = value;
+            next = newNodes(levels);
+            width = new int[levels];
+        }
+    }
+
+    /**
+     * Allocates an array of node references; generic arrays cannot be
+     * created directly, so this is the one unchecked cast.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] newNodes(int length) {
+        return (Node<T>[]) new Node<?>[length];
+    }
+
+    private final Node<T> head;  // sentinel at position -1 with every level
+    private final Node<T>[] last;  // the last node on each level
+    private int levels;  // the number of levels any node uses
+    private int size;
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    // scratch space for the search path of add and remove
+    private final Node<T>[] update;
+    private final int[] rank;
+
+    /**
+     * Constructs an empty IndexedSkipList.
+     */
+    public IndexedSkipList() {
+        head = new Node<>(null, MAX_LEVEL);
+        last = newNodes(MAX_LEVEL);
+        update = newNodes(MAX_LEVEL);
+        rank = new int[MAX_LEVEL];
+        clearLinks();
+    }
+
+    /**
+     * Points every level of the head to the end of an empty list.
+     */
+    private void clearLinks() {
+        for (int l = 0; l < MAX_LEVEL; l++) {
+            head.next[l] = null;
+            head.width[l] = 1;
+            last[l] = head;
+        }
+        levels = 1;
+        size = 0;
+    }
+
+    /**
+     * Picks a level count for a new node, each extra level with
+     * probability one half.
+     */
+    private int randomLevels() {
+        // xorshift64
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return 1 + Long.numberOfTrailingZeros(seed | (1L << (MAX_LEVEL - 1)));
+    }
+
+    /**
+     * Fills update and rank with the last node before the given position
+     * on every level, and that node's position.
+     */
+    private void findPath(int pos) {
+        Node<T> x = head;
+        int at = -1;
+        for (int l = levels - 1; l >= 0; l--) {
+            while (x.next[l] != null && at + x.width[l] < pos) {
+                at += x.width[l];
+                x = x.next[l];
+            }
+            update[l] = x;
+            rank[l] = at;
+        }
+        for (int l = levels; l < MAX_LEVEL; l++) {
+            update[l] = head;
+            rank[l] = -1;
+        }
+    }
+
+    /**
+     * Returns the node at the given position, which must be in range.
+     */
+    private Node<T> node(int pos) {
+        Node<T> x = head;
+        int at = -1;
+        for (int l = levels - 1; l >= 0; l--) {
+            while (x.next[l] != null && at + x.width[l] <= pos) {
+                at += x.width[l];
+                x = x.next[l];
+            }
+            if (at == pos) {
+                break;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Adds an item at the specified position in the list.
+     *
+     * @param pos the index to insert the item.
+     * @param item the item to be added.
+     * @throws IndexOutOfBoundsException if the given position is
+     * out of range.
+     */
+    public void add(int pos, T item) {
+        if (pos < 0 || pos > size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (pos == size) {
+            add(item);
+            return;
+        }
+
+        findPath(pos);
+        int h = randomLevels();
+        Node<T> node = new Node<>(item, h);
+        levels = Math.max(levels, h);
+
+        for (int l = 0; l < MAX_LEVEL; l++) {
+            Node<T> before = update[l];
+            if (l < h) {
+                // before's link of width w now splits around the new node
+                node.next[l] = before.next[l];
+                node.width[l] = rank[l] + before.width[l] + 1 - pos;
+                before.next[l] = node;
+                before.width[l] = pos - rank[l];
+                if (last[l] == before) {
+                    last[l] = node;
+                }
+            } else {
+                before.width[l]++;
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Adds the item at the end of the list, linking it after the last
+     * node of each of its levels.
+     *
+     * @return returns true if the item is added successfully.
+     */
+    public boolean add(T item) {
+        int h = randomLevels();
+        Node<T> node = new Node<>(item, h);
+        levels = Math.max(levels, h);
+
+        for (int l = 0; l < MAX_LEVEL; l++) {
+            Node<T> before = last[l];
+            if (l < h) {
+                // the width of the end link already reaches the new position
+                before.next[l] = node;
+                node.width[l] = 1;
+                last[l] = node;
+            } else {
+                before.width[l]++;
+            }
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Gets the value at the specified position of the list.
+     *
+     * @param pos the index of the value to return.
+     * @return the value at the specified position.
+     * @throws IndexOutOfBoundsException if the given position is
+     * out of range.
+     */
+    public T get(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return node(pos).data;
+    }
+
+    /**
+     * Removes and returns the element at the specified position.
+     *
+     * @param pos the index of the element to remove.
+     * @return the item removed.
+     * @throws IndexOutOfBoundsException if the given position is
+     * out of range.
+     */
+    public T remove(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        findPath(pos);
+        Node<T> node = update[0].next[0];
+        int h = node.next.length;
+
+        for (int l = 0; l < MAX_LEVEL; l++) {
+            Node<T> before = update[l];
+            if (l < h) {
+                before.next[l] = node.next[l];
+                before.width[l] += node.width[l] - 1;
+                if (last[l] == node) {
+                    last[l] = before;
+                }
+            } else {
+                before.width[l]--;
+            }
+        }
+
+        while (levels > 1 && head.next[levels - 1] == null) {
+            levels--;
+        }
+        size--;
+        return node.data;
+    }
+
+    /**
+     * Removes every element that matches the filter in one walk along
+     * the bottom level, relinking every level of the kept nodes as it
+     * goes.
+     *
+     * @param filter the predicate that returns true for elements to remove.
+     * @return true if any element was removed.
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        Node<T> x = head.next[0];
+        clearLinks();
+
+        // rank holds the position of last[l] while the kept nodes are relinked
+        Arrays.fill(rank, -1);
+        while (x != null) {
+            Node<T> next = x.next[0];
+            if (!filter.test(x.data)) {
+                int h = x.next.length;
+                for (int l = 0; l < h; l++) {
+                    last[l].next[l] = x;
+                    last[l].width[l] = size - rank[l];
+                    x.next[l] = null;
+                    last[l] = x;
+                    rank[l] = size;
+                }
+                levels = Math.max(levels, h);
+                size++;
+            }
+            x = next;
+        }
+
+        for (int l = 0; l < MAX_LEVEL; l++) {
+            last[l].width[l] = size - rank[l];
+        }
+        return size != before;
+    }
+
+    /**
+     * Removes the elements from fromIndex (inclusive) to toIndex
+     * (exclusive), one O(log n) removal at a time.
+     *
+     * @param fromIndex the index of the first element to remove.
+     * @param toIndex one past the index of the last element to remove.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        for (int i = fromIndex; i < toIndex; i++) {
+            remove(fromIndex);
+        }
+    }
+
+    /**
+     * Adds every item of the given iterable after the last element.
+     *
+     * @param items the items to be added.
+     * @return true if the list changed.
+     */
+    public boolean addAll(Iterable<? extends T> items) {
+        // only copy the original elements when adding the list to itself
+        int limit = items == this ? size : Integer.MAX_VALUE;
+        int added = 0;
+
+        Iterator<? extends T> it = items.iterator();
+        while (added < limit && it.hasNext()) {
+            add(it.next());
+            added++;
+        }
+        return added > 0;
+    }
+
+    /**
+     * Returns the number of items currently stored in the list.
+     *
+     * @return size of the list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inner class that returns an iterator over the elements
+     * in the list in the proper sequence, following the bottom level.
+     *
+     * @return an iterator for iterating through the list of elements.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Node<T> current = head.next[0];
+            private int index;  // the position of current
+            private boolean canRemove;
+
+            /**
+             * Returns true if there are more elements to iterate over.
+             *
+             * @return true if there are more elements to iterate over.
+             */
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            /**
+             * Returns the next element in the iteration.
+             *
+             * @return the next element in the list.
+             * @throws NoSuchElementException if no more elements remain.
+             */
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                T data = current.data;
+                current = current.next[0];
+                index++;
+                canRemove = true;
+                return data;
+            }
+
+            /**
+             * Removes the last element returned by next by its position.
+             *
+             * @throws IllegalStateException if next has not been called, or
+             * remove was already called after the last call to next.
+             */
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+
+                IndexedSkipList.this.remove(--index);
+                canRemove = false;
+            }
+        };
+    }
+}
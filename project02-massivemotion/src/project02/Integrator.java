@@ -0,0 +1,32 @@
+package project02;
+
+/**
+ * Interface for the schemes that move bodies under gravity, selected by
+ * the integrator property. An integrator works on the bodies as parallel
+ * arrays, as held by a BodyStore or copied out of a list, with the star
+ * at index 0.
+ *
+ * Times are in ticks, the unit the simulation's velocities and gravity
+ * are given in, and a step may be a fraction of a tick.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public interface Integrator {
+
+    /**
+     * Advances the first n bodies by dt ticks, updating their positions
+     * and velocities in place.
+     *
+     * @param x the x-coordinates of the bodies.
+     * @param y the y-coordinates of the bodies.
+     * @param vx the x-velocities of the bodies.
+     * @param vy the y-velocities of the bodies.
+     * @param m the masses of the bodies, which are not changed.
+     * @param n the number of bodies.
+     * @param dt the length of the step in ticks.
+     * @return the number of force evaluations, counting one for every
+     * body whose acceleration was computed.
+     */
+    public long step(double[] x, double[] y, double[] vx, double[] vy, double[] m, int n, double dt);
+}
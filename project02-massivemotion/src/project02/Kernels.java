@@ -0,0 +1,77 @@
+package project02;
+
+/**
+ * Interface for the inner loops the simulation runs over its primitive
+ * body arrays, selected by the simd property: ScalarKernels with plain
+ * loops, or VectorKernels with the jdk.incubator.vector API.
+ *
+ * axpy and offScreen work on every element on its own, so both kinds
+ * give the same result bit for bit. gravity sums over all other bodies,
+ * and a VectorKernels sums them in a different order for each vector
+ * width, so it differs from the scalar sum in the last bits.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public interface Kernels {
+
+    /**
+     * Adds a times x to y, for the elements from (inclusive) to to
+     * (exclusive). Used for both the kick, v += a dt, and the drift,
+     * x += v dt.
+     *
+     * @param a the factor.
+     * @param x the array to add a multiple of.
+     * @param y the array added to.
+     * @param from the first element.
+     * @param to one past the last element.
+     */
+    public void axpy(double a, double[] x, double[] y, int from, int to);
+
+    /**
+     * Flags the bodies from (inclusive) to to (exclusive) that are
+     * further than their own size outside of the window, the test
+     * Simulation culls bodies by.
+     *
+     * @param x the x-coordinates of the bodies.
+     * @param y the y-coordinates of the bodies.
+     * @param size the sizes of the bodies.
+     * @param width the width of the window.
+     * @param height the height of the window.
+     * @param off the array receiving true for every body off screen and
+     * false for every other.
+     * @param from the first body.
+     * @param to one past the last body.
+     * @return the number of bodies off screen.
+     */
+    public int offScreen(double[] x, double[] y, int[] size, double width, double height, boolean[] off,
+            int from, int to);
+
+    /**
+     * Computes the acceleration on the bodies from (inclusive) to to
+     * (exclusive) by summing the pull of every other of the first n
+     * bodies directly, with the same softened force as BarnesHutTree.
+     * Safe to call from several threads at once for disjoint ranges.
+     *
+     * @param x the x-coordinates of the bodies.
+     * @param y the y-coordinates of the bodies.
+     * @param m the masses of the bodies.
+     * @param n the number of bodies.
+     * @param gravity the gravitational constant.
+     * @param softening2 the square of the softening length.
+     * @param from the first body to compute.
+     * @param to one past the last body to compute.
+     * @param ax the array receiving the x-direction acceleration.
+     * @param ay the array receiving the y-direction acceleration.
+     */
+    public void gravity(double[] x, double[] y, double[] m, int n, double gravity, double softening2,
+            int from, int to, double[] ax, double[] ay);
+
+    /**
+     * Returns a short description of the kernels, such as "scalar" or
+     * "vector 256-bit".
+     *
+     * @return the description.
+     */
+    public String describe();
+}
@@ -0,0 +1,89 @@
+package project02;
+
+/**
+ * Integrator using the drift-kick-drift leapfrog: every body drifts for
+ * half a step, is kicked by the gravity at that midpoint for the whole
+ * step, and drifts for the other half. It is the position form of
+ * velocity Verlet, second order and symplectic, so the energy error
+ * stays bounded over long runs instead of drifting, and like the Euler
+ * scheme it takes one force evaluation per body per step.
+ *
+ * The accelerations are computed over the stepper's threads from a
+ * BarnesHutTree built once per step at the midpoint positions, and the
+ * kicks and drifts run on the given Kernels.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class LeapfrogIntegrator implements Integrator {
+
+    private final BarnesHutTree tree;
+    private final ParallelStepper stepper;
+    private final Kernels kernels;
+    private double[] ax = new double[0], ay = new double[0];
+
+    // the arrays of the current step, for the ranges below
+    private double[] x, y, vx, vy;
+    private double dt;
+    private final ParallelStepper.Range kick = this::kick;
+    private final ParallelStepper.Range drift = this::drift;
+
+    /**
+     * Constructs a leapfrog integrator.
+     *
+     * @param tree the tree to compute gravity with.
+     * @param stepper the threads to split the bodies over.
+     * @param kernels the kernels to kick and drift with.
+     */
+    public LeapfrogIntegrator(BarnesHutTree tree, ParallelStepper stepper, Kernels kernels) {
+        this.tree = tree;
+        this.stepper = stepper;
+        this.kernels = kernels;
+    }
+
+    @Override
+    public long step(double[] x, double[] y, double[] vx, double[] vy, double[] m, int n, double dt) {
+        if (ax.length < n) {
+            ax = new double[Math.max(n, ax.length * 2)];
+            ay = new double[ax.length];
+        }
+        this.x = x;
+        this.y = y;
+        this.vx = vx;
+        this.vy = vy;
+
+        this.dt = dt / 2;
+        stepper.forRange(n, drift);
+
+        this.dt = dt;
+        tree.build(x, y, m, n);
+        stepper.forRange(n, kick);
+
+        this.dt = dt / 2;
+        stepper.forRange(n, drift);
+        return n;
+    }
+
+    /**
+     * Computes the gravity on a range of bodies and kicks them by it.
+     *
+     * @param from the first body index.
+     * @param to one past the last body index.
+     */
+    private void kick(int from, int to) {
+        tree.computeAccelerations(from, to, ax, ay);
+        kernels.axpy(dt, ax, vx, from, to);
+        kernels.axpy(dt, ay, vy, from, to);
+    }
+
+    /**
+     * Moves a range of bodies by their velocity.
+     *
+     * @param from the first body index.
+     * @param to one past the last body index.
+     */
+    private void drift(int from, int to) {
+        kernels.axpy(dt, vx, x, from, to);
+        kernels.axpy(dt, vy, y, from, to);
+    }
+}
@@ -2,6 +2,7 @@ package project02;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 /**
  * Class that mimics the basic built-in singly linked list, storing
@@ -14,7 +15,9 @@ import java.util.NoSuchElementException;
  */
 public class LinkedList<T> implements List<T>, Iterable<T> {
     private Node<T> head;
+    private Node<T> tail;
     private int size = 0;
+    private final Pool<Node<T>> nodes = new Pool<>(Pool.DEFAULT_CAPACITY, () -> new Node<>(null));
     
     /**
      * A private static inner class representing a node in the linked list.
@@ -29,6 +32,26 @@ public class LinkedList<T> implements List<T>, Iterable<T> {
         }
     }
     
+    /**
+     * Returns a node holding the given element, recycled from the node
+     * pool when one is spare.
+     */
+    private Node<T> newNode(T element) {
+        Node<T> node = nodes.acquire();
+        node.data = element;
+        node.next = null;
+        return node;
+    }
+    
+    /**
+     * Clears an unlinked node and hands it back to the node pool.
+     */
+    private void free(Node<T> node) {
+        node.data = null;
+        node.next = null;
+        nodes.release(node);
+    }
+    
     /**
      * Adds an item at the specified position in the list.
      * 
@@ -42,7 +65,7 @@ public class LinkedList<T> implements List<T>, Iterable<T> {
             throw new IndexOutOfBoundsException();
         }
 
-        Node<T> node = new Node<>(element);
+        Node<T> node = newNode(element);
 
         if (index == 0) {
             node.next = head;
@@ -56,26 +79,25 @@ public class LinkedList<T> implements List<T>, Iterable<T> {
             node.next = prev.next;
             prev.next = node;
         }
+        if (node.next == null) {
+            tail = node;
+        }
         size++;
     }
     
     /**
-     * Adds the item at the end of the list.
+     * Adds the item at the end of the list, after the tail.
      * 
      * @return returns true if the item is added successfully.
      */
     public boolean add(T element) {
+        Node<T> node = newNode(element);
         if (size == 0) {
-            head = new Node<>(element);
+            head = node;
         } else {
-            Node<T> node = head;
-            
-            while (node.next != null) {
-                node = node.next;
-            }
-            
-            node.next = new Node<>(element);
+            tail.next = node;
         }
+        tail = node;
         size++;
         return true;
     }
@@ -114,23 +136,137 @@ public class LinkedList<T> implements List<T>, Iterable<T> {
             throw new IndexOutOfBoundsException();
         }
         
-        T removed;
+        Node<T> removed;
 
         if (index == 0) {
-            removed = head.data;
+            removed = head;
             head = head.next;
+            if (head == null) {
+                tail = null;
+            }
         } else {
             Node<T> prev = head;
             for (int i = 0; i < index - 1; i++) {
                 prev = prev.next;
             }
             
-            removed = prev.next.data;
+            removed = prev.next;
             prev.next = prev.next.next;
+            if (prev.next == null) {
+                tail = prev;
+            }
         }
 
         size--;
-        return removed;
+        T data = removed.data;
+        free(removed);
+        return data;
+    }
+    
+    /**
+     * Removes every element that matches the filter, unlinking the
+     * matching nodes in one walk from the head.
+     * 
+     * @param filter the predicate that returns true for elements to remove.
+     * @return true if any element was removed.
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        
+        while (head != null && filter.test(head.data)) {
+            Node<T> removed = head;
+            head = head.next;
+            free(removed);
+            size--;
+        }
+        
+        tail = head;
+        if (head != null) {
+            Node<T> prev = head;
+            while (prev.next != null) {
+                if (filter.test(prev.next.data)) {
+                    Node<T> removed = prev.next;
+                    prev.next = removed.next;
+                    free(removed);
+                    size--;
+                } else {
+                    prev = prev.next;
+                }
+            }
+            tail = prev;
+        }
+        
+        return size != before;
+    }
+    
+    /**
+     * Removes the elements from fromIndex (inclusive) to toIndex
+     * (exclusive) by relinking around them once.
+     * 
+     * @param fromIndex the index of the first element to remove.
+     * @param toIndex one past the index of the last element to remove.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        
+        if (fromIndex == toIndex) {
+            return;
+        }
+        
+        Node<T> prev = null;
+        Node<T> curr = head;
+        for (int i = 0; i < fromIndex; i++) {
+            prev = curr;
+            curr = curr.next;
+        }
+        for (int i = fromIndex; i < toIndex; i++) {
+            Node<T> removed = curr;
+            curr = curr.next;
+            free(removed);
+        }
+        
+        if (prev == null) {
+            head = curr;
+        } else {
+            prev.next = curr;
+        }
+        if (curr == null) {
+            tail = prev;
+        }
+        size -= toIndex - fromIndex;
+    }
+    
+    /**
+     * Adds every item of the given iterable after the tail, in time
+     * proportional to the number of items added.
+     * 
+     * @param items the items to be added.
+     * @return true if the list changed.
+     */
+    public boolean addAll(Iterable<? extends T> items) {
+        // only copy the original elements when adding the list to itself
+        int limit = items == this ? size : Integer.MAX_VALUE;
+        int added = 0;
+        
+        Node<T> last = tail;
+        
+        Iterator<? extends T> it = items.iterator();
+        while (added < limit && it.hasNext()) {
+            Node<T> node = newNode(it.next());
+            if (last == null) {
+                head = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size++;
+            added++;
+        }
+        tail = last;
+        return added > 0;
     }
 
     /**
@@ -142,6 +278,16 @@ public class LinkedList<T> implements List<T>, Iterable<T> {
         return size;
     }
     
+    /**
+     * Returns the pool this list recycles its nodes through.
+     * 
+     * @return the node pool.
+     */
+    @Override
+    public Pool<?> getNodePool() {
+        return nodes;
+    }
+    
     /**
      * Inner class that returns an iterator over the elements
      * in the list in the proper sequence.
@@ -152,6 +298,8 @@ public class LinkedList<T> implements List<T>, Iterable<T> {
     public Iterator<T> iterator() {
         return new Iterator<T>() {
             private Node<T> current = head;
+            private Node<T> lastReturned;
+            private Node<T> beforeLast;
             
             /**
              * Returns true if there are more elements to iterate over.
@@ -173,10 +321,39 @@ public class LinkedList<T> implements List<T>, Iterable<T> {
             public T next() {
                 if (!hasNext())
                     throw new NoSuchElementException();
+                if (lastReturned != null) {
+                    beforeLast = lastReturned;
+                }
+                lastReturned = current;
                 T data = current.data;
                 current = current.next;
                 return data;
             }
+            
+            /**
+             * Unlinks the last element returned by next.
+             * 
+             * @throws IllegalStateException if next has not been called, or
+             * remove was already called after the last call to next.
+             */
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                
+                if (beforeLast == null) {
+                    head = current;
+                } else {
+                    beforeLast.next = current;
+                }
+                if (current == null) {
+                    tail = beforeLast;
+                }
+                free(lastReturned);
+                lastReturned = null;
+                size--;
+            }
         };
     }
 }
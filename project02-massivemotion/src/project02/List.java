@@ -1,6 +1,7 @@
 package project02;
 
 import java.util.Iterator;
+import java.util.function.Predicate;
 
 /**
  * Interface that defines generic list operations: adding,
@@ -51,6 +52,36 @@ public interface List<T> extends Iterable<T>{
      */
     public T remove (int index) throws IndexOutOfBoundsException;
     
+    /**
+     * Removes every element that matches the filter in a single pass
+     * over the list. The filter is called exactly once for each element,
+     * in list order, so it may keep track of the element's index.
+     * 
+     * @param filter the predicate that returns true for elements to remove.
+     * @return true if any element was removed.
+     */
+    public boolean removeIf (Predicate<? super T> filter);
+    
+    /**
+     * Removes the elements from fromIndex (inclusive) to toIndex
+     * (exclusive), shifting or relinking the rest only once.
+     * 
+     * @param fromIndex the index of the first element to remove.
+     * @param toIndex one past the index of the last element to remove.
+     * @throws IndexOutOfBoundsException if fromIndex is negative, toIndex
+     * is greater than the size, or fromIndex is greater than toIndex.
+     */
+    public void removeRange (int fromIndex, int toIndex) throws IndexOutOfBoundsException;
+    
+    /**
+     * Adds every item of the given iterable at the end of the list, in
+     * iteration order.
+     * 
+     * @param items the items to be added.
+     * @return true if the list changed.
+     */
+    public boolean addAll (Iterable<? extends T> items);
+    
     /**
      * Returns the number of items currently stored in the list.
      * 
@@ -58,9 +89,20 @@ public interface List<T> extends Iterable<T>{
      */
     public int size ();
     
+    /**
+     * Returns the pool this list recycles its nodes through, or null if
+     * the list does not allocate nodes.
+     * 
+     * @return the node pool, or null.
+     */
+    public default Pool<?> getNodePool () {
+        return null;
+    }
+    
     /**
      * Anonymous inner class that returns an iterator over the elements
-     * in the list in the proper sequence.
+     * in the list in the proper sequence. The iterator supports remove,
+     * which unlinks or removes the last returned element.
      * 
      * @return an iterator for iterating through the list of elements.
      */
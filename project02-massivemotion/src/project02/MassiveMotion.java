@@ -1,12 +1,18 @@
 package project02;
 
 
-import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Random;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Paths;
 import javax.swing.Timer;
 
 import javax.swing.JFrame;
@@ -16,13 +22,39 @@ import javax.swing.JPanel;
  * The main driver for the project, a Massive Motion class that
  * simulates comets revolving around a central star at random
  * velocities, holding these as objects in a specified list type:
- * SinglyLinkedList, DoublyLinkedList, and DummyHeadLinkedList. This
+ * SinglyLinkedList, DoublyLinkedList, and DummyHeadLinkedList, or as
+ * primitive arrays in a BodyStore when storage is set to soa, or
+ * outside the heap in an OffHeapBodyStore when it is set to offheap. This
  * class then continuously updates and repaints the objects using a 
  * timer. Furthermore, reading configurations such as the window size
  * and velocity from a property file.
  * 
+ * The simulation itself lives in Simulation and runs on its own
+ * SimulationThread at tick_rate ticks per second. This panel repaints
+ * at render_rate frames per second from the newest published Frame,
+ * so a slow paint drops frames instead of slowing the simulation.
+ * Frames are drawn by a SpriteRenderer unless renderer is set to
+ * shapes, which calls fillOval for every body. Above lod_threshold
+ * bodies the SpriteRenderer draws a density heatmap instead, keeping
+ * circles only for the star and bodies larger than lod_min_size.
+ * The heatmap is binned on render_threads threads, by default a quarter
+ * of the processors, separate from the threads the simulation uses.
+ * 
+ * When workers is set above 1, the thread instead drives a
+ * DomainCoordinator, which splits the window into that many strips
+ * simulated by separate worker processes and assembles each frame from
+ * the bodies they send back.
+ * 
+ * Started with --replay, the panel instead plays back a trajectory
+ * recorded with record_file through a TrajectoryPlayer, at replay_rate
+ * recorded frames per second. Space pauses, the left and right arrows
+ * play backwards and forwards, the up and down arrows double and halve
+ * the speed, Home and End jump to either end, and clicking or dragging
+ * across the panel scrubs to that point of the recording.
+ * 
  * Visually, there is one red central star and smaller black "comets"
- * that move across the screen.
+ * that move across the screen, pulled by the gravity of every other
+ * body through a Barnes-Hut quadtree.
  * 
  * @Author: Oliver Reyes
  * @version 2.0
@@ -31,11 +63,17 @@ public class MassiveMotion extends JPanel implements ActionListener {
 
     private static final long serialVersionUID = 1786650193070286570L;
 	
-    private int windowWidth,windowHeight, bodySize, bodyVelocity, timerDelay;
-    private double genX, genY;
+    private int windowWidth,windowHeight, timerDelay;
 
-    private List<CelestialBody> bodies;
-    private Random random = new Random();
+    private FrameSource source;
+    private World world;
+    private SimulationThread simulationThread;
+    private TrajectoryPlayer player;
+    private Frame frame = new Frame();
+    private SpriteRenderer renderer;
+    private ParallelStepper renderStepper;
+    private SimulationMetrics metrics;
+    private boolean jfrEvents;
     private Timer tm;
     
     /**
@@ -46,136 +84,260 @@ public class MassiveMotion extends JPanel implements ActionListener {
      * @param propertyFile the name of the property file to read.
      */
     public MassiveMotion(String propertyFile) {
-    	PropertyReader reader = new PropertyReader(propertyFile);
-    	
+        this(new PropertyReader(propertyFile), (Checkpoint) null);
+    }
+
+    /**
+     * Constructs a MassiveMotion panel that continues the run saved
+     * in the given checkpoint, with the configuration saved in it.
+     * 
+     * @param checkpoint the checkpoint to continue from.
+     */
+    public MassiveMotion(Checkpoint checkpoint) {
+        this(new PropertyReader(checkpoint.getConfig()), checkpoint);
+    }
+
+    private MassiveMotion(PropertyReader reader, Checkpoint checkpoint) {
         timerDelay = reader.getInt("timer_delay", 75);
-        windowWidth = reader.getInt("window_size_x", 1024);
-        windowHeight = reader.getInt("window_size_y", 768);
-        genX = reader.getDouble("gen_x", 0.06);
-        genY = reader.getDouble("gen_y", 0.06);
-        bodySize = reader.getInt("body_size", 10);
-        bodyVelocity = reader.getInt("body_velocity", 3);
-
-        String listType = reader.getProperties().getProperty("list", "arraylist").toLowerCase();
-        if (listType.equals("single")) {
-            bodies = new LinkedList<>();
-        } else if (listType.equals("double")) {
-            bodies = new DoublyLinkedList<>();
-        } else if (listType.equals("dummyhead")) {
-            bodies = new DummyHeadLinkedList<>();
-        } else {
-            bodies = new ArrayList<>();
-        }
-        
-        double sx = reader.getDouble("star_position_x", windowWidth / 2.0);
-        double sy = reader.getDouble("star_position_y", windowHeight / 2.0);
-        double svx = reader.getDouble("star_velocity_x", 0);
-        double svy = reader.getDouble("star_velocity_y", 0);
-        int sSize = reader.getInt("star_size", 30);
+        double tickRate = reader.getDouble("tick_rate", 1000.0 / timerDelay);
         
-        bodies.add(new CelestialBody(sx, sy, sSize, svx, svy, Color.RED));
+        World simulation = null;
+        if (checkpoint != null) {
+            simulation = Simulation.restore(checkpoint);
+        } else if (reader.getInt("workers", 1) > 1) {
+            try {
+                simulation = new DomainCoordinator(reader, true);
+            } catch (IOException e) {
+                System.err.println("Running in one process, cannot start the workers: " + e.getMessage());
+            }
+        }
+        if (simulation == null) {
+            simulation = new Simulation(reader);
+        }
+        world = simulation;
+        simulationThread = new SimulationThread(simulation, tickRate);
+        simulationThread.start();
+        source = simulationThread;
+        metrics = simulation.getMetrics();
+
+        setUp(reader, simulation.getWidth(), simulation.getHeight());
+    }
 
+    /**
+     * Constructs a MassiveMotion panel that plays back a recorded
+     * trajectory, drawn with the settings in the property file.
+     * 
+     * @param player the player of the recorded trajectory.
+     * @param propertyFile the name of the property file to read.
+     */
+    public MassiveMotion(TrajectoryPlayer player, String propertyFile) {
+        PropertyReader reader = new PropertyReader(propertyFile);
+        player.setSpeed(reader.getDouble("replay_rate", 30));
+        this.player = player;
+        source = player;
+
+        setUp(reader, player.getReader().getWidth(), player.getReader().getHeight());
+        addReplayControls(player);
+    }
+
+    /**
+     * Creates the renderer and the repaint timer and sizes the panel.
+     * 
+     * @param reader the configuration to read the render settings from.
+     * @param width the width of the simulated area.
+     * @param height the height of the simulated area.
+     */
+    private void setUp(PropertyReader reader, int width, int height) {
+        double renderRate = reader.getDouble("render_rate", 60);
+        jfrEvents = Boolean.parseBoolean(reader.getProperties().getProperty("jfr_events", "false").trim());
+        if (!reader.getProperties().getProperty("renderer", "sprite").trim().equalsIgnoreCase("shapes")) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            renderStepper = new ParallelStepper(reader.getInt("render_threads", Math.max(1, processors / 4)));
+            renderer = new SpriteRenderer(renderStepper,
+                reader.getInt("lod_threshold", 200000), reader.getInt("lod_min_size", reader.getInt("body_size", 10)));
+        }
+
+        windowWidth = width;
+        windowHeight = height;
         setPreferredSize(new Dimension(windowWidth, windowHeight));
-        tm = new Timer(timerDelay, this);
+        
+        tm = new Timer((int) Math.max(1, 1000 / renderRate), this);
         tm.start();
     }
+
+    /**
+     * Adds the keyboard and mouse controls for playing back a recording.
+     * 
+     * @param player the player to control.
+     */
+    private void addReplayControls(TrajectoryPlayer player) {
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                double speed = player.getSpeed();
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_SPACE:
+                        player.setPaused(!player.isPaused());
+                        break;
+                    case KeyEvent.VK_LEFT:
+                        player.setSpeed(-Math.abs(speed));
+                        player.setPaused(false);
+                        break;
+                    case KeyEvent.VK_RIGHT:
+                        player.setSpeed(Math.abs(speed));
+                        player.setPaused(false);
+                        break;
+                    case KeyEvent.VK_UP:
+                        player.setSpeed(speed * 2);
+                        break;
+                    case KeyEvent.VK_DOWN:
+                        player.setSpeed(speed / 2);
+                        break;
+                    case KeyEvent.VK_HOME:
+                        player.seek(0);
+                        break;
+                    case KeyEvent.VK_END:
+                        player.seek(player.getFrameCount() - 1);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+
+        MouseAdapter scrub = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                mouseDragged(e);
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                player.seek((int) ((long) e.getX() * player.getFrameCount() / Math.max(1, getWidth())));
+            }
+        };
+        addMouseListener(scrub);
+        addMouseMotionListener(scrub);
+    }
     
     /**
-     * Draws all the celestial bodies that are currently displayed in the
-     * simulation.
+     * Draws all the celestial bodies in the newest frame published by
+     * the simulation thread or the trajectory player, and records the
+     * time taken in the simulation's paint histogram.
      * 
      * @param g the Graphics object used for drawing.
      */
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        for (CelestialBody body : bodies) {
-            g.setColor(body.getColor());
-            g.fillOval((int) (body.getX() - body.getSize() / 2.0), (int) (body.getY() - body.getSize() / 2.0), body.getSize(), body.getSize());
+        PaintEvent event = jfrEvents ? new PaintEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+
+        frame = source.acquire(frame);
+        draw(g);
+
+        if (metrics != null) {
+            metrics.recordPaint(System.nanoTime() - start);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.tick = frame.tick;
+            event.bodies = frame.count;
+            event.commit();
+        }
+    }
+
+    /**
+     * Draws the bodies of the current frame.
+     * 
+     * @param g the Graphics object used for drawing.
+     */
+    private void draw(Graphics g) {
+        if (renderer != null) {
+            g.drawImage(renderer.render(frame, getWidth(), getHeight(), getBackground()), 0, 0, null);
+            return;
+        }
+        
+        for (int i = 0; i < frame.count; i++) {
+            int size = frame.size[i];
+            g.setColor(PaletteColors.color(frame.palette[i]));
+            g.fillOval((int) (frame.x[i] - size / 2.0), (int) (frame.y[i] - size / 2.0), size, size);
         }
     }
     
     /**
-     * Updates the position of all celestial bodies, removes off-screen
-     * bodies, and occasionally spawns new ones at the edges.
+     * Repaints the panel; the simulation advances on its own thread.
      * 
-     * @param e the ActionEvent triggered by the timer.
+     * @param e the ActionEvent triggered by the render timer.
      */
     @Override
     public void actionPerformed(ActionEvent e) {
-        for (CelestialBody body : bodies) {
-        	body.setX(body.getX() + body.getVx());
-            body.setY(body.getY() + body.getVy());
-        }
-        
-        for (int i = bodies.size() - 1; i > 0; i--) {
-            CelestialBody b = bodies.get(i);
-            if (b.getX() < -b.getSize() || b.getX() > windowWidth + b.getSize()
-                || b.getY() < -b.getSize() || b.getY() > windowHeight + b.getSize()) {
-                bodies.remove(i);
+        repaint();
+    }
+    
+    /**
+     * Stops repainting, stops the simulation thread and then closes the
+     * simulation, which writes out its last checkpoint and recorded
+     * frames and stops any worker processes, or closes the trajectory
+     * being played, and releases the threads the panel holds.
+     */
+    public void close() {
+        tm.stop();
+        if (simulationThread != null) {
+            try {
+                simulationThread.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            world.close();
         }
-        
-        if (random.nextDouble() < genX || random.nextDouble() < genY) {
-            double x, y, vx, vy;
-
-            boolean horizontal = random.nextBoolean();
-            if (horizontal) {
-                x = random.nextDouble() * windowWidth;
-                if (random.nextBoolean()) { // top
-                    y = 0;
-                    vy = 1 + random.nextInt(bodyVelocity);
-                } else { // bottom
-                    y = windowHeight;
-                    vy = -1 - random.nextInt(bodyVelocity);
-                }
-                vx = random.nextInt(bodyVelocity * 2 + 1) - bodyVelocity;
-                if (vx == 0) {
-                	vx = 1; // ensure non-zero velocity
-                }
-            } else {
-                y = random.nextDouble() * windowHeight;
-                if (random.nextBoolean()) { // left
-                    x = 0;
-                    vx = 1 + random.nextInt(bodyVelocity);
-                } else { // right
-                    x = windowWidth;
-                    vx = -1 - random.nextInt(bodyVelocity);
-                }
-                vy = random.nextInt(bodyVelocity * 2 + 1) - bodyVelocity;
-                if (vy == 0) {
-                	vy = 1; // ensure non-zero velocity
-                }
-            }
-
-            bodies.add(new CelestialBody(x, y, bodySize, vx, vy, Color.BLACK));
+        if (player != null) {
+            player.close();
+        }
+        if (renderStepper != null) {
+            renderStepper.shutdown();
         }
-
-        repaint();
     }
     
     /**
      * The main method of the program, initializing and displaying 
      * the MassiveMotion window.
      * 
-     * @param args optional command-line argument for the property file.
+     * @param args optional command-line argument for the property file,
+     * or --restore followed by a checkpoint file to continue from, or
+     * --replay followed by a trajectory file and optionally the property
+     * file.
+     * @throws IOException if the checkpoint or trajectory cannot be read.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("Massive Motion starting...");
 
-        String propertyFile;
-        if (args.length > 0) {
-            propertyFile = args[0];
+        MassiveMotion mm;
+        if (args.length > 1 && args[0].equals("--restore")) {
+            mm = new MassiveMotion(Checkpoint.read(Paths.get(args[1])));
+        } else if (args.length > 1 && args[0].equals("--replay")) {
+            mm = new MassiveMotion(new TrajectoryPlayer(Paths.get(args[1]), 30),
+                args.length > 2 ? args[2] : "MassiveMotion.txt");
+        } else if (args.length > 0) {
+            mm = new MassiveMotion(args[0]);
         } else {
-            propertyFile = "MassiveMotion.txt";
+            mm = new MassiveMotion("MassiveMotion.txt");
         }
 
-        MassiveMotion mm = new MassiveMotion(propertyFile);
-
         JFrame jf = new JFrame();
         jf.setTitle("Massive Motion");
         jf.setSize(mm.windowWidth, mm.windowHeight);
         jf.add(mm);
+        jf.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                mm.close();
+            }
+        });
         jf.setVisible(true);
         jf.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     }
@@ -0,0 +1,100 @@
+package project02;
+
+/**
+ * Management interface of a running simulation, registered with the
+ * platform MBean server as project02:type=MassiveMotion so tools such as
+ * JConsole can read where tick time goes while it runs.
+ *
+ * Every phase reports a PhaseStats summary of its durations since the
+ * start or the last reset.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public interface MassiveMotionMXBean {
+
+    /**
+     * Returns the number of ticks run so far.
+     *
+     * @return the tick count.
+     */
+    public long getTicks();
+
+    /**
+     * Returns the number of bodies after the last tick, including the star.
+     *
+     * @return the body count.
+     */
+    public int getBodiesAlive();
+
+    /**
+     * Returns the number of comets spawned so far.
+     *
+     * @return the spawn count.
+     */
+    public long getBodiesSpawned();
+
+    /**
+     * Returns the number of bodies removed so far, by leaving the window
+     * or by merging.
+     *
+     * @return the cull count.
+     */
+    public long getBodiesCulled();
+
+    /**
+     * Returns the number of force evaluations so far, one for every
+     * body whose acceleration was computed. The block integrator counts
+     * each sub-step of a body.
+     *
+     * @return the force evaluation count.
+     */
+    public long getForceEvaluations();
+
+    /**
+     * Returns the durations of the gravity and drift phase.
+     *
+     * @return the phase summary.
+     */
+    public PhaseStats getIntegrate();
+
+    /**
+     * Returns the durations of the collision phase.
+     *
+     * @return the phase summary.
+     */
+    public PhaseStats getCollide();
+
+    /**
+     * Returns the durations of the cull phase.
+     *
+     * @return the phase summary.
+     */
+    public PhaseStats getCull();
+
+    /**
+     * Returns the durations of the spawn phase.
+     *
+     * @return the phase summary.
+     */
+    public PhaseStats getSpawn();
+
+    /**
+     * Returns the durations of whole ticks.
+     *
+     * @return the phase summary.
+     */
+    public PhaseStats getTick();
+
+    /**
+     * Returns the durations of painting a frame.
+     *
+     * @return the phase summary.
+     */
+    public PhaseStats getPaint();
+
+    /**
+     * Clears every duration histogram. The counters keep counting.
+     */
+    public void reset();
+}
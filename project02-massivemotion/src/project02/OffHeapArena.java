@@ -0,0 +1,119 @@
+package project02;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class that hands out direct ByteBuffers and frees all of them together
+ * when it is closed, so off-heap memory has a clear owner and lifetime
+ * instead of waiting for the garbage collector to notice the buffers
+ * are unreachable.
+ *
+ * Freeing uses the JDK's internal buffer cleaner when it is reachable;
+ * otherwise close only drops the references and the memory is returned
+ * whenever the buffers are collected.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class OffHeapArena implements AutoCloseable {
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private ByteBuffer[] buffers = new ByteBuffer[4];
+    private int count;
+    private long allocated;
+    private boolean closed;
+
+    /**
+     * Allocates a zeroed direct buffer of the given size in native byte
+     * order, owned by this arena.
+     *
+     * @param bytes the size of the buffer.
+     * @return the new buffer.
+     * @throws IllegalStateException if the arena is closed.
+     */
+    public ByteBuffer allocate(int bytes) {
+        if (closed) {
+            throw new IllegalStateException("arena is closed");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        if (count == buffers.length) {
+            ByteBuffer[] grown = new ByteBuffer[count * 2];
+            System.arraycopy(buffers, 0, grown, 0, count);
+            buffers = grown;
+        }
+        buffers[count++] = buffer;
+        allocated += bytes;
+        return buffer;
+    }
+
+    /**
+     * Returns the number of bytes allocated and not yet freed.
+     *
+     * @return the allocated bytes.
+     */
+    public long getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * Returns true once the arena has been closed.
+     *
+     * @return true if closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Frees every buffer allocated by this arena. The buffers must not be
+     * used afterwards. Closing twice does nothing.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        for (int i = 0; i < count; i++) {
+            free(buffers[i]);
+            buffers[i] = null;
+        }
+        count = 0;
+        allocated = 0;
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            // left for the garbage collector
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package project02;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class that stores celestial bodies outside the Java heap, in direct
+ * ByteBuffers allocated from an OffHeapArena. Every body is a fixed
+ * 48-byte record:
+ *
+ *   offset  0  x        double
+ *   offset  8  y        double
+ *   offset 16  vx       double
+ *   offset 24  vy       double
+ *   offset 32  mass     double
+ *   offset 40  size     int
+ *   offset 44  palette  byte, then 3 bytes of padding
+ *
+ * The records are kept in chunks of 65536 bodies, so growing adds a
+ * chunk instead of copying the bodies already stored, and no single
+ * buffer comes near the 2 GB limit of a ByteBuffer. The bodies add no
+ * objects for the garbage collector to trace and do not count against
+ * the heap size, and closing the store frees their memory at once.
+ *
+ * Removal swaps the last body into the removed slot, like BodyStore.
+ * Reads and writes of different bodies may happen from several threads
+ * at once.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class OffHeapBodyStore implements BodyStorage {
+
+    /**
+     * The number of bytes in one body record.
+     */
+    public static final int BODY_BYTES = 48;
+
+    private static final int X = 0, Y = 8, VX = 16, VY = 24, MASS = 32, SIZE = 40, PALETTE = 44;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_BODIES = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_BODIES - 1;
+
+    private final OffHeapArena arena;
+    private final boolean ownsArena;
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int capacity;
+    private int count;
+
+    /**
+     * Constructs an empty store with its own arena, freed when the store
+     * is closed.
+     */
+    public OffHeapBodyStore() {
+        this(new OffHeapArena(), true);
+    }
+
+    /**
+     * Constructs an empty store allocating from the given arena. The
+     * memory is freed when the arena is closed, not when the store is.
+     *
+     * @param arena the arena to allocate chunks from.
+     */
+    public OffHeapBodyStore(OffHeapArena arena) {
+        this(arena, false);
+    }
+
+    private OffHeapBodyStore(OffHeapArena arena, boolean ownsArena) {
+        this.arena = arena;
+        this.ownsArena = ownsArena;
+    }
+
+    /**
+     * Adds one chunk of capacity.
+     */
+    private void grow() {
+        ByteBuffer[] grown = new ByteBuffer[chunks.length + 1];
+        System.arraycopy(chunks, 0, grown, 0, chunks.length);
+        grown[chunks.length] = arena.allocate(CHUNK_BODIES * BODY_BYTES);
+        chunks = grown;
+        capacity += CHUNK_BODIES;
+    }
+
+    private ByteBuffer chunk(int i) {
+        return chunks[i >>> CHUNK_SHIFT];
+    }
+
+    private static int offset(int i) {
+        return (i & CHUNK_MASK) * BODY_BYTES;
+    }
+
+    /**
+     * Adds a body at the end of the store.
+     *
+     * @param x the x-coordinate of the body.
+     * @param y the y-coordinate of the body.
+     * @param size the diameter of the body in pixels.
+     * @param vx the velocity in the x-direction.
+     * @param vy the velocity in the y-direction.
+     * @param mass the mass of the body.
+     * @param palette the palette index of the body's color.
+     * @return the index of the new body.
+     */
+    public int add(double x, double y, int size, double vx, double vy, double mass, byte palette) {
+        if (count == capacity) {
+            grow();
+        }
+
+        int i = count++;
+        ByteBuffer chunk = chunk(i);
+        int at = offset(i);
+        chunk.putDouble(at + X, x);
+        chunk.putDouble(at + Y, y);
+        chunk.putDouble(at + VX, vx);
+        chunk.putDouble(at + VY, vy);
+        chunk.putDouble(at + MASS, mass);
+        chunk.putInt(at + SIZE, size);
+        chunk.put(at + PALETTE, palette);
+        return i;
+    }
+
+    /**
+     * Removes the body at the given index by copying the last body's
+     * record into its slot.
+     *
+     * @param i the index of the body to remove.
+     * @throws IndexOutOfBoundsException if the given index is out of range.
+     */
+    public void swapRemove(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int last = --count;
+        if (i != last) {
+            ByteBuffer from = chunk(last), to = chunk(i);
+            int src = offset(last), dst = offset(i);
+            for (int b = 0; b < BODY_BYTES; b += Long.BYTES) {
+                to.putLong(dst + b, from.getLong(src + b));
+            }
+        }
+    }
+
+    /**
+     * Removes every body from the store, keeping its chunks.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Returns the number of bodies currently stored.
+     *
+     * @return the number of bodies.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes held outside the heap.
+     *
+     * @return the off-heap bytes.
+     */
+    public long getAllocated() {
+        return (long) capacity * BODY_BYTES;
+    }
+
+    /**
+     * Returns the x-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the x-coordinate.
+     */
+    public double getX(int i) {
+        return chunk(i).getDouble(offset(i) + X);
+    }
+
+    /**
+     * Sets the x-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param x the new x-coordinate.
+     */
+    public void setX(int i, double x) {
+        chunk(i).putDouble(offset(i) + X, x);
+    }
+
+    /**
+     * Returns the y-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the y-coordinate.
+     */
+    public double getY(int i) {
+        return chunk(i).getDouble(offset(i) + Y);
+    }
+
+    /**
+     * Sets the y-coordinate of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param y the new y-coordinate.
+     */
+    public void setY(int i, double y) {
+        chunk(i).putDouble(offset(i) + Y, y);
+    }
+
+    /**
+     * Returns the x-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the x-direction velocity.
+     */
+    public double getVx(int i) {
+        return chunk(i).getDouble(offset(i) + VX);
+    }
+
+    /**
+     * Sets the x-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param vx the new x-direction velocity.
+     */
+    public void setVx(int i, double vx) {
+        chunk(i).putDouble(offset(i) + VX, vx);
+    }
+
+    /**
+     * Returns the y-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the y-direction velocity.
+     */
+    public double getVy(int i) {
+        return chunk(i).getDouble(offset(i) + VY);
+    }
+
+    /**
+     * Sets the y-direction velocity of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param vy the new y-direction velocity.
+     */
+    public void setVy(int i, double vy) {
+        chunk(i).putDouble(offset(i) + VY, vy);
+    }
+
+    /**
+     * Returns the mass of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the mass.
+     */
+    public double getMass(int i) {
+        return chunk(i).getDouble(offset(i) + MASS);
+    }
+
+    /**
+     * Sets the mass of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param mass the new mass.
+     */
+    public void setMass(int i, double mass) {
+        chunk(i).putDouble(offset(i) + MASS, mass);
+    }
+
+    /**
+     * Returns the diameter in pixels of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the diameter in pixels.
+     */
+    public int getSize(int i) {
+        return chunk(i).getInt(offset(i) + SIZE);
+    }
+
+    /**
+     * Sets the diameter in pixels of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @param size the new diameter in pixels.
+     */
+    public void setSize(int i, int size) {
+        chunk(i).putInt(offset(i) + SIZE, size);
+    }
+
+    /**
+     * Returns the palette index of the color of the body at the given index.
+     *
+     * @param i the index of the body.
+     * @return the palette index of the color.
+     */
+    public byte getPalette(int i) {
+        return chunk(i).get(offset(i) + PALETTE);
+    }
+
+    /**
+     * Empties the store and, if the store created its own arena, frees
+     * every chunk. The store holds no bodies afterwards, so a stray
+     * access fails with an exception instead of touching freed memory.
+     */
+    @Override
+    public void close() {
+        count = 0;
+        capacity = 0;
+        chunks = new ByteBuffer[0];
+        if (ownsArena) {
+            arena.close();
+        }
+    }
+}
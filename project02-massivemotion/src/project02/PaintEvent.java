@@ -0,0 +1,28 @@
+package project02;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for painting one frame in the MassiveMotion
+ * panel. Only created when the jfr_events property is set.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+@Name("project02.Paint")
+@Label("Paint")
+@Category("MassiveMotion")
+@StackTrace(false)
+@Description("Drawing one frame of the simulation")
+class PaintEvent extends jdk.jfr.Event {
+
+    @Label("Tick")
+    long tick;
+
+    @Label("Bodies")
+    int bodies;
+}
@@ -0,0 +1,29 @@
+package project02;
+
+/**
+ * Class holding the small fixed set of colors a body can have, as the
+ * one-byte indices bodies store. The simulation only deals in these
+ * indices; PaletteColors maps them to the colors the renderers draw.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public final class Palette {
+
+    public static final byte STAR = 0;
+    public static final byte COMET = 1;
+
+    private static final int SIZE = 2;
+
+    private Palette() {
+    }
+
+    /**
+     * Returns the number of colors in the palette.
+     *
+     * @return the palette size.
+     */
+    public static int size() {
+        return SIZE;
+    }
+}
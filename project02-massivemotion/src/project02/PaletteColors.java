@@ -0,0 +1,29 @@
+package project02;
+
+import java.awt.Color;
+
+/**
+ * Class mapping Palette indices to the colors MassiveMotion and
+ * SpriteRenderer draw them in, so only the rendering side of the
+ * program depends on AWT.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public final class PaletteColors {
+
+    private static final Color[] COLORS = { Color.RED, Color.BLACK };
+
+    private PaletteColors() {
+    }
+
+    /**
+     * Returns the color for the given palette index.
+     *
+     * @param index the palette index.
+     * @return the color.
+     */
+    public static Color color(byte index) {
+        return COLORS[index];
+    }
+}
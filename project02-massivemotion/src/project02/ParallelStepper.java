@@ -0,0 +1,178 @@
+package project02;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that splits per-body work over a ForkJoinPool. A range of body
+ * indices is halved recursively until the pieces are small enough,
+ * where small enough adapts to the body count so every worker gets
+ * several chunks to balance load with. With one thread, or when there
+ * are too few bodies to be worth splitting, the work runs directly on
+ * the calling thread.
+ *
+ * Each chunk covers a contiguous index range and writes only to its own
+ * indices, and chunks are at least MIN_CHUNK bodies long, so workers
+ * only ever share a cache line at the edges of their ranges.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class ParallelStepper {
+
+    /**
+     * Work over a range of body indices.
+     */
+    public interface Range {
+
+        /**
+         * Processes bodies from (inclusive) to to (exclusive).
+         *
+         * @param from the first body index.
+         * @param to one past the last body index.
+         */
+        void apply(int from, int to);
+    }
+
+    /**
+     * Work over one of a fixed number of slices of a range, for work
+     * that keeps a private accumulator per slice and merges them after.
+     */
+    public interface Slice {
+
+        /**
+         * Processes bodies from (inclusive) to to (exclusive) as the
+         * given slice.
+         *
+         * @param slice the slice number, from 0 to getThreads() - 1.
+         * @param from the first body index.
+         * @param to one past the last body index.
+         */
+        void apply(int slice, int from, int to);
+    }
+
+    private static final int MIN_CHUNK = 2048;
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a stepper using the given number of worker threads.
+     *
+     * @param threads the number of threads, or 0 or less for one per
+     * available processor.
+     */
+    public ParallelStepper(int threads) {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        this.threads = threads;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Runs the range over bodies 0 to n, in parallel if worthwhile, and
+     * returns once every chunk is done.
+     *
+     * @param n the number of bodies.
+     * @param range the work to run.
+     */
+    public void forRange(int n, Range range) {
+        forRange(n, MIN_CHUNK, range);
+    }
+
+    /**
+     * Runs the range over items 0 to n in chunks of at least minChunk
+     * items, for work where each item costs far more than a body does.
+     *
+     * @param n the number of items.
+     * @param minChunk the fewest items worth running as one chunk.
+     * @param range the work to run.
+     */
+    public void forRange(int n, int minChunk, Range range) {
+        if (pool == null || n < 2 * minChunk) {
+            range.apply(0, n);
+            return;
+        }
+
+        int chunk = Math.max(minChunk, n / (threads * CHUNKS_PER_THREAD));
+        pool.invoke(new Chunk(range, 0, n, chunk));
+    }
+
+    /**
+     * Splits bodies 0 to n into one equal slice per thread and runs
+     * them in parallel, returning once every slice is done. With one
+     * thread, or too few bodies, everything runs as slice 0 on the
+     * calling thread.
+     *
+     * @param n the number of bodies.
+     * @param slice the work to run for each slice.
+     */
+    public void forSlices(int n, Slice slice) {
+        if (pool == null || n < 2 * MIN_CHUNK) {
+            slice.apply(0, 0, n);
+            return;
+        }
+
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            int s = t;
+            int from = (int) ((long) n * t / threads);
+            int to = (int) ((long) n * (t + 1) / threads);
+            tasks[t] = pool.submit(() -> slice.apply(s, from, to));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return the thread count.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Shuts the worker threads down.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A fork/join task that halves its range until it is at most chunk
+     * bodies long.
+     */
+    private static class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Range range;
+        private final int from, to, chunk;
+
+        Chunk(Range range, int from, int to, int chunk) {
+            this.range = range;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                range.apply(from, to);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunk(range, from, mid, chunk), new Chunk(range, mid, to, chunk));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package project02;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Class holding a summary of the durations of one phase, as read from
+ * a LatencyHistogram, in microseconds. Exposed through JMX as a
+ * composite value with one item per getter.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class PhaseStats {
+
+    private final long count;
+    private final double mean, p50, p90, p99, p999, max;
+
+    /**
+     * Constructs a summary from its values.
+     *
+     * @param count the number of durations.
+     * @param mean the mean duration in microseconds.
+     * @param p50 the median in microseconds.
+     * @param p90 the 90th percentile in microseconds.
+     * @param p99 the 99th percentile in microseconds.
+     * @param p999 the 99.9th percentile in microseconds.
+     * @param max the longest duration in microseconds.
+     */
+    @ConstructorProperties({ "count", "mean", "p50", "p90", "p99", "p999", "max" })
+    public PhaseStats(long count, double mean, double p50, double p90, double p99, double p999, double max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    /**
+     * Summarizes the durations counted by the given histogram.
+     *
+     * @param histogram the histogram to read.
+     * @return the summary.
+     */
+    public static PhaseStats of(LatencyHistogram histogram) {
+        long count = histogram.getCount();
+        return new PhaseStats(count, count == 0 ? 0 : histogram.getTotal() / 1e3 / count,
+                histogram.getPercentile(0.5) / 1e3, histogram.getPercentile(0.9) / 1e3,
+                histogram.getPercentile(0.99) / 1e3, histogram.getPercentile(0.999) / 1e3,
+                histogram.getMax() / 1e3);
+    }
+
+    /**
+     * Returns the number of durations.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean duration.
+     *
+     * @return the mean in microseconds.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns the median duration.
+     *
+     * @return the median in microseconds.
+     */
+    public double getP50() {
+        return p50;
+    }
+
+    /**
+     * Returns the 90th percentile duration.
+     *
+     * @return the 90th percentile in microseconds.
+     */
+    public double getP90() {
+        return p90;
+    }
+
+    /**
+     * Returns the 99th percentile duration.
+     *
+     * @return the 99th percentile in microseconds.
+     */
+    public double getP99() {
+        return p99;
+    }
+
+    /**
+     * Returns the 99.9th percentile duration.
+     *
+     * @return the 99.9th percentile in microseconds.
+     */
+    public double getP999() {
+        return p999;
+    }
+
+    /**
+     * Returns the longest duration.
+     *
+     * @return the maximum in microseconds.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f us",
+                count, mean, p50, p90, p99, p999, max);
+    }
+}
@@ -0,0 +1,111 @@
+package project02;
+
+import java.util.function.Supplier;
+
+/**
+ * Class that keeps a bounded stack of spare objects so they can be
+ * handed out again instead of allocated. Objects are created by the
+ * given factory only when the pool is empty, and released objects are
+ * dropped for the garbage collector once the pool is full, so the pool
+ * never holds more than its capacity.
+ *
+ * The caller is responsible for reinitializing an acquired object and
+ * for not using an object after releasing it. The pool is not thread
+ * safe.
+ *
+ * @param <T> the type of pooled objects.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class Pool<T> {
+
+    /**
+     * The capacity used for the node pools of the linked lists.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Supplier<T> factory;
+    private final Object[] spare;
+    private int count;
+    private long hits, misses;
+
+    /**
+     * Constructs an empty pool holding at most the given number of spare
+     * objects.
+     *
+     * @param capacity the largest number of spare objects kept.
+     * @param factory creates a new object when the pool is empty.
+     */
+    public Pool(int capacity, Supplier<T> factory) {
+        this.factory = factory;
+        this.spare = new Object[Math.max(capacity, 0)];
+    }
+
+    /**
+     * Returns a spare object if there is one, or a new one from the
+     * factory otherwise. The returned object still holds whatever state
+     * it was released with.
+     *
+     * @return an object to reinitialize and use.
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if (count > 0) {
+            hits++;
+            T item = (T) spare[--count];
+            spare[count] = null;
+            return item;
+        }
+
+        misses++;
+        return factory.get();
+    }
+
+    /**
+     * Returns an object to the pool, or drops it if the pool is full.
+     *
+     * @param item the object that is no longer used.
+     */
+    public void release(T item) {
+        if (count < spare.length) {
+            spare[count++] = item;
+        }
+    }
+
+    /**
+     * Returns the number of spare objects currently held.
+     *
+     * @return the number of spare objects.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the largest number of spare objects the pool keeps.
+     *
+     * @return the capacity.
+     */
+    public int capacity() {
+        return spare.length;
+    }
+
+    /**
+     * Returns the number of acquires served from a spare object.
+     *
+     * @return the hit count.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of acquires that had to create a new object.
+     *
+     * @return the miss count.
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -2,11 +2,15 @@ package project02;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Properties;
 
 /**
- * Class to read configuration values from a property file.
- * If the file cannot be found, default values are used.
+ * Class to read configuration values from a property file, looked up
+ * on the classpath first and then on disk. If the file cannot be
+ * found, default values are used.
  *
  * @author Oliver Reyes
  * @version 2.0
@@ -22,9 +26,7 @@ public class PropertyReader {
      * @param propertyFile the name of the property file to read
      */
     public PropertyReader(String propertyFile) {
-        ClassLoader classLoader = PropertyReader.class.getClassLoader();
-
-        try (InputStream inputStream = classLoader.getResourceAsStream(propertyFile)) {
+        try (InputStream inputStream = open(propertyFile)) {
             if (inputStream == null) {
                 System.out.println("Configuration file not found, using defaults.");
             } else {
@@ -36,6 +38,35 @@ public class PropertyReader {
         }
     }
 
+    /**
+     * Constructs a PropertyReader over configuration values that are
+     * already loaded, such as those saved in a checkpoint.
+     *
+     * @param properties the configuration values
+     */
+    public PropertyReader(Properties properties) {
+        this.properties.putAll(properties);
+    }
+
+    /**
+     * Opens the property file from the classpath, or from disk if it is
+     * not a classpath resource.
+     *
+     * @param propertyFile the name or path of the property file
+     * @return the opened stream, or null if the file does not exist
+     * @throws IOException if the file on disk cannot be opened
+     */
+    private static InputStream open(String propertyFile) throws IOException {
+        ClassLoader classLoader = PropertyReader.class.getClassLoader();
+        InputStream inputStream = classLoader.getResourceAsStream(propertyFile);
+        if (inputStream != null) {
+            return inputStream;
+        }
+
+        Path path = Paths.get(propertyFile);
+        return Files.isRegularFile(path) ? Files.newInputStream(path) : null;
+    }
+
     /**
      * Retrieves an integer value from the properties file.
      *
@@ -51,6 +82,21 @@ public class PropertyReader {
         }
     }
 
+    /**
+     * Retrieves a long value from the properties file.
+     *
+     * @param key the property key
+     * @param def the default value to return if the key is not found or invalid
+     * @return the long value associated with the key or the default
+     */
+    public long getLong(String key, long def) {
+        try {
+            return Long.parseLong(properties.getProperty(key, String.valueOf(def)).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
     /**
      * Retrieves a double value from the properties file.
      *
@@ -0,0 +1,364 @@
+package project02;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Class that implements a list over a circular buffer: an array whose
+ * length is a power of two, with the first element at a head offset that
+ * moves instead of the elements. Adding or removing at either end is
+ * O(1), and adding or removing in the middle shifts only the elements
+ * between the position and the nearer end.
+ *
+ * Every shift, grow, and shrink moves elements with System.arraycopy,
+ * split into at most a few pieces where the range wraps around the end
+ * of the array. The buffer doubles when full and halves when it drops
+ * below a quarter full.
+ *
+ * @param <T> the type of elements stored in the list.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class RingArrayList<T> implements List<T>, Iterable<T> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private Object[] buf;
+    private int mask;
+    private int head;
+    private int size;
+
+    /**
+     * Constructs an empty RingArrayList with an initial capacity of 16.
+     */
+    public RingArrayList() {
+        buf = new Object[MIN_CAPACITY];
+        mask = MIN_CAPACITY - 1;
+    }
+
+    /**
+     * Returns the array index of the given list position.
+     */
+    private int slot(int pos) {
+        return (head + pos) & mask;
+    }
+
+    /**
+     * Moves the elements into a new array of the given power-of-two
+     * capacity, starting at index 0.
+     */
+    private void resize(int capacity) {
+        Object[] newBuf = new Object[capacity];
+        int first = Math.min(size, buf.length - head);
+        System.arraycopy(buf, head, newBuf, 0, first);
+        System.arraycopy(buf, 0, newBuf, first, size - first);
+
+        buf = newBuf;
+        mask = capacity - 1;
+        head = 0;
+    }
+
+    /**
+     * Doubles the capacity of the buffer when the list is full.
+     */
+    private void growIfFull() {
+        if (size == buf.length) {
+            resize(buf.length * 2);
+        }
+    }
+
+    /**
+     * Halves the capacity of the buffer once the list uses less than a
+     * quarter of it.
+     */
+    private void shrinkIfSparse() {
+        if (buf.length > MIN_CAPACITY && size < buf.length / 4) {
+            resize(buf.length / 2);
+        }
+    }
+
+    /**
+     * Copies len elements from array index src to array index dst, both
+     * wrapping around the end of the array. The copy runs backwards when
+     * the destination overlaps the source from the right, so overlapping
+     * ranges are moved correctly.
+     */
+    private void copy(int src, int dst, int len) {
+        int capacity = buf.length;
+
+        if (((dst - src) & mask) < len) {
+            int s = (src + len) & mask, d = (dst + len) & mask;
+            while (len > 0) {
+                int n = Math.min(len, Math.min(s == 0 ? capacity : s, d == 0 ? capacity : d));
+                s = (s - n) & mask;
+                d = (d - n) & mask;
+                System.arraycopy(buf, s, buf, d, n);
+                len -= n;
+            }
+        } else {
+            while (len > 0) {
+                int n = Math.min(len, Math.min(capacity - src, capacity - dst));
+                System.arraycopy(buf, src, buf, dst, n);
+                src = (src + n) & mask;
+                dst = (dst + n) & mask;
+                len -= n;
+            }
+        }
+    }
+
+    /**
+     * Clears len array slots starting at array index from, wrapping
+     * around the end of the array.
+     */
+    private void clear(int from, int len) {
+        while (len > 0) {
+            int n = Math.min(len, buf.length - from);
+            Arrays.fill(buf, from, from + n, null);
+            from = (from + n) & mask;
+            len -= n;
+        }
+    }
+
+    /**
+     * Adds an item at the specified position in the list, shifting the
+     * elements on the shorter side of the position by one.
+     *
+     * @param pos the index to insert the item.
+     * @param item the item to be added.
+     * @throws IndexOutOfBoundsException if the given position is
+     * out of range.
+     */
+    public void add(int pos, T item) {
+        if (pos < 0 || pos > size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        growIfFull();
+        if (pos < size / 2) {
+            int newHead = (head - 1) & mask;
+            copy(head, newHead, pos);
+            head = newHead;
+        } else {
+            copy(slot(pos), slot(pos + 1), size - pos);
+        }
+
+        buf[slot(pos)] = item;
+        size++;
+    }
+
+    /**
+     * Adds the item at the end of the list.
+     *
+     * @return returns true if the item is added successfully.
+     */
+    public boolean add(T item) {
+        growIfFull();
+        buf[slot(size)] = item;
+        size++;
+        return true;
+    }
+
+    /**
+     * Gets the value at the specified position of the list.
+     *
+     * @param pos the index of the value to return.
+     * @return the value at the specified position.
+     * @throws IndexOutOfBoundsException if the given position is
+     * out of range.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return (T) buf[slot(pos)];
+    }
+
+    /**
+     * Removes and returns the element at the specified position, shifting
+     * the elements on the shorter side of the position by one.
+     *
+     * @param pos the index of the element to remove.
+     * @return the item removed.
+     * @throws IndexOutOfBoundsException if the given position is
+     * out of range.
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        T removed = (T) buf[slot(pos)];
+        if (pos < size / 2) {
+            copy(head, (head + 1) & mask, pos);
+            buf[head] = null;
+            head = (head + 1) & mask;
+        } else {
+            copy(slot(pos + 1), slot(pos), size - pos - 1);
+            buf[slot(size - 1)] = null;
+        }
+
+        size--;
+        shrinkIfSparse();
+        return removed;
+    }
+
+    /**
+     * Removes every element that matches the filter, compacting the
+     * remaining elements towards the head in one pass.
+     *
+     * @param filter the predicate that returns true for elements to remove.
+     * @return true if any element was removed.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super T> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Object item = buf[slot(i)];
+            if (!filter.test((T) item)) {
+                buf[slot(kept++)] = item;
+            }
+        }
+
+        if (kept == size) {
+            return false;
+        }
+
+        clear(slot(kept), size - kept);
+        size = kept;
+        shrinkIfSparse();
+        return true;
+    }
+
+    /**
+     * Removes the elements from fromIndex (inclusive) to toIndex
+     * (exclusive), moving whichever side of the range is shorter once.
+     *
+     * @param fromIndex the index of the first element to remove.
+     * @param toIndex one past the index of the last element to remove.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int removed = toIndex - fromIndex;
+        if (removed == 0) {
+            return;
+        }
+
+        if (fromIndex < size - toIndex) {
+            int newHead = (head + removed) & mask;
+            copy(head, newHead, fromIndex);
+            clear(head, removed);
+            head = newHead;
+        } else {
+            copy(slot(toIndex), slot(fromIndex), size - toIndex);
+            clear(slot(size - removed), removed);
+        }
+
+        size -= removed;
+        shrinkIfSparse();
+    }
+
+    /**
+     * Adds every item of the given iterable at the end of the list. When
+     * the items are a list, the buffer is resized at most once for all
+     * of them.
+     *
+     * @param items the items to be added.
+     * @return true if the list changed.
+     */
+    public boolean addAll(Iterable<? extends T> items) {
+        // only copy the original elements when adding the list to itself
+        int limit = items == this ? size : Integer.MAX_VALUE;
+        int added = 0;
+
+        if (items instanceof List) {
+            int needed = size + ((List<?>) items).size();
+            if (needed > buf.length) {
+                resize(Integer.highestOneBit(needed - 1) << 1);
+            }
+        }
+
+        Iterator<? extends T> it = items.iterator();
+        while (added < limit && it.hasNext()) {
+            add(it.next());
+            added++;
+        }
+        return added > 0;
+    }
+
+    /**
+     * Returns the number of items currently stored in the list.
+     *
+     * @return size of the list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Inner class that returns an iterator over the elements
+     * in the list in the proper sequence.
+     *
+     * @return an iterator for iterating through the list of elements.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int index;
+            private int last = -1;
+
+            /**
+             * Returns true if there are more elements to iterate over.
+             *
+             * @return true if there are more elements to iterate over.
+             */
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            /**
+             * Returns the next element in the iteration.
+             *
+             * @return the next element in the list.
+             * @throws NoSuchElementException if no more elements remain.
+             */
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                last = index;
+                return (T) buf[slot(index++)];
+            }
+
+            /**
+             * Removes the last element returned by next.
+             *
+             * @throws IllegalStateException if next has not been called, or
+             * remove was already called after the last call to next.
+             */
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+
+                RingArrayList.this.remove(last);
+                index = last;
+                last = -1;
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package project02;
+
+/**
+ * Kernels written as plain loops, the default, and the fallback when
+ * the jdk.incubator.vector module is not present. The JIT compiler may
+ * still vectorize the simple loops on its own.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class ScalarKernels implements Kernels {
+
+    @Override
+    public void axpy(double a, double[] x, double[] y, int from, int to) {
+        for (int i = from; i < to; i++) {
+            y[i] += x[i] * a;
+        }
+    }
+
+    @Override
+    public int offScreen(double[] x, double[] y, int[] size, double width, double height, boolean[] off,
+            int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int s = size[i];
+            boolean out = x[i] < -s || x[i] > width + s || y[i] < -s || y[i] > height + s;
+            off[i] = out;
+            if (out) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void gravity(double[] x, double[] y, double[] m, int n, double gravity, double softening2,
+            int from, int to, double[] ax, double[] ay) {
+        for (int i = from; i < to; i++) {
+            double px = x[i], py = y[i];
+            double sumX = 0, sumY = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) {
+                    continue;
+                }
+                double dx = x[j] - px, dy = y[j] - py;
+                double inv = 1.0 / Math.sqrt(dx * dx + dy * dy + softening2);
+                double f = m[j] * inv * inv * inv;
+                sumX += f * dx;
+                sumY += f * dy;
+            }
+            ax[i] = gravity * sumX;
+            ay[i] = gravity * sumY;
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "scalar";
+    }
+}
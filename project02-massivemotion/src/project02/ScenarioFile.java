@@ -0,0 +1,466 @@
+package project02;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that reads and writes the initial bodies of a run, a scenario,
+ * as either CSV text or a compact binary file. Reading streams the file
+ * through a FileChannel in large buffers and hands every body to a Sink
+ * as it is parsed, so a file of millions of bodies is never held in
+ * memory as a whole, and no String is made per line.
+ *
+ * A CSV scenario has one body per line:
+ *
+ *   x, y, vx, vy, mass, size[, palette]
+ *
+ * with positions in pixels and velocities in pixels per tick. palette
+ * is the Palette index, by default the star's for the first body and
+ * the comet's for the rest. Blank lines and lines starting with # are
+ * skipped, and so is a line before the first body that does not start
+ * with a number, such as a header. Numbers are parsed straight from the
+ * bytes and rounded exactly like Double.parseDouble, which the rare
+ * number with more than 19 digits or a large exponent is handed to.
+ *
+ * A binary scenario is little-endian and laid out as:
+ *
+ *   int     magic "MMSC"
+ *   int     format version
+ *   long    body count n
+ *   n records of
+ *     double  x, y, vx, vy, mass
+ *     int     size
+ *     byte    palette
+ *
+ * Files starting with the magic are read as binary, all others as CSV.
+ * The first body is the star.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public final class ScenarioFile {
+
+    /**
+     * The binary format version written by this class.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x43534D4D;  // "MMSC" in little-endian order
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 5 * Double.BYTES + Integer.BYTES + 1;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int COLUMNS = 7;
+
+    // powers of ten that are exact doubles, for the fast path of parseDouble
+    private static final double[] POWERS = new double[23];
+
+    // 5^q for q from -MAX_POWER to MAX_POWER as 128-bit fractions with the top bit set,
+    // truncated for q >= 0 and rounded up for q < 0, for the Eisel-Lemire path of parseDouble
+    private static final int MAX_POWER = 64;
+    private static final long[] FIVE_HIGH = new long[2 * MAX_POWER + 1];
+    private static final long[] FIVE_LOW = new long[2 * MAX_POWER + 1];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+
+        for (int q = -MAX_POWER; q <= MAX_POWER; q++) {
+            BigInteger five = BigInteger.valueOf(5).pow(Math.abs(q));
+            BigInteger c;
+            if (q >= 0) {
+                int shift = 128 - five.bitLength();
+                c = shift >= 0 ? five.shiftLeft(shift) : five.shiftRight(-shift);
+            } else {
+                int z = five.bitLength();
+                c = BigInteger.ONE.shiftLeft(q >= -27 ? z + 127 : 2 * z + 128).divide(five).add(BigInteger.ONE);
+                c = c.shiftRight(Math.max(0, c.bitLength() - 128));
+            }
+            FIVE_HIGH[q + MAX_POWER] = c.shiftRight(64).longValue();
+            FIVE_LOW[q + MAX_POWER] = c.longValue();
+        }
+    }
+
+    /**
+     * Interface for what receives the bodies of a scenario, in file
+     * order.
+     */
+    public interface Sink {
+
+        /**
+         * Receives one body.
+         *
+         * @param x the x-coordinate.
+         * @param y the y-coordinate.
+         * @param vx the x-velocity.
+         * @param vy the y-velocity.
+         * @param mass the mass.
+         * @param size the size in pixels.
+         * @param palette the Palette index of the color.
+         */
+        public void body(double x, double y, double vx, double vy, double mass, int size, byte palette);
+    }
+
+    private ScenarioFile() {
+    }
+
+    /**
+     * Reads a CSV or binary scenario, handing every body to the sink.
+     *
+     * @param path the file to read.
+     * @param sink the receiver of the bodies.
+     * @return the number of bodies read.
+     * @throws IOException if the file cannot be read, is truncated, or
+     * has a malformed line.
+     */
+    public static long read(Path path, Sink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            fill(channel, buffer);
+            buffer.flip();
+            if (buffer.remaining() >= Integer.BYTES && buffer.getInt(0) == MAGIC) {
+                return readBinary(path, channel, buffer, sink);
+            }
+            return readCsv(path, channel, buffer, sink);
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer is full or the file ends.
+     *
+     * @return false if the file ended before anything was read.
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int before = buffer.position();
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // keep reading
+        }
+        return buffer.position() > before;
+    }
+
+    private static long readBinary(Path path, FileChannel channel, ByteBuffer buffer, Sink sink)
+            throws IOException {
+        if (buffer.remaining() < HEADER_BYTES) {
+            throw new IOException(path + " is truncated");
+        }
+        buffer.getInt();
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(path + " has unsupported scenario version " + version);
+        }
+        long count = buffer.getLong();
+        if (count < 0 || channel.size() < HEADER_BYTES + count * RECORD_BYTES) {
+            throw new IOException(path + " is truncated");
+        }
+
+        for (long i = 0; i < count; i++) {
+            if (buffer.remaining() < RECORD_BYTES) {
+                buffer.compact();
+                fill(channel, buffer);
+                buffer.flip();
+            }
+            double x = buffer.getDouble();
+            double y = buffer.getDouble();
+            double vx = buffer.getDouble();
+            double vy = buffer.getDouble();
+            double mass = buffer.getDouble();
+            int size = buffer.getInt();
+            byte palette = buffer.get();
+            if (palette < 0 || palette >= Palette.size()) {
+                throw new IOException(path + ": body " + i + " has no palette color " + palette);
+            }
+            sink.body(x, y, vx, vy, mass, size, palette);
+        }
+        return count;
+    }
+
+    private static long readCsv(Path path, FileChannel channel, ByteBuffer buffer, Sink sink)
+            throws IOException {
+        byte[] bytes = buffer.array();
+        double[] values = new double[COLUMNS];
+        long count = 0;
+        long line = 0;
+        boolean more = true;
+
+        while (true) {
+            int start = buffer.position();
+            int end = buffer.limit();
+            int eol = start;
+            while (eol < end && bytes[eol] != '\n') {
+                eol++;
+            }
+
+            if (eol == end && more) {
+                // the rest of the buffer is the start of a line, move it to the front and read on
+                if (start == 0 && end == bytes.length) {
+                    throw new IOException(path + ": line " + (line + 1) + " is too long");
+                }
+                buffer.compact();
+                more = fill(channel, buffer);
+                buffer.flip();
+                continue;
+            }
+            if (start == end) {
+                return count;
+            }
+
+            line++;
+            int to = eol;
+            if (to > start && bytes[to - 1] == '\r') {
+                to--;
+            }
+            buffer.position(Math.min(eol + 1, end));
+
+            int first = skipSpaces(bytes, start, to);
+            if (first == to || bytes[first] == '#') {
+                continue;
+            }
+            if (count == 0 && !startsNumber(bytes[first])) {
+                continue;  // a header
+            }
+
+            int columns = parseLine(path, line, bytes, first, to, values);
+            if (columns < COLUMNS - 1) {
+                throw new IOException(path + ": line " + line + " has " + columns + " of at least "
+                        + (COLUMNS - 1) + " columns");
+            }
+            int size = toInt(path, line, values[5]);
+            int palette = columns == COLUMNS ? toInt(path, line, values[6])
+                    : count == 0 ? Palette.STAR : Palette.COMET;
+            if (palette < 0 || palette >= Palette.size()) {
+                throw new IOException(path + ": line " + line + " has no palette color " + palette);
+            }
+            sink.body(values[0], values[1], values[2], values[3], values[4], size, (byte) palette);
+            count++;
+        }
+    }
+
+    /**
+     * Parses the comma-separated numbers of one line into values.
+     *
+     * @return the number of columns.
+     */
+    private static int parseLine(Path path, long line, byte[] bytes, int from, int to, double[] values)
+            throws IOException {
+        int columns = 0;
+        int at = from;
+        while (true) {
+            int comma = at;
+            while (comma < to && bytes[comma] != ',') {
+                comma++;
+            }
+            if (columns == COLUMNS) {
+                throw new IOException(path + ": line " + line + " has more than " + COLUMNS + " columns");
+            }
+
+            int a = skipSpaces(bytes, at, comma);
+            int b = comma;
+            while (b > a && (bytes[b - 1] == ' ' || bytes[b - 1] == '\t')) {
+                b--;
+            }
+            try {
+                values[columns++] = parseDouble(bytes, a, b);
+            } catch (NumberFormatException e) {
+                throw new IOException(path + ": line " + line + " column " + columns + " is not a number");
+            }
+
+            if (comma == to) {
+                return columns;
+            }
+            at = comma + 1;
+        }
+    }
+
+    private static int skipSpaces(byte[] bytes, int from, int to) {
+        while (from < to && (bytes[from] == ' ' || bytes[from] == '\t')) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean startsNumber(byte b) {
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.';
+    }
+
+    private static int toInt(Path path, long line, double value) throws IOException {
+        int i = (int) value;
+        if (i != value) {
+            throw new IOException(path + ": line " + line + " has a size or palette that is not an integer");
+        }
+        return i;
+    }
+
+    /**
+     * Parses a decimal number from bytes, rounded the same as
+     * Double.parseDouble. When the digits are below 2^53 and the power
+     * of ten at most 22, the result is one correctly rounded division or
+     * multiplication of exact doubles. Up to 19 digits it is found with
+     * the Eisel-Lemire algorithm, as in the fast_float library, from the
+     * digits times a 128-bit power of five. Anything else is handed to
+     * Double.parseDouble.
+     *
+     * @param bytes the text.
+     * @param from the first byte of the number.
+     * @param to one past the last byte of the number.
+     * @return the number.
+     * @throws NumberFormatException if the bytes are not a number.
+     */
+    static double parseDouble(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean any = false;
+        for (; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+            // leading zeros are not significant; counting by position also sees a mantissa that wrapped to 0
+            digits += digits > 0 || bytes[i] != '0' ? 1 : 0;
+            mantissa = mantissa * 10 + (bytes[i] - '0');
+            any = true;
+        }
+        if (i < to && bytes[i] == '.') {
+            for (i++; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                digits += digits > 0 || bytes[i] != '0' ? 1 : 0;
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                exponent--;
+                any = true;
+            }
+        }
+        if (any && i < to && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            int sign = 1, power = 0;
+            i++;
+            if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+                sign = bytes[i] == '-' ? -1 : 1;
+                i++;
+            }
+            int start = i;
+            for (; i < to && bytes[i] >= '0' && bytes[i] <= '9' && power < 10000; i++) {
+                power = power * 10 + (bytes[i] - '0');
+            }
+            any = i > start;
+            exponent += sign * power;
+        }
+
+        // up to 19 digits the mantissa fits in 64 bits, read as unsigned
+        if (any && i == to && digits <= 19) {
+            double value = Double.NaN;
+            if (mantissa == 0) {
+                value = 0;
+            } else if (mantissa > 0 && mantissa < 1L << 53 && exponent >= -22 && exponent <= 22) {
+                value = exponent < 0 ? mantissa / POWERS[-exponent] : mantissa * POWERS[exponent];
+            } else if (exponent >= -MAX_POWER && exponent <= MAX_POWER) {
+                value = eiselLemire(mantissa, exponent);
+            }
+            if (!Double.isNaN(value)) {
+                return negative ? -value : value;
+            }
+        }
+        return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Returns the double nearest to w times 10^q, for a nonzero unsigned
+     * w, or NaN if it is subnormal or infinite.
+     */
+    private static double eiselLemire(long w, int q) {
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+
+        long fiveHigh = FIVE_HIGH[q + MAX_POWER];
+        long high = unsignedMultiplyHigh(w, fiveHigh);
+        long low = w * fiveHigh;
+        if ((high & 0x1FF) == 0x1FF) {
+            // the bits below the mantissa may carry, so add the low word of the power
+            long next = unsignedMultiplyHigh(w, FIVE_LOW[q + MAX_POWER]);
+            low += next;
+            if (Long.compareUnsigned(next, low) > 0) {
+                high++;
+            }
+        }
+
+        int upper = (int) (high >>> 63);
+        int shift = upper + 9;
+        long mantissa = high >>> shift;
+        int power2 = ((217706 * q) >> 16) + 63 + upper - lz + 1023;
+        if (power2 <= 0) {
+            return Double.NaN;
+        }
+
+        // exactly halfway between two doubles can only happen for small q, where round to even
+        if (Long.compareUnsigned(low, 1) <= 0 && q >= -4 && q <= 23 && (mantissa & 3) == 1
+                && mantissa << shift == high) {
+            mantissa &= ~1L;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= 1L << 53) {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        if (power2 >= 0x7FF) {
+            return Double.NaN;
+        }
+        return Double.longBitsToDouble((long) power2 << 52 | mantissa & ~(1L << 52));
+    }
+
+    private static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    /**
+     * Writes the first count bodies of the given columns as a binary
+     * scenario, to a temporary file next to the given path that then
+     * replaces it.
+     *
+     * @param path the file to write.
+     * @param x the x-coordinates.
+     * @param y the y-coordinates.
+     * @param vx the x-velocities.
+     * @param vy the y-velocities.
+     * @param mass the masses.
+     * @param size the sizes.
+     * @param palette the Palette indices.
+     * @param count the number of bodies.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, double[] x, double[] y, double[] vx, double[] vy, double[] mass,
+            int[] size, byte[] palette, int count) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(count);
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < RECORD_BYTES) {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+                buffer.putDouble(x[i]).putDouble(y[i]).putDouble(vx[i]).putDouble(vy[i]).putDouble(mass[i])
+                        .putInt(size[i]).put(palette[i]);
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,1115 @@
+package project02;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * The simulation core behind MassiveMotion: the bodies, the gravity
+ * step, and the per-tick move, cull, and spawn logic. It has no window
+ * or timer of its own, so the same simulation runs inside the Swing
+ * panel or headless from BatchRunner.
+ *
+ * The bodies are held in the list type named by the list property, in
+ * a BodyStore when storage is set to soa, or outside the heap in an
+ * OffHeapBodyStore when storage is set to offheap. The star is always
+ * the first body and is never culled. The off-heap store is freed by
+ * close.
+ *
+ * Bodies move under gravity by the Integrator named by the integrator
+ * property, in substeps steps per tick. The store is integrated in
+ * place, and the list and the off-heap store through scratch arrays.
+ * The force evaluation and the integration are split over the number of
+ * threads given by the threads property. The result is the same as with
+ * one thread, bit for bit: the tree is built on one thread, and every
+ * body's force is summed by a single worker in the same traversal order
+ * as the serial path.
+ *
+ * A run is reproducible when the seed property is set: the random
+ * generator is seeded with it, and with spawn_rate set, every tick each
+ * edge draws from its own SpawnStream, reseeded without allocating from
+ * the seed, the tick count, and the edge. Edges with many comets to
+ * spawn are generated in parallel, and since no stream depends on which
+ * thread draws from it, the bodies are again the same for any thread
+ * count.
+ *
+ * The kick and drift loops, the direct force sum, and the off-screen
+ * test of the store run on the Kernels named by the simd property:
+ * plain loops by default, or with simd set to vector and the
+ * jdk.incubator.vector module present, VectorKernels of simd_bits bits.
+ * Without the module the scalar kernels are used. Up to direct_sum_max
+ * bodies (default 0) the forces are summed directly instead of by the
+ * tree.
+ *
+ * When the collisions property is on (the default), overlapping bodies
+ * merge and bodies touching the star are absorbed after every move,
+ * using a CollisionGrid whose cells are body_size wide.
+ *
+ * Comets spawn at the window's edges heading inwards. By default at most
+ * one spawns per tick, with the chances gen_x and gen_y. When spawn_rate
+ * or any of spawn_rate_top, spawn_rate_bottom, spawn_rate_left, and
+ * spawn_rate_right is set, each edge instead spawns a Poisson-distributed
+ * number of comets every tick, with that edge's rate as the mean; an
+ * edge without its own rate gets a quarter of spawn_rate. spawn_initial
+ * comets also spawn at random edges on the first tick. The comets
+ * spawned in a tick are appended to the list with a single addAll, in
+ * edge order.
+ *
+ * Culled comets are handed back to a Pool of at most pool_size bodies
+ * and reinitialized for the next spawn, and the linked lists recycle
+ * their nodes the same way, so once the pools have warmed up a tick on
+ * one thread allocates nothing.
+ *
+ * When scenario_file is set, the bodies are instead streamed from that
+ * CSV or binary ScenarioFile into the list or store, and its first body
+ * is the star.
+ *
+ * When checkpoint_file is set, every checkpoint_interval ticks the full
+ * state is copied into a Checkpoint and handed to a CheckpointWriter,
+ * which writes it on its own thread. restore builds a simulation that
+ * carries on from a checkpoint exactly as the original run would have.
+ *
+ * Every tick records the time spent integrating, colliding, culling,
+ * and spawning, and the bodies spawned and culled, in a
+ * SimulationMetrics registered as the MassiveMotion MBean. With
+ * jfr_events set, each tick is also a TickEvent for Flight Recorder.
+ *
+ * When record_file is set, every record_interval-th tick is appended to
+ * that file by a TrajectoryRecorder, with positions rounded to
+ * record_precision pixels and a keyframe every record_keyframe_interval
+ * recorded frames.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class Simulation implements World {
+
+    // the edges comets spawn at, in the order of spawnRates
+    private static final int TOP = 0, BOTTOM = 1, LEFT = 2, RIGHT = 3;
+    private static final int EDGES = 4;
+
+    // expected comets per tick from which the edges are generated in parallel
+    private static final double PARALLEL_SPAWN = 1024;
+
+    private final int width, height, bodySize, bodyVelocity;
+    private final double genX, genY, bodyMass;
+    private final double[] spawnRates;  // top, bottom, left, right, or null to use gen_x and gen_y
+    private final int spawnInitial;
+    private final long spawnSeed;
+    private final SpawnStream[] edgeStreams = new SpawnStream[EDGES];
+    private final double[][] spawnX = new double[EDGES][0], spawnY = new double[EDGES][0];
+    private final double[][] spawnVx = new double[EDGES][0], spawnVy = new double[EDGES][0];
+    private final int[] spawnCount = new int[EDGES];
+    private final ArrayList<CelestialBody> arrivals = new ArrayList<>();
+
+    private List<CelestialBody> bodies;
+    private BodyStore store;
+    private BodyStorage storage;  // the BodyStore or OffHeapBodyStore, if any
+    private CelestialBody star;
+    private final Random random;
+    private long ticks;
+    private final Pool<CelestialBody> bodyPool;
+    private final Properties config;
+    private final CheckpointWriter checkpoints;
+    private final long checkpointInterval;
+    private final TrajectoryRecorder recorder;
+    private final long recordInterval;
+    private final SimulationMetrics metrics = new SimulationMetrics();
+    private final boolean jfrEvents;
+
+    private final Kernels kernels;
+    private final Integrator integrator;
+    private final int substeps;
+    private final ParallelStepper stepper;
+    private final CollisionGrid collisions;
+    private double[] pvx = new double[0], pvy = new double[0];
+    private int[] psize = new int[0];
+    private boolean[] dead;
+    private boolean[] offScreen = new boolean[0];
+    private int cullIndex;
+    private double[] px = new double[0], py = new double[0], pm = new double[0];
+
+    // created once so passing them every tick does not allocate
+    private final Predicate<CelestialBody> culled = this::isCulled;
+    private final ParallelStepper.Range spawnEdges = this::spawnEdges;
+
+    /**
+     * Constructs a simulation from the given configuration, holding only
+     * the star, with a random generator seeded from the seed property,
+     * or unseeded if there is none.
+     *
+     * @param reader the configuration to read settings from.
+     */
+    public Simulation(PropertyReader reader) {
+        this(reader, isSet(reader, "seed") ? new Random(reader.getLong("seed", 0)) : new Random());
+    }
+
+    /**
+     * Constructs a simulation from the given configuration, holding only
+     * the star.
+     *
+     * @param reader the configuration to read settings from.
+     * @param random the random generator used for spawning.
+     */
+    public Simulation(PropertyReader reader, Random random) {
+        this(reader, random, -1);
+    }
+
+    /**
+     * Constructs a simulation from the given configuration, holding only
+     * the star, that continues the trajectory in record_file after the
+     * given tick instead of starting it over.
+     *
+     * @param reader the configuration to read settings from.
+     * @param random the random generator used for spawning.
+     * @param resumeTick the tick the run continues from, or -1 for a new
+     * run.
+     */
+    private Simulation(PropertyReader reader, Random random, long resumeTick) {
+        this.random = random;
+        config = reader.getProperties();
+
+        width = reader.getInt("window_size_x", 1024);
+        height = reader.getInt("window_size_y", 768);
+        genX = reader.getDouble("gen_x", 0.06);
+        genY = reader.getDouble("gen_y", 0.06);
+        spawnRates = readSpawnRates(reader);
+        spawnInitial = reader.getInt("spawn_initial", 0);
+        // only drawn when needed, so runs without spawn_rate use the generator as before
+        spawnSeed = isSet(reader, "seed") ? reader.getLong("seed", 0)
+                : spawnRates != null ? random.nextLong() : 0;
+        for (int edge = 0; edge < EDGES; edge++) {
+            edgeStreams[edge] = new SpawnStream();
+        }
+        bodySize = reader.getInt("body_size", 10);
+        bodyVelocity = reader.getInt("body_velocity", 3);
+        bodyMass = reader.getDouble("body_mass", 1E21);
+        bodyPool = new Pool<>(reader.getInt("pool_size", Pool.DEFAULT_CAPACITY),
+                () -> new CelestialBody(0, 0, 0, 0, 0, 0, Palette.COMET));
+
+        double gravity = reader.getDouble("gravity", 1E-26);
+        double theta = reader.getDouble("theta", 0.5);
+        double softening = reader.getDouble("softening", bodySize / 2.0);
+        kernels = newKernels(config.getProperty("simd", "scalar").trim().toLowerCase(),
+                reader.getInt("simd_bits", 0));
+        BarnesHutTree tree = new BarnesHutTree(gravity, theta, softening, kernels,
+                reader.getInt("direct_sum_max", 0));
+        stepper = new ParallelStepper(reader.getInt("threads", 0));
+        integrator = newIntegrator(config.getProperty("integrator", "euler").trim().toLowerCase(), tree, stepper,
+                kernels, gravity, softening, reader);
+        substeps = Math.max(1, reader.getInt("substeps", 1));
+
+        boolean collide = Boolean.parseBoolean(reader.getProperties().getProperty("collisions", "true").trim());
+        collisions = collide ? new CollisionGrid(bodySize) : null;
+
+        String storage = reader.getProperties().getProperty("storage", "list").toLowerCase();
+        String listType = reader.getProperties().getProperty("list", "arraylist").toLowerCase();
+        if (storage.equals("soa")) {
+            store = new BodyStore();
+            this.storage = store;
+        } else if (storage.equals("offheap")) {
+            this.storage = new OffHeapBodyStore();
+        } else {
+            bodies = newList(listType);
+        }
+
+        double sx = reader.getDouble("star_position_x", width / 2.0);
+        double sy = reader.getDouble("star_position_y", height / 2.0);
+        double svx = reader.getDouble("star_velocity_x", 0);
+        double svy = reader.getDouble("star_velocity_y", 0);
+        int sSize = reader.getInt("star_size", 30);
+        double sMass = reader.getDouble("star_mass", 2E29);
+
+        String scenarioFile = config.getProperty("scenario_file", "").trim();
+        if (!scenarioFile.isEmpty() && loadScenario(Paths.get(scenarioFile))) {
+            star = bodies != null ? bodies.get(0) : null;
+        } else if (this.storage != null) {
+            this.storage.add(sx, sy, sSize, svx, svy, sMass, Palette.STAR);
+        } else {
+            star = new CelestialBody(sx, sy, sSize, svx, svy, sMass, Palette.STAR);
+            bodies.add(star);
+        }
+
+        String checkpointFile = config.getProperty("checkpoint_file", "").trim();
+        checkpointInterval = reader.getInt("checkpoint_interval", 10000);
+        checkpoints = !checkpointFile.isEmpty() && checkpointInterval > 0
+                ? new CheckpointWriter(Paths.get(checkpointFile)) : null;
+
+        String recordFile = config.getProperty("record_file", "").trim();
+        recordInterval = Math.max(1, reader.getInt("record_interval", 1));
+        recorder = recordFile.isEmpty() ? null : openRecorder(recordFile, reader, resumeTick);
+
+        jfrEvents = Boolean.parseBoolean(config.getProperty("jfr_events", "false").trim());
+        metrics.register();
+    }
+
+    /**
+     * Reads the mean number of comets spawned per tick at each edge, or
+     * returns null if no spawn rate is set.
+     *
+     * @param reader the configuration to read the rates from.
+     * @return the rates for the top, bottom, left, and right edges, or
+     * null.
+     */
+    static double[] readSpawnRates(PropertyReader reader) {
+        String[] edges = {"top", "bottom", "left", "right"};
+        boolean set = isSet(reader, "spawn_rate");
+        for (String edge : edges) {
+            set |= isSet(reader, "spawn_rate_" + edge);
+        }
+        if (!set) {
+            return null;
+        }
+
+        double rate = reader.getDouble("spawn_rate", 0);
+        double[] rates = new double[edges.length];
+        for (int e = 0; e < edges.length; e++) {
+            rates[e] = Math.max(0, reader.getDouble("spawn_rate_" + edges[e], rate / 4));
+        }
+        return rates;
+    }
+
+    /**
+     * Streams the bodies of a scenario file straight into the list or
+     * store, or leaves them empty, so the run starts with just the
+     * configured star, if the file cannot be read.
+     *
+     * @param path the scenario file.
+     * @return true if the scenario was loaded and has at least one body.
+     */
+    private boolean loadScenario(Path path) {
+        try {
+            long count = ScenarioFile.read(path, this::addScenarioBody);
+            if (count > 0) {
+                return true;
+            }
+            System.err.println("Not loading scenario, " + path + " has no bodies");
+        } catch (NoSuchFileException e) {
+            System.err.println("Not loading scenario, " + path + " does not exist");
+        } catch (IOException e) {
+            System.err.println("Not loading scenario, " + e.getMessage());
+        }
+        if (storage != null) {
+            storage.clear();
+        } else {
+            bodies.removeRange(0, bodies.size());
+        }
+        return false;
+    }
+
+    private void addScenarioBody(double x, double y, double vx, double vy, double mass, int size, byte palette) {
+        if (storage != null) {
+            storage.add(x, y, size, vx, vy, mass, palette);
+        } else {
+            bodies.add(new CelestialBody(x, y, size, vx, vy, mass, palette));
+        }
+    }
+
+    private static boolean isSet(PropertyReader reader, String key) {
+        return reader.getProperties().getProperty(key) != null;
+    }
+
+    /**
+     * Opens the trajectory file named by record_file, or returns null,
+     * so the run goes on unrecorded, if it cannot be created or, for a
+     * restored run, continued.
+     *
+     * @param recordFile the trajectory file.
+     * @param reader the configuration to read the recording settings from.
+     * @param resumeTick the tick a restored run continues from, or -1.
+     * @return the recorder, or null.
+     */
+    private TrajectoryRecorder openRecorder(String recordFile, PropertyReader reader, long resumeTick) {
+        try {
+            return new TrajectoryRecorder(Paths.get(recordFile), width, height, (int) recordInterval,
+                    reader.getInt("record_keyframe_interval", 64), reader.getDouble("record_precision", 0.01),
+                    resumeTick);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Not recording, cannot write " + recordFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Constructs a simulation that continues from the given checkpoint,
+     * with the checkpoint's configuration, bodies, random generator
+     * state, and tick count, so it runs on bit for bit like the run the
+     * checkpoint was taken from. A trajectory being recorded is continued
+     * from the checkpoint's tick.
+     *
+     * @param checkpoint the checkpoint to continue from.
+     * @return the restored simulation.
+     */
+    public static Simulation restore(Checkpoint checkpoint) {
+        PropertyReader reader = new PropertyReader(checkpoint.getConfig());
+        // the checkpoint holds the bodies, so the scenario is not loaded again
+        reader.getProperties().remove("scenario_file");
+        Simulation simulation = new Simulation(reader, checkpoint.getRandom(), checkpoint.getTick());
+        simulation.load(checkpoint);
+        return simulation;
+    }
+
+    /**
+     * Replaces the bodies and tick count with the checkpoint's. The
+     * first body of the checkpoint becomes the star.
+     *
+     * @param c the checkpoint to load.
+     */
+    private void load(Checkpoint c) {
+        int n = c.count;
+        if (store != null) {
+            store = new BodyStore(n);
+            System.arraycopy(c.x, 0, store.x, 0, n);
+            System.arraycopy(c.y, 0, store.y, 0, n);
+            System.arraycopy(c.vx, 0, store.vx, 0, n);
+            System.arraycopy(c.vy, 0, store.vy, 0, n);
+            System.arraycopy(c.mass, 0, store.mass, 0, n);
+            System.arraycopy(c.size, 0, store.size, 0, n);
+            System.arraycopy(c.palette, 0, store.palette, 0, n);
+            store.count = n;
+            storage = store;
+        } else if (storage != null) {
+            storage.clear();
+            for (int i = 0; i < n; i++) {
+                storage.add(c.x[i], c.y[i], c.size[i], c.vx[i], c.vy[i], c.mass[i], c.palette[i]);
+            }
+        } else {
+            bodies.removeRange(0, bodies.size());
+            for (int i = 0; i < n; i++) {
+                bodies.add(new CelestialBody(c.x[i], c.y[i], c.size[i], c.vx[i], c.vy[i], c.mass[i],
+                        c.palette[i]));
+            }
+            star = n > 0 ? bodies.get(0) : null;
+        }
+        ticks = c.getTick();
+    }
+
+    /**
+     * Copies the full state of the simulation into a new checkpoint.
+     *
+     * @return the checkpoint.
+     */
+    public Checkpoint snapshot() {
+        int n = getBodyCount();
+        Properties saved = config;
+        if (spawnRates != null && config.getProperty("seed") == null) {
+            // keep the drawn stream seed so a restored run spawns the same comets
+            saved = new Properties();
+            saved.putAll(config);
+            saved.setProperty("seed", Long.toString(spawnSeed));
+        }
+        Checkpoint c = new Checkpoint(saved, ticks, random, n);
+        if (store != null) {
+            System.arraycopy(store.x, 0, c.x, 0, n);
+            System.arraycopy(store.y, 0, c.y, 0, n);
+            System.arraycopy(store.vx, 0, c.vx, 0, n);
+            System.arraycopy(store.vy, 0, c.vy, 0, n);
+            System.arraycopy(store.mass, 0, c.mass, 0, n);
+            System.arraycopy(store.size, 0, c.size, 0, n);
+            System.arraycopy(store.palette, 0, c.palette, 0, n);
+        } else if (storage != null) {
+            for (int i = 0; i < n; i++) {
+                c.x[i] = storage.getX(i);
+                c.y[i] = storage.getY(i);
+                c.vx[i] = storage.getVx(i);
+                c.vy[i] = storage.getVy(i);
+                c.mass[i] = storage.getMass(i);
+                c.size[i] = storage.getSize(i);
+                c.palette[i] = storage.getPalette(i);
+            }
+        } else {
+            int i = 0;
+            for (CelestialBody body : bodies) {
+                c.x[i] = body.getX();
+                c.y[i] = body.getY();
+                c.vx[i] = body.getVx();
+                c.vy[i] = body.getVy();
+                c.mass[i] = body.getMass();
+                c.size[i] = body.getSize();
+                c.palette[i] = body.getPalette();
+                i++;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Creates an empty list of the type named by the list property:
+     * single, double, dummyhead, unrolled, skiplist, ring, or arraylist
+     * for anything else.
+     *
+     * @param listType the name of the list type.
+     * @return a new empty list.
+     */
+    static <T> List<T> newList(String listType) {
+        if (listType.equals("single")) {
+            return new LinkedList<>();
+        } else if (listType.equals("double")) {
+            return new DoublyLinkedList<>();
+        } else if (listType.equals("dummyhead")) {
+            return new DummyHeadLinkedList<>();
+        } else if (listType.equals("unrolled")) {
+            return new UnrolledLinkedList<>();
+        } else if (listType.equals("skiplist")) {
+            return new IndexedSkipList<>();
+        } else if (listType.equals("ring")) {
+            return new RingArrayList<>();
+        } else {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Creates the kernels with the given name: "vector" for VectorKernels
+     * of the given width, if the jdk.incubator.vector module is present,
+     * or ScalarKernels for anything else. VectorKernels is loaded by
+     * name, so without the module it is never linked.
+     *
+     * @param name the simd property.
+     * @param bits the vector width in bits, or 0 for the widest.
+     * @return the kernels.
+     */
+    static Kernels newKernels(String name, int bits) {
+        if (name.equals("vector")) {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                System.err.println("Using scalar kernels, run with --add-modules jdk.incubator.vector"
+                        + " for vector kernels");
+                return new ScalarKernels();
+            }
+            try {
+                return (Kernels) Class.forName("project02.VectorKernels")
+                        .getMethod("of", int.class).invoke(null, bits);
+            } catch (ReflectiveOperationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                System.err.println("Using scalar kernels: " + cause.getMessage());
+            }
+        }
+        return new ScalarKernels();
+    }
+
+    /**
+     * Creates the integrator with the given name: "leapfrog" or "block",
+     * or anything else for the Euler scheme.
+     *
+     * @param name the integrator property.
+     * @param tree the tree to compute gravity with.
+     * @param stepper the threads to split the bodies over.
+     * @param kernels the kernels to kick and drift with.
+     * @param gravity the gravitational constant.
+     * @param softening the softening length.
+     * @param reader the configuration to read the block settings from.
+     * @return the integrator.
+     */
+    static Integrator newIntegrator(String name, BarnesHutTree tree, ParallelStepper stepper, Kernels kernels,
+            double gravity, double softening, PropertyReader reader) {
+        if (name.equals("leapfrog") || name.equals("verlet")) {
+            return new LeapfrogIntegrator(tree, stepper, kernels);
+        } else if (name.equals("block")) {
+            return new BlockTimestepIntegrator(tree, stepper, gravity, softening,
+                    reader.getInt("block_max_level", 8), reader.getDouble("block_accuracy", 0.02));
+        } else {
+            return new EulerIntegrator(tree, stepper, kernels);
+        }
+    }
+
+    /**
+     * Advances the simulation by one tick: applies gravity, moves every
+     * body, merges colliding bodies, removes off-screen bodies, and
+     * occasionally spawns a new one at an edge. The time spent in each
+     * phase is recorded in the metrics, and in a TickEvent when
+     * jfr_events is set. Every checkpoint_interval ticks a checkpoint is
+     * queued for writing, if checkpoint_file is set, and every
+     * record_interval ticks a frame is recorded, if record_file is set.
+     */
+    public void tick() {
+        TickEvent event = jfrEvents ? new TickEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+
+        long start = System.nanoTime();
+        long evaluated = integrate();
+        long integrated = System.nanoTime();
+        collide();
+        long collided = System.nanoTime();
+        int culledNow = cull();
+        long culledAt = System.nanoTime();
+        int spawnedNow = spawn();
+        long end = System.nanoTime();
+        ticks++;
+
+        int bodyCount = getBodyCount();
+        metrics.recordTick(ticks, start, integrated, collided, culledAt, end, spawnedNow, culledNow, bodyCount,
+                evaluated);
+        if (event != null && event.shouldCommit()) {
+            event.tick = ticks;
+            event.bodies = bodyCount;
+            event.spawned = spawnedNow;
+            event.culled = culledNow;
+            event.forceEvaluations = evaluated;
+            event.integrate = integrated - start;
+            event.collide = collided - integrated;
+            event.cull = culledAt - collided;
+            event.spawn = end - culledAt;
+            event.commit();
+        }
+
+        if (checkpoints != null && ticks % checkpointInterval == 0) {
+            checkpoints.submit(snapshot());
+        }
+        if (recorder != null && ticks % recordInterval == 0) {
+            recorder.record(this);
+        }
+    }
+
+    /**
+     * Moves every body under gravity by one tick, in substeps steps of
+     * the integrator. The store is stepped in place; the list and the
+     * off-heap store are copied into arrays and back.
+     *
+     * @return the number of force evaluations.
+     */
+    private long integrate() {
+        double dt = 1.0 / substeps;
+        long evaluations = 0;
+        if (store != null) {
+            for (int s = 0; s < substeps; s++) {
+                evaluations += integrator.step(store.x, store.y, store.vx, store.vy, store.mass, store.count, dt);
+            }
+            return evaluations;
+        }
+
+        int n = getBodyCount();
+        ensureScratch(n);
+
+        if (storage != null) {
+            for (int i = 0; i < n; i++) {
+                px[i] = storage.getX(i);
+                py[i] = storage.getY(i);
+                pvx[i] = storage.getVx(i);
+                pvy[i] = storage.getVy(i);
+                pm[i] = storage.getMass(i);
+            }
+        } else {
+            int i = 0;
+            for (CelestialBody body : bodies) {
+                px[i] = body.getX();
+                py[i] = body.getY();
+                pvx[i] = body.getVx();
+                pvy[i] = body.getVy();
+                pm[i] = body.getMass();
+                i++;
+            }
+        }
+
+        for (int s = 0; s < substeps; s++) {
+            evaluations += integrator.step(px, py, pvx, pvy, pm, n, dt);
+        }
+
+        if (storage != null) {
+            for (int i = 0; i < n; i++) {
+                storage.setX(i, px[i]);
+                storage.setY(i, py[i]);
+                storage.setVx(i, pvx[i]);
+                storage.setVy(i, pvy[i]);
+            }
+        } else {
+            int i = 0;
+            for (CelestialBody body : bodies) {
+                body.setX(px[i]);
+                body.setY(py[i]);
+                body.setVx(pvx[i]);
+                body.setVy(pvy[i]);
+                i++;
+            }
+        }
+        return evaluations;
+    }
+
+    /**
+     * Makes sure the scratch arrays the list and off-heap paths copy
+     * bodies into hold at least n bodies.
+     *
+     * @param n the number of bodies.
+     */
+    private void ensureScratch(int n) {
+        if (px.length < n) {
+            int capacity = Math.max(n, px.length * 2);
+            px = new double[capacity];
+            py = new double[capacity];
+            pm = new double[capacity];
+            pvx = new double[capacity];
+            pvy = new double[capacity];
+            psize = new int[capacity];
+        }
+    }
+
+    /**
+     * Merges the overlapping bodies, if collisions are on. The bodies
+     * merged away are flagged in dead, in body order, for the cull to
+     * remove.
+     */
+    private void collide() {
+        dead = null;
+        if (collisions == null) {
+            return;
+        }
+
+        if (store != null) {
+            if (collisions.resolve(store.x, store.y, store.vx, store.vy, store.mass, store.size, store.count, 0) > 0) {
+                dead = collisions.getDead();
+            }
+        } else if (storage != null) {
+            collideStorage();
+        } else {
+            collideList();
+        }
+    }
+
+    /**
+     * Removes the bodies that were merged away or left the window in a
+     * single pass, never removing the star. The stores swap-remove from
+     * the end, so the star at index 0 is never moved.
+     *
+     * @return the number of bodies removed.
+     */
+    private int cull() {
+        int before = getBodyCount();
+        if (store != null) {
+            int n = store.count;
+            if (offScreen.length < n) {
+                offScreen = new boolean[Math.max(n, offScreen.length * 2)];
+            }
+            // flag first, so a tick without culls skips the removal pass
+            if (kernels.offScreen(store.x, store.y, store.size, width, height, offScreen, 1, n) > 0
+                    || dead != null) {
+                for (int i = n - 1; i > 0; i--) {
+                    if (offScreen[i] || (dead != null && dead[i])) {
+                        store.swapRemove(i);
+                    }
+                }
+            }
+        } else if (storage != null) {
+            for (int i = storage.size() - 1; i > 0; i--) {
+                double x = storage.getX(i), y = storage.getY(i);
+                int s = storage.getSize(i);
+                if ((dead != null && dead[i]) || x < -s || x > width + s || y < -s || y > height + s) {
+                    storage.swapRemove(i);
+                }
+            }
+        } else {
+            cullIndex = 0;
+            bodies.removeIf(culled);
+        }
+        return before - getBodyCount();
+    }
+
+    /**
+     * Copies the list into arrays, merges the overlapping bodies, and
+     * writes the merged bodies back. The bodies merged away are flagged
+     * in dead, in list order, for the cull to remove.
+     */
+    private void collideList() {
+        int n = bodies.size();
+        ensureScratch(n);
+
+        int i = 0;
+        for (CelestialBody body : bodies) {
+            px[i] = body.getX();
+            py[i] = body.getY();
+            pvx[i] = body.getVx();
+            pvy[i] = body.getVy();
+            pm[i] = body.getMass();
+            psize[i] = body.getSize();
+            i++;
+        }
+
+        if (collisions.resolve(px, py, pvx, pvy, pm, psize, n, 0) == 0) {
+            return;
+        }
+        dead = collisions.getDead();
+
+        i = 0;
+        for (CelestialBody body : bodies) {
+            if (!dead[i] && pm[i] != body.getMass()) {
+                body.setX(px[i]);
+                body.setY(py[i]);
+                body.setVx(pvx[i]);
+                body.setVy(pvy[i]);
+                body.setMass(pm[i]);
+                body.setSize(psize[i]);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Returns true if the body was merged into another or left the
+     * window, and hands a culled body back to the body pool. Called once
+     * per body in list order by removeIf.
+     *
+     * @param b the body to check.
+     * @return true if the body should be removed.
+     */
+    private boolean isCulled(CelestialBody b) {
+        boolean merged = dead != null && dead[cullIndex];
+        cullIndex++;
+        if (merged || isOffScreen(b)) {
+            bodyPool.release(b);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the body has left the window by more than its
+     * own size. The star is never considered off screen.
+     *
+     * @param b the body to check.
+     * @return true if the body should be removed.
+     */
+    private boolean isOffScreen(CelestialBody b) {
+        return b != star && (b.getX() < -b.getSize() || b.getX() > width + b.getSize()
+            || b.getY() < -b.getSize() || b.getY() > height + b.getSize());
+    }
+
+    /**
+     * Copies the off-heap store into arrays, merges the overlapping
+     * bodies, and writes only the merged bodies back, like the list
+     * path. The bodies merged away are flagged in dead.
+     */
+    private void collideStorage() {
+        int n = storage.size();
+        ensureScratch(n);
+        for (int i = 0; i < n; i++) {
+            px[i] = storage.getX(i);
+            py[i] = storage.getY(i);
+            pvx[i] = storage.getVx(i);
+            pvy[i] = storage.getVy(i);
+            pm[i] = storage.getMass(i);
+            psize[i] = storage.getSize(i);
+        }
+
+        if (collisions.resolve(px, py, pvx, pvy, pm, psize, n, 0) == 0) {
+            return;
+        }
+        dead = collisions.getDead();
+
+        for (int i = 0; i < n; i++) {
+            if (!dead[i] && pm[i] != storage.getMass(i)) {
+                storage.setX(i, px[i]);
+                storage.setY(i, py[i]);
+                storage.setVx(i, pvx[i]);
+                storage.setVy(i, pvy[i]);
+                storage.setMass(i, pm[i]);
+                storage.setSize(i, psize[i]);
+            }
+        }
+    }
+
+    /**
+     * Spawns this tick's comets: the initial burst on the first tick,
+     * then either a Poisson-distributed number per edge or at most one
+     * with the chances gen_x and gen_y. The comets are generated into
+     * per-edge buffers first and then added edge by edge, those bound
+     * for a list in one addAll.
+     *
+     * @return the number of comets spawned.
+     */
+    private int spawn() {
+        if (ticks == 0) {
+            for (int i = 0; i < spawnInitial; i++) {
+                comet(random.nextInt(EDGES), random.nextDouble(), random);
+            }
+        }
+
+        if (spawnRates != null) {
+            double expected = 0;
+            for (int edge = 0; edge < EDGES; edge++) {
+                edgeStreams[edge].reseed(SpawnStream.seed(spawnSeed, ticks, edge));
+                expected += spawnRates[edge];
+            }
+            if (expected >= PARALLEL_SPAWN) {
+                stepper.forRange(EDGES, 1, spawnEdges);
+            } else {
+                spawnEdges(0, EDGES);
+            }
+        } else if (random.nextDouble() < genX || random.nextDouble() < genY) {
+            boolean horizontal = random.nextBoolean();
+            double along = random.nextDouble();
+            if (horizontal) {
+                comet(random.nextBoolean() ? TOP : BOTTOM, along, random);
+            } else {
+                comet(random.nextBoolean() ? LEFT : RIGHT, along, random);
+            }
+        }
+
+        int spawned = 0;
+        for (int edge = 0; edge < EDGES; edge++) {
+            double[] x = spawnX[edge], y = spawnY[edge], vx = spawnVx[edge], vy = spawnVy[edge];
+            for (int i = 0; i < spawnCount[edge]; i++) {
+                if (storage != null) {
+                    storage.add(x[i], y[i], bodySize, vx[i], vy[i], bodyMass, Palette.COMET);
+                } else {
+                    arrivals.add(bodyPool.acquire().reset(x[i], y[i], bodySize, vx[i], vy[i], bodyMass,
+                            Palette.COMET));
+                }
+            }
+            spawned += spawnCount[edge];
+            spawnCount[edge] = 0;
+        }
+        if (arrivals.size() > 0) {
+            bodies.addAll(arrivals);
+            arrivals.removeRange(0, arrivals.size());
+        }
+        return spawned;
+    }
+
+    /**
+     * Generates the Poisson-distributed comets of edges from (inclusive)
+     * to to (exclusive), each from its own stream for this tick.
+     */
+    private void spawnEdges(int from, int to) {
+        for (int edge = from; edge < to; edge++) {
+            SpawnStream stream = edgeStreams[edge];
+            for (int k = poisson(stream, spawnRates[edge]); k > 0; k--) {
+                comet(edge, stream.nextDouble(), stream);
+            }
+        }
+    }
+
+    /**
+     * Generates a comet on the given edge of the window with a random
+     * inward velocity into that edge's spawn buffer.
+     *
+     * @param edge TOP, BOTTOM, LEFT, or RIGHT.
+     * @param along the position along the edge, from 0 to 1.
+     * @param rng the generator to draw the velocity from.
+     */
+    private void comet(int edge, double along, RandomGenerator rng) {
+        double x, y, vx, vy;
+
+        if (edge == TOP || edge == BOTTOM) {
+            x = along * width;
+            if (edge == TOP) {
+                y = 0;
+                vy = 1 + rng.nextInt(bodyVelocity);
+            } else {
+                y = height;
+                vy = -1 - rng.nextInt(bodyVelocity);
+            }
+            vx = rng.nextInt(bodyVelocity * 2 + 1) - bodyVelocity;
+            if (vx == 0) {
+                vx = 1; // ensure non-zero velocity
+            }
+        } else {
+            y = along * height;
+            if (edge == LEFT) {
+                x = 0;
+                vx = 1 + rng.nextInt(bodyVelocity);
+            } else {
+                x = width;
+                vx = -1 - rng.nextInt(bodyVelocity);
+            }
+            vy = rng.nextInt(bodyVelocity * 2 + 1) - bodyVelocity;
+            if (vy == 0) {
+                vy = 1; // ensure non-zero velocity
+            }
+        }
+
+        int i = spawnCount[edge]++;
+        if (i == spawnX[edge].length) {
+            int capacity = Math.max(16, i * 2);
+            spawnX[edge] = Arrays.copyOf(spawnX[edge], capacity);
+            spawnY[edge] = Arrays.copyOf(spawnY[edge], capacity);
+            spawnVx[edge] = Arrays.copyOf(spawnVx[edge], capacity);
+            spawnVy[edge] = Arrays.copyOf(spawnVy[edge], capacity);
+        }
+        spawnX[edge][i] = x;
+        spawnY[edge][i] = y;
+        spawnVx[edge][i] = vx;
+        spawnVy[edge][i] = vy;
+    }
+
+    /**
+     * Draws a Poisson-distributed count with the given mean: by
+     * multiplying uniform draws for small means, and from the normal
+     * approximation, rounded and floored at 0, from a mean of 30 up.
+     *
+     * @param rng the generator to draw from.
+     * @param mean the mean.
+     * @return the count.
+     */
+    static int poisson(RandomGenerator rng, double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        if (mean >= 30) {
+            return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * rng.nextGaussian()));
+        }
+
+        double limit = Math.exp(-mean);
+        double product = rng.nextDouble();
+        int k = 0;
+        while (product > limit) {
+            product *= rng.nextDouble();
+            k++;
+        }
+        return k;
+    }
+
+    /**
+     * Copies the position, size, and color of every body into the
+     * given frame, stamped with the current tick.
+     *
+     * @param frame the frame to write into.
+     */
+    public void copyTo(Frame frame) {
+        if (store != null) {
+            int n = store.count;
+            frame.resize(n);
+            System.arraycopy(store.x, 0, frame.x, 0, n);
+            System.arraycopy(store.y, 0, frame.y, 0, n);
+            System.arraycopy(store.size, 0, frame.size, 0, n);
+            System.arraycopy(store.palette, 0, frame.palette, 0, n);
+        } else if (storage != null) {
+            int n = storage.size();
+            frame.resize(n);
+            for (int i = 0; i < n; i++) {
+                frame.x[i] = storage.getX(i);
+                frame.y[i] = storage.getY(i);
+                frame.size[i] = storage.getSize(i);
+                frame.palette[i] = storage.getPalette(i);
+            }
+        } else {
+            frame.resize(bodies.size());
+            int i = 0;
+            for (CelestialBody body : bodies) {
+                frame.x[i] = body.getX();
+                frame.y[i] = body.getY();
+                frame.size[i] = body.getSize();
+                frame.palette[i] = body.getPalette();
+                i++;
+            }
+        }
+        frame.tick = ticks;
+    }
+
+    /**
+     * Returns the number of bodies currently in the simulation,
+     * including the star.
+     *
+     * @return the body count.
+     */
+    public int getBodyCount() {
+        return storage != null ? storage.size() : bodies.size();
+    }
+
+    /**
+     * Finishes writing the last checkpoint and the recorded frames,
+     * frees the memory of an off-heap store, and stops the worker
+     * threads. The simulation must not be used afterwards.
+     */
+    public void close() {
+        if (recorder != null) {
+            recorder.close();
+        }
+        metrics.unregister();
+        if (checkpoints != null) {
+            checkpoints.close();
+        }
+        if (storage != null) {
+            storage.close();
+        }
+        stepper.shutdown();
+    }
+
+    /**
+     * Returns the body list, or null when the simulation uses a
+     * BodyStore or OffHeapBodyStore.
+     *
+     * @return the body list.
+     */
+    public List<CelestialBody> getBodies() {
+        return bodies;
+    }
+
+    /**
+     * Returns the body store, or null unless storage is soa.
+     *
+     * @return the body store.
+     */
+    public BodyStore getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the body storage when storage is soa or offheap, or null
+     * when the simulation uses a list.
+     *
+     * @return the body storage.
+     */
+    public BodyStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Returns the kernels the inner loops run on.
+     *
+     * @return the kernels.
+     */
+    public Kernels getKernels() {
+        return kernels;
+    }
+
+    /**
+     * Returns the timing histograms and body counters of this simulation.
+     *
+     * @return the metrics.
+     */
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the pool culled comets are recycled through.
+     *
+     * @return the body pool.
+     */
+    public Pool<CelestialBody> getBodyPool() {
+        return bodyPool;
+    }
+
+    /**
+     * Returns the number of ticks run so far.
+     *
+     * @return the tick count.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the width of the simulated area in pixels.
+     *
+     * @return the width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the simulated area in pixels.
+     *
+     * @return the height.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,210 @@
+package project02;
+
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Class that collects the per-tick timing and body counts of a
+ * Simulation, and the paint timing of the panel drawing it, and exposes
+ * them as the MassiveMotion MBean.
+ *
+ * Each histogram and counter has a single writer, the simulation thread
+ * or the painter, and any thread may read them. Recording a tick costs
+ * a few nanoTime calls and atomic increments, and allocates nothing.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class SimulationMetrics implements MassiveMotionMXBean {
+
+    private static final String NAME = "project02:type=MassiveMotion";
+
+    final LatencyHistogram integrate = new LatencyHistogram();
+    final LatencyHistogram collide = new LatencyHistogram();
+    final LatencyHistogram cull = new LatencyHistogram();
+    final LatencyHistogram spawn = new LatencyHistogram();
+    final LatencyHistogram tick = new LatencyHistogram();
+    final LatencyHistogram paint = new LatencyHistogram();
+
+    // written only by the simulation thread
+    private volatile long ticks;
+    private volatile int alive;
+    private volatile long spawned, culled;
+    private volatile long forceEvaluations;
+
+    private ObjectName name;
+
+    /**
+     * Records the phase boundaries and body counts of one tick.
+     *
+     * @param ticks the tick count after the tick.
+     * @param start the nanoTime the tick started at.
+     * @param integrated the nanoTime gravity and drift finished at.
+     * @param collided the nanoTime collisions finished at.
+     * @param culledAt the nanoTime the cull finished at.
+     * @param end the nanoTime the spawn finished at.
+     * @param spawnedNow the number of bodies spawned in the tick.
+     * @param culledNow the number of bodies removed in the tick.
+     * @param bodies the number of bodies after the tick.
+     * @param evaluatedNow the number of force evaluations in the tick.
+     */
+    void recordTick(long ticks, long start, long integrated, long collided, long culledAt, long end,
+            int spawnedNow, int culledNow, int bodies, long evaluatedNow) {
+        recordPhases(ticks, integrated - start, collided - integrated, culledAt - collided, end - culledAt,
+                end - start, spawnedNow, culledNow, bodies, evaluatedNow);
+    }
+
+    /**
+     * Records the phase durations and body counts of one tick, for runs
+     * whose phases are timed elsewhere, such as by worker processes.
+     *
+     * @param ticks the tick count after the tick.
+     * @param integrateNanos the time spent on gravity and drift.
+     * @param collideNanos the time spent on collisions.
+     * @param cullNanos the time spent on the cull.
+     * @param spawnNanos the time spent spawning.
+     * @param tickNanos the time the whole tick took.
+     * @param spawnedNow the number of bodies spawned in the tick.
+     * @param culledNow the number of bodies removed in the tick.
+     * @param bodies the number of bodies after the tick.
+     * @param evaluatedNow the number of force evaluations in the tick.
+     */
+    void recordPhases(long ticks, long integrateNanos, long collideNanos, long cullNanos, long spawnNanos,
+            long tickNanos, int spawnedNow, int culledNow, int bodies, long evaluatedNow) {
+        integrate.record(integrateNanos);
+        collide.record(collideNanos);
+        cull.record(cullNanos);
+        spawn.record(spawnNanos);
+        tick.record(tickNanos);
+
+        spawned += spawnedNow;
+        culled += culledNow;
+        forceEvaluations += evaluatedNow;
+        alive = bodies;
+        this.ticks = ticks;
+    }
+
+    /**
+     * Records the time taken to paint one frame.
+     *
+     * @param nanos the paint time in nanoseconds.
+     */
+    public void recordPaint(long nanos) {
+        paint.record(nanos);
+    }
+
+    /**
+     * Registers this object with the platform MBean server, as
+     * project02:type=MassiveMotion, or with an id added if that name is
+     * taken by another simulation in the same JVM. Failing to register
+     * is reported and otherwise ignored.
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (int id = 1; name == null; id++) {
+                ObjectName candidate = new ObjectName(id == 1 ? NAME : NAME + ",id=" + id);
+                try {
+                    server.registerMBean(this, candidate);
+                    name = candidate;
+                } catch (InstanceAlreadyExistsException e) {
+                    // try the next id
+                }
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register the MassiveMotion MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes this object from the platform MBean server, if registered.
+     */
+    public void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // already gone
+        }
+        name = null;
+    }
+
+    /**
+     * Returns the name this object is registered under, or null.
+     *
+     * @return the MBean name.
+     */
+    public ObjectName getName() {
+        return name;
+    }
+
+    @Override
+    public long getTicks() {
+        return ticks;
+    }
+
+    @Override
+    public int getBodiesAlive() {
+        return alive;
+    }
+
+    @Override
+    public long getBodiesSpawned() {
+        return spawned;
+    }
+
+    @Override
+    public long getBodiesCulled() {
+        return culled;
+    }
+
+    @Override
+    public long getForceEvaluations() {
+        return forceEvaluations;
+    }
+
+    @Override
+    public PhaseStats getIntegrate() {
+        return PhaseStats.of(integrate);
+    }
+
+    @Override
+    public PhaseStats getCollide() {
+        return PhaseStats.of(collide);
+    }
+
+    @Override
+    public PhaseStats getCull() {
+        return PhaseStats.of(cull);
+    }
+
+    @Override
+    public PhaseStats getSpawn() {
+        return PhaseStats.of(spawn);
+    }
+
+    @Override
+    public PhaseStats getTick() {
+        return PhaseStats.of(tick);
+    }
+
+    @Override
+    public PhaseStats getPaint() {
+        return PhaseStats.of(paint);
+    }
+
+    @Override
+    public void reset() {
+        integrate.reset();
+        collide.reset();
+        cull.reset();
+        spawn.reset();
+        tick.reset();
+        paint.reset();
+    }
+}
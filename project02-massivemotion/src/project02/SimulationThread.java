@@ -0,0 +1,125 @@
+package project02;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a Simulation, or any other World, on its own thread at a fixed
+ * tick rate, independent of how fast the panel paints. Each pass of the
+ * loop adds the elapsed time to an accumulator and runs one tick for
+ * every whole step in it, so a slow paint or a slow tick is made up for
+ * by later ticks instead of slowing the simulation down.
+ *
+ * After ticking, the thread publishes a Frame snapshot. Frames rotate
+ * through three buffers: the one being written, the one published, and
+ * the one the painter holds. The painter swaps its frame for the
+ * published one with a single atomic exchange, so neither side ever
+ * waits for the other and a published frame is never written while it
+ * is being drawn.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class SimulationThread implements Runnable, FrameSource {
+
+    // at most this many ticks are run to catch up after a stall
+    private static final int MAX_CATCH_UP = 10;
+
+    private final World simulation;
+    private final long stepNanos;
+    private final AtomicReference<Frame> published;
+    private Frame back;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Constructs a thread that will run the simulation at the given rate.
+     *
+     * @param simulation the simulation to run; after start it must only
+     * be used from this thread.
+     * @param tickRate the number of ticks per second.
+     */
+    public SimulationThread(World simulation, double tickRate) {
+        this.simulation = simulation;
+        this.stepNanos = (long) (1e9 / tickRate);
+
+        Frame first = new Frame();
+        simulation.copyTo(first);
+        published = new AtomicReference<>(first);
+        back = new Frame();
+    }
+
+    /**
+     * Starts the simulation thread.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Asks the simulation thread to stop and waits for it to finish.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join();
+            thread = null;
+        }
+    }
+
+    /**
+     * The fixed timestep loop.
+     */
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator = Math.min(accumulator + now - previous, MAX_CATCH_UP * stepNanos);
+            previous = now;
+
+            boolean ticked = false;
+            while (accumulator >= stepNanos) {
+                simulation.tick();
+                accumulator -= stepNanos;
+                ticked = true;
+            }
+
+            if (ticked) {
+                simulation.copyTo(back);
+                back = published.getAndSet(back);
+            }
+
+            LockSupport.parkNanos(stepNanos - accumulator);
+        }
+    }
+
+    /**
+     * Returns the newest published frame, handing the caller's current
+     * frame back for reuse. If nothing newer has been published, the
+     * caller's frame is returned unchanged. Only one thread (the painter)
+     * may call this.
+     *
+     * @param front the frame the caller is done with.
+     * @return the newest frame.
+     */
+    @Override
+    public Frame acquire(Frame front) {
+        if (published.get().tick > front.tick) {
+            return published.getAndSet(front);
+        }
+        return front;
+    }
+}
@@ -0,0 +1,65 @@
+package project02;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A SplitMix64 random generator that is reseeded in place instead of
+ * being created anew, for the streams comets are spawned from every tick.
+ *
+ * The seed of each stream comes from seed(base, tick, stream), a
+ * stateless mix of the three, so a stream depends on nothing but which
+ * tick and edge (or worker) it is for, and drawing from it never touches
+ * another stream or allocates.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+final class SpawnStream implements RandomGenerator {
+
+    // the SplitMix64 increment, the golden ratio as a 64-bit odd number
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+    // spacing of the per-tick seeds, an odd constant unrelated to the increment
+    private static final long TICK_STRIDE = 0xBF58476D1CE4E5B9L;
+
+    private long state;
+
+    /**
+     * Returns the seed of the given stream for the given tick.
+     *
+     * @param base the seed of the run.
+     * @param tick the tick count.
+     * @param stream the edge or worker the stream is for.
+     * @return the seed.
+     */
+    static long seed(long base, long tick, int stream) {
+        return mix(mix(base + tick * TICK_STRIDE) + (stream + 1) * GAMMA);
+    }
+
+    /**
+     * The SplitMix64 finalizer, which spreads every bit of its argument
+     * over the whole result.
+     *
+     * @param z the value to mix.
+     * @return the mixed value.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Restarts the stream from the given seed.
+     *
+     * @param seed the seed, usually from seed(base, tick, stream).
+     */
+    void reseed(long seed) {
+        state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        state += GAMMA;
+        return mix(state);
+    }
+}
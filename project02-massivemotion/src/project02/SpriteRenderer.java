@@ -0,0 +1,333 @@
+package project02;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Class that draws a Frame by writing straight into the int[] pixels of
+ * a BufferedImage instead of calling fillOval for every body. Each
+ * (size, color) pair is rasterized once with fillOval, exactly as the
+ * panel used to draw it, and kept as one horizontal span per row, so
+ * drawing a body is one Arrays.fill per row of the circle.
+ *
+ * Bodies are drawn grouped by palette color, in palette order, so the
+ * star is drawn first and the comets on top of it, as before.
+ *
+ * Above a configurable body count the renderer switches to a density
+ * heatmap: every body adds one to the pixel under its center, each
+ * thread counting into its own histogram, and the merged counts are
+ * colored through a logarithmic color map. Only the star and bodies
+ * larger than a size threshold are still drawn as circles, so the cost
+ * of a frame is set by the window size rather than the body count,
+ * apart from one cheap pass to bin the bodies.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class SpriteRenderer {
+
+    /**
+     * A pre-rasterized circle: for every row, the first covered column
+     * and one past the last covered column, relative to the top-left
+     * corner.
+     */
+    private static class Sprite {
+        final int[] start, end;
+
+        Sprite(int[] start, int[] end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final Sprite[][] sprites = new Sprite[Palette.size()][];
+    private final int[] rgb = new int[Palette.size()];
+
+    private BufferedImage image;
+    private int[] pixels;
+    private int width, height;
+
+    private int[] order = new int[0];
+    private final int[] colorStart = new int[Palette.size() + 1];
+
+    private final ParallelStepper stepper;
+    private final int lodThreshold;
+    private final int lodMinSize;
+    private int[][] histograms = new int[0][];
+    private final int[] sliceMax;
+    private final int[] heat = new int[256];
+
+    /**
+     * Constructs a renderer that always draws every body as a circle.
+     */
+    public SpriteRenderer() {
+        this(new ParallelStepper(1), Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Constructs a renderer that switches to a density heatmap above the
+     * given body count.
+     *
+     * @param stepper the threads used to bin bodies into the heatmap.
+     * @param lodThreshold the body count above which the heatmap is used.
+     * @param lodMinSize bodies larger than this are still drawn as circles
+     * in heatmap mode.
+     */
+    public SpriteRenderer(ParallelStepper stepper, int lodThreshold, int lodMinSize) {
+        this.stepper = stepper;
+        this.lodThreshold = lodThreshold;
+        this.lodMinSize = lodMinSize;
+        this.sliceMax = new int[stepper.getThreads()];
+
+        for (byte p = 0; p < Palette.size(); p++) {
+            sprites[p] = new Sprite[0];
+            rgb[p] = PaletteColors.color(p).getRGB();
+        }
+        buildHeatMap();
+    }
+
+    /**
+     * Fills the 256-entry color map, going from pale blue for a single
+     * body through dark blue and red to yellow for the densest pixel.
+     */
+    private void buildHeatMap() {
+        int[][] stops = { { 180, 180, 255 }, { 0, 0, 160 }, { 200, 0, 0 }, { 255, 220, 0 } };
+        for (int i = 0; i < heat.length; i++) {
+            double t = i / 255.0 * (stops.length - 1);
+            int s = Math.min((int) t, stops.length - 2);
+            double f = t - s;
+            int r = (int) Math.round(stops[s][0] + f * (stops[s + 1][0] - stops[s][0]));
+            int g = (int) Math.round(stops[s][1] + f * (stops[s + 1][1] - stops[s][1]));
+            int b = (int) Math.round(stops[s][2] + f * (stops[s + 1][2] - stops[s][2]));
+            heat[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /**
+     * Draws the frame into the renderer's image, resizing the image if
+     * the panel size changed, and returns it.
+     *
+     * @param frame the frame to draw.
+     * @param w the width of the image.
+     * @param h the height of the image.
+     * @param background the color to clear the image to.
+     * @return the image holding the drawn frame.
+     */
+    public BufferedImage render(Frame frame, int w, int h, Color background) {
+        resize(Math.max(w, 1), Math.max(h, 1));
+
+        if (frame.count > lodThreshold) {
+            renderDensity(frame, background.getRGB());
+            return image;
+        }
+
+        Arrays.fill(pixels, background.getRGB());
+        groupByColor(frame);
+        for (byte p = 0; p < Palette.size(); p++) {
+            int color = rgb[p];
+            for (int k = colorStart[p]; k < colorStart[p + 1]; k++) {
+                int i = order[k];
+                int size = frame.size[i];
+                int left = (int) (frame.x[i] - size / 2.0);
+                int top = (int) (frame.y[i] - size / 2.0);
+                blit(sprite(p, size), left, top, color);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Draws the frame as a density heatmap, then draws the star and the
+     * bodies larger than lodMinSize as circles on top.
+     */
+    private void renderDensity(Frame frame, int background) {
+        int pixelCount = width * height;
+        if (histograms.length == 0 || histograms[0].length != pixelCount) {
+            histograms = new int[stepper.getThreads()][pixelCount];
+        }
+
+        stepper.forSlices(frame.count, (slice, from, to) -> bin(frame, histograms[slice], from, to));
+        Arrays.fill(sliceMax, 0);
+        stepper.forSlices(pixelCount, (slice, from, to) -> merge(slice, from, to));
+
+        int max = 0;
+        for (int m : sliceMax) {
+            max = Math.max(max, m);
+        }
+        double scale = max > 0 ? 255.0 / Math.log1p(max) : 0;
+        stepper.forSlices(pixelCount, (slice, from, to) -> colorize(from, to, background, scale));
+
+        for (int i = 0; i < frame.count; i++) {
+            byte p = frame.palette[i];
+            int size = frame.size[i];
+            if (p == Palette.STAR || size > lodMinSize) {
+                int left = (int) (frame.x[i] - size / 2.0);
+                int top = (int) (frame.y[i] - size / 2.0);
+                blit(sprite(p, size), left, top, rgb[p]);
+            }
+        }
+    }
+
+    /**
+     * Counts the bodies from (inclusive) to to (exclusive) into the given
+     * histogram by the pixel under their center.
+     */
+    private void bin(Frame frame, int[] histogram, int from, int to) {
+        double[] x = frame.x, y = frame.y;
+        for (int i = from; i < to; i++) {
+            int px = (int) x[i], py = (int) y[i];
+            if (x[i] >= 0 && y[i] >= 0 && px < width && py < height) {
+                histogram[py * width + px]++;
+            }
+        }
+    }
+
+    /**
+     * Sums every histogram into the first one over a range of pixels,
+     * clears the others for the next frame, and records the largest
+     * count seen by this slice.
+     */
+    private void merge(int slice, int from, int to) {
+        int[] total = histograms[0];
+        for (int h = 1; h < histograms.length; h++) {
+            int[] other = histograms[h];
+            for (int p = from; p < to; p++) {
+                total[p] += other[p];
+            }
+            Arrays.fill(other, from, to, 0);
+        }
+
+        int max = 0;
+        for (int p = from; p < to; p++) {
+            max = Math.max(max, total[p]);
+        }
+        sliceMax[slice] = max;
+    }
+
+    /**
+     * Maps the merged counts over a range of pixels to colors and clears
+     * the counts for the next frame.
+     */
+    private void colorize(int from, int to, int background, double scale) {
+        int[] total = histograms[0];
+        for (int p = from; p < to; p++) {
+            int c = total[p];
+            pixels[p] = c == 0 ? background : heat[Math.min(255, (int) (Math.log1p(c) * scale))];
+            total[p] = 0;
+        }
+    }
+
+    /**
+     * Counting-sorts the frame's body indices by palette color into order.
+     */
+    private void groupByColor(Frame frame) {
+        int n = frame.count;
+        if (order.length < n) {
+            order = new int[Math.max(n, order.length * 2)];
+        }
+
+        Arrays.fill(colorStart, 0);
+        for (int i = 0; i < n; i++) {
+            colorStart[frame.palette[i] + 1]++;
+        }
+        for (int p = 0; p < Palette.size(); p++) {
+            colorStart[p + 1] += colorStart[p];
+        }
+
+        // the counts are consumed below, then restored by shifting back
+        for (int i = 0; i < n; i++) {
+            order[colorStart[frame.palette[i]]++] = i;
+        }
+        for (int p = Palette.size(); p > 0; p--) {
+            colorStart[p] = colorStart[p - 1];
+        }
+        colorStart[0] = 0;
+    }
+
+    /**
+     * Copies the sprite's spans into the image with its top-left corner at
+     * (left, top), clipped to the image.
+     */
+    private void blit(Sprite sprite, int left, int top, int color) {
+        int rows = sprite.start.length;
+        int firstRow = Math.max(0, -top);
+        int lastRow = Math.min(rows, height - top);
+
+        for (int r = firstRow; r < lastRow; r++) {
+            int from = Math.max(left + sprite.start[r], 0);
+            int to = Math.min(left + sprite.end[r], width);
+            if (from < to) {
+                int row = (top + r) * width;
+                Arrays.fill(pixels, row + from, row + to, color);
+            }
+        }
+    }
+
+    /**
+     * Returns the sprite for the given color and size, rasterizing it the
+     * first time it is needed.
+     */
+    private Sprite sprite(byte palette, int size) {
+        size = Math.max(size, 0);
+        Sprite[] bySize = sprites[palette];
+        if (size >= bySize.length) {
+            bySize = Arrays.copyOf(bySize, Math.max(size + 1, bySize.length * 2));
+            sprites[palette] = bySize;
+        }
+        if (bySize[size] == null) {
+            bySize[size] = rasterize(size);
+        }
+        return bySize[size];
+    }
+
+    /**
+     * Draws a circle of the given diameter with fillOval and records the
+     * covered span of every row.
+     */
+    private static Sprite rasterize(int size) {
+        int[] start = new int[size];
+        int[] end = new int[size];
+        if (size == 0) {
+            return new Sprite(start, end);
+        }
+
+        BufferedImage mask = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = mask.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillOval(0, 0, size, size);
+        g.dispose();
+
+        for (int r = 0; r < size; r++) {
+            int first = -1, last = -1;
+            for (int c = 0; c < size; c++) {
+                if ((mask.getRGB(c, r) >>> 24) != 0) {
+                    if (first < 0) {
+                        first = c;
+                    }
+                    last = c;
+                }
+            }
+            start[r] = first < 0 ? 0 : first;
+            end[r] = first < 0 ? 0 : last + 1;
+        }
+        return new Sprite(start, end);
+    }
+
+    /**
+     * Makes sure the image matches the requested size.
+     */
+    private void resize(int w, int h) {
+        if (image != null && w == width && h == height) {
+            return;
+        }
+
+        width = w;
+        height = h;
+        image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,57 @@
+package project02;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one simulation tick, with the time spent in
+ * each phase and the bodies spawned and culled. Only created when the
+ * jfr_events property is set, and only written while a recording has
+ * the event enabled. The stack trace is always the same, so it is not
+ * recorded.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+@Name("project02.Tick")
+@Label("Simulation Tick")
+@Category("MassiveMotion")
+@StackTrace(false)
+@Description("One tick of the simulation, split into phases")
+class TickEvent extends jdk.jfr.Event {
+
+    @Label("Tick")
+    long tick;
+
+    @Label("Bodies")
+    int bodies;
+
+    @Label("Spawned")
+    int spawned;
+
+    @Label("Culled")
+    int culled;
+
+    @Label("Force Evaluations")
+    long forceEvaluations;
+
+    @Label("Integrate")
+    @Timespan(Timespan.NANOSECONDS)
+    long integrate;
+
+    @Label("Collide")
+    @Timespan(Timespan.NANOSECONDS)
+    long collide;
+
+    @Label("Cull")
+    @Timespan(Timespan.NANOSECONDS)
+    long cull;
+
+    @Label("Spawn")
+    @Timespan(Timespan.NANOSECONDS)
+    long spawn;
+}
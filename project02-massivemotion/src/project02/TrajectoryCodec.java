@@ -0,0 +1,458 @@
+package project02;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Class that encodes frames into the compact form stored in a trajectory
+ * file and decodes them back. The same class does both, so the encoder
+ * and the decoder always predict positions the same way.
+ *
+ * A trajectory file is little-endian. It starts with a 32-byte header:
+ *
+ *   int     magic "MMTR"
+ *   int     format version
+ *   int     window width
+ *   int     window height
+ *   int     ticks between recorded frames
+ *   int     frames between keyframes
+ *   double  precision, the size of one position step in pixels
+ *
+ * followed by one record per recorded frame:
+ *
+ *   byte    KEY or DELTA
+ *   long    tick
+ *   int     body count n
+ *   int     payload length
+ *   payload
+ *
+ * Positions are rounded to whole multiples of the precision. The payload
+ * of a delta frame starts with the bodies of the previous frame that
+ * are gone, as a varint count followed by the gap from one removed
+ * index to the next; both sides drop them from their history, so the
+ * bodies after a removed one keep being predicted from their own past
+ * positions. Then come n x values and n y values, each as a zigzag
+ * varint of its difference from a prediction. In a keyframe the
+ * prediction is 0, so the values are absolute; in a delta frame it is
+ * the body's position in the previous frame, or, when the two frames
+ * before are both available, their linear extrapolation, so a body
+ * moving at a steady velocity costs one byte per coordinate.
+ *
+ * Frames carry no body ids, so the encoder works out which bodies are
+ * gone: a body that is not near its prediction but is near that of one
+ * of the next LOOKAHEAD bodies, and is followed by the body after that
+ * one, is taken to follow the ones in between, which are listed as
+ * removed. This catches the removals of a list
+ * compacted in order, as removeIf and merging leave it; a wrong guess
+ * only costs bytes, since the removed indices are stored. After the
+ * positions, a
+ * keyframe stores every size as a varint and every palette byte, and a
+ * delta frame stores only the bodies whose size or palette changed, as
+ * a varint count followed by an index gap, size, and palette for each.
+ *
+ * Prediction never reaches back past the latest keyframe, so any frame
+ * can be decoded by starting from the keyframe before it. Keyframes
+ * come every keyframe interval of frames, and a recording resumed from
+ * a checkpoint also starts with one, wherever it falls.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class TrajectoryCodec {
+
+    static final int MAGIC = 0x52544D4D;  // "MMTR" in little-endian order
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_HEADER_BYTES = 17;
+
+    static final byte KEY = 0;
+    static final byte DELTA = 1;
+
+    // how many bodies ahead a body is looked for after removals
+    private static final int LOOKAHEAD = 16;
+    // how far from its prediction a body still counts as the same one, in pixels
+    private static final double MATCH_PIXELS = 2;
+
+    private final double precision;
+    private final double scale;
+    private final long match;
+
+    // quantized positions of the frame being coded (0), the previous frame (1), and the one before (2)
+    private long[] qx0 = new long[0], qy0 = new long[0];
+    private long[] qx1 = new long[0], qy1 = new long[0], qx2 = new long[0], qy2 = new long[0];
+    private int[] removed = new int[0];
+    private int[] size1 = new int[0];
+    private byte[] palette1 = new byte[0];
+    private int count1, count2;
+    private int history;
+
+    /**
+     * Constructs a codec for positions rounded to the given precision.
+     *
+     * @param precision the size of one position step in pixels.
+     * @throws IllegalArgumentException if the precision is not positive.
+     */
+    public TrajectoryCodec(double precision) {
+        if (!(precision > 0)) {
+            throw new IllegalArgumentException("precision must be positive");
+        }
+        this.precision = precision;
+        this.scale = 1 / precision;
+        this.match = Math.max(1, Math.round(MATCH_PIXELS * scale));
+    }
+
+    /**
+     * Writes a trajectory file header.
+     *
+     * @param out the buffer to write into.
+     * @param width the window width.
+     * @param height the window height.
+     * @param interval the ticks between recorded frames.
+     * @param keyframeInterval the frames between keyframes.
+     * @param precision the size of one position step in pixels.
+     */
+    static void writeHeader(ByteBuffer out, int width, int height, int interval, int keyframeInterval,
+            double precision) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height)
+                .putInt(interval).putInt(keyframeInterval).putDouble(precision);
+    }
+
+    /**
+     * Returns the largest number of bytes the payload of a frame with n
+     * bodies can take.
+     *
+     * @param n the number of bodies.
+     * @return the payload bound in bytes.
+     */
+    static int maxPayload(int n) {
+        // two 10-byte varints per position, a size varint, palette, and index gap, and a removed index gap
+        return n * (10 + 10 + 5 + 1 + 5 + 5) + 10;
+    }
+
+    /**
+     * Forgets the previous frames, so the next frame is predicted from
+     * nothing. Called for every keyframe.
+     */
+    private void reset() {
+        history = 0;
+        count1 = 0;
+        count2 = 0;
+    }
+
+    /**
+     * Makes sure the history arrays hold at least n bodies.
+     */
+    private void ensureCapacity(int n) {
+        if (qx1.length < n) {
+            int capacity = Math.max(n, qx1.length * 2);
+            qx0 = Arrays.copyOf(qx0, capacity);
+            qy0 = Arrays.copyOf(qy0, capacity);
+            qx1 = Arrays.copyOf(qx1, capacity);
+            qy1 = Arrays.copyOf(qy1, capacity);
+            qx2 = Arrays.copyOf(qx2, capacity);
+            qy2 = Arrays.copyOf(qy2, capacity);
+            size1 = Arrays.copyOf(size1, capacity);
+            palette1 = Arrays.copyOf(palette1, capacity);
+        }
+    }
+
+    /**
+     * Returns the predicted quantized coordinate of body i, from the
+     * previous frame (q1) and the one before it (q2).
+     */
+    private long predict(int i, long[] q1, long[] q2) {
+        if (history >= 2 && i < count1 && i < count2) {
+            return 2 * q1[i] - q2[i];
+        } else if (history >= 1 && i < count1) {
+            return q1[i];
+        }
+        return 0;
+    }
+
+    /**
+     * Encodes the positions, sizes, and palettes of a frame as a
+     * payload, predicting from the frames encoded before it unless it
+     * is a keyframe.
+     *
+     * @param frame the frame to encode.
+     * @param key true to encode a keyframe.
+     * @param out the buffer to write the payload into, with at least
+     * maxPayload(frame.count) bytes remaining.
+     */
+    void encode(Frame frame, boolean key, ByteBuffer out) {
+        int n = frame.count;
+        if (key) {
+            reset();
+        }
+        ensureCapacity(n);
+
+        for (int i = 0; i < n; i++) {
+            qx0[i] = Math.round(frame.x[i] * scale);
+            qy0[i] = Math.round(frame.y[i] * scale);
+        }
+        if (!key) {
+            int r = findRemoved(n);
+            putVarInt(out, r);
+            int last = 0;
+            for (int k = 0; k < r; k++) {
+                putVarInt(out, removed[k] - last);
+                last = removed[k];
+            }
+            dropRemoved(r);
+        }
+
+        for (int i = 0; i < n; i++) {
+            putVarLong(out, qx0[i] - predict(i, qx1, qx2));
+        }
+        for (int i = 0; i < n; i++) {
+            putVarLong(out, qy0[i] - predict(i, qy1, qy2));
+        }
+
+        if (key) {
+            for (int i = 0; i < n; i++) {
+                putVarInt(out, frame.size[i]);
+            }
+            for (int i = 0; i < n; i++) {
+                out.put(frame.palette[i]);
+            }
+        } else {
+            int changed = 0;
+            for (int i = 0; i < n; i++) {
+                if (i >= count1 || frame.size[i] != size1[i] || frame.palette[i] != palette1[i]) {
+                    changed++;
+                }
+            }
+            putVarInt(out, changed);
+            int last = 0;
+            for (int i = 0; i < n; i++) {
+                if (i >= count1 || frame.size[i] != size1[i] || frame.palette[i] != palette1[i]) {
+                    putVarInt(out, i - last);
+                    putVarInt(out, frame.size[i]);
+                    out.put(frame.palette[i]);
+                    last = i;
+                }
+            }
+        }
+
+        System.arraycopy(frame.size, 0, size1, 0, n);
+        System.arraycopy(frame.palette, 0, palette1, 0, n);
+        swapCurrent(n);
+    }
+
+    /**
+     * Walks the bodies of the new frame, in qx0 and qy0, alongside those
+     * of the previous one, and collects the indices of the previous frame
+     * that the new bodies skip over in removed. At most n are collected,
+     * and none past the last body the new frame matches, since a removed
+     * tail is never predicted from anyway.
+     *
+     * @return the number of removed indices.
+     */
+    private int findRemoved(int n) {
+        if (history == 0) {
+            return 0;
+        }
+        if (removed.length < n) {
+            removed = new int[Math.max(n, removed.length * 2)];
+        }
+
+        int r = 0;
+        int i = 0;
+        for (int j = 0; j < n && i < count1; j++, i++) {
+            if (near(j, i)) {
+                continue;
+            }
+            int limit = Math.min(count1 - i - 1, Math.min(LOOKAHEAD, n - r));
+            for (int d = 1; d <= limit; d++) {
+                if (near(j, i + d) && (j + 1 == n || i + d + 1 < count1 && near(j + 1, i + d + 1))) {
+                    for (int k = 0; k < d; k++) {
+                        removed[r++] = i + k;
+                    }
+                    i += d;
+                    break;
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Returns true if body j of the new frame is within the match
+     * distance of where body i of the previous frame was predicted to be.
+     */
+    private boolean near(int j, int i) {
+        return Math.abs(qx0[j] - predict(i, qx1, qx2)) <= match
+                && Math.abs(qy0[j] - predict(i, qy1, qy2)) <= match;
+    }
+
+    /**
+     * Drops the first r indices of removed, which are ascending, from the
+     * history, shifting the bodies after each one down.
+     */
+    private void dropRemoved(int r) {
+        if (r == 0) {
+            return;
+        }
+        int to = removed[0];
+        int k = 0;
+        for (int from = to; from < count1; from++) {
+            if (k < r && removed[k] == from) {
+                k++;
+                continue;
+            }
+            qx1[to] = qx1[from];
+            qy1[to] = qy1[from];
+            if (from < count2) {
+                qx2[to] = qx2[from];
+                qy2[to] = qy2[from];
+            }
+            size1[to] = size1[from];
+            palette1[to] = palette1[from];
+            to++;
+        }
+        int below2 = 0;
+        while (below2 < r && removed[below2] < count2) {
+            below2++;
+        }
+        count1 -= r;
+        count2 = Math.max(0, count2 - below2);
+    }
+
+    /**
+     * Decodes a payload written by encode into the given frame, which
+     * must be the frame following the last one decoded unless this is
+     * a keyframe.
+     *
+     * @param in the buffer positioned at the payload.
+     * @param n the number of bodies in the frame.
+     * @param key true if the payload is a keyframe.
+     * @param frame the frame to decode into.
+     */
+    void decode(ByteBuffer in, int n, boolean key, Frame frame) {
+        if (key) {
+            reset();
+        }
+        ensureCapacity(n);
+        frame.resize(n);
+
+        if (!key) {
+            int r = getVarInt(in);
+            if (removed.length < r) {
+                removed = new int[Math.max(r, removed.length * 2)];
+            }
+            int last = 0;
+            for (int k = 0; k < r; k++) {
+                last += getVarInt(in);
+                removed[k] = last;
+            }
+            dropRemoved(r);
+        }
+
+        for (int i = 0; i < n; i++) {
+            long q = getVarLong(in) + predict(i, qx1, qx2);
+            qx0[i] = q;
+            frame.x[i] = q * precision;
+        }
+        for (int i = 0; i < n; i++) {
+            long q = getVarLong(in) + predict(i, qy1, qy2);
+            qy0[i] = q;
+            frame.y[i] = q * precision;
+        }
+
+        if (key) {
+            for (int i = 0; i < n; i++) {
+                frame.size[i] = getVarInt(in);
+            }
+            in.get(frame.palette, 0, n);
+        } else {
+            // a body keeps its size and palette unless it is listed
+            System.arraycopy(size1, 0, frame.size, 0, Math.min(n, count1));
+            System.arraycopy(palette1, 0, frame.palette, 0, Math.min(n, count1));
+            int changed = getVarInt(in);
+            int i = 0;
+            for (int c = 0; c < changed; c++) {
+                i += getVarInt(in);
+                frame.size[i] = getVarInt(in);
+                frame.palette[i] = in.get();
+            }
+        }
+
+        System.arraycopy(frame.size, 0, size1, 0, n);
+        System.arraycopy(frame.palette, 0, palette1, 0, n);
+        swapCurrent(n);
+    }
+
+    /**
+     * Makes the positions just coded into qx0 and qy0 the previous frame,
+     * and the old previous frame the one before it.
+     */
+    private void swapCurrent(int n) {
+        long[] t = qx2;
+        qx2 = qx1;
+        qx1 = qx0;
+        qx0 = t;
+        t = qy2;
+        qy2 = qy1;
+        qy1 = qy0;
+        qy0 = t;
+        count2 = count1;
+        count1 = n;
+        history++;
+    }
+
+    /**
+     * Writes a long as a zigzag varint: small values of either sign take
+     * one byte.
+     */
+    static void putVarLong(ByteBuffer out, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    /**
+     * Reads a zigzag varint written by putVarLong.
+     */
+    static long getVarLong(ByteBuffer in) {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Writes a non-negative int as a varint.
+     */
+    static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads a varint written by putVarInt.
+     */
+    static int getVarInt(ByteBuffer in) {
+        int v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            v |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return v;
+    }
+}
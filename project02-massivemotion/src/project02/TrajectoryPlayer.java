@@ -0,0 +1,337 @@
+package project02;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Class that plays back a recorded trajectory in real time, forwards or
+ * backwards at any speed, with seeking to any frame.
+ *
+ * The playback position advances with the wall clock at the current
+ * speed, in recorded frames per second, and a negative speed plays
+ * backwards. A prefetch thread decodes the frames just ahead of the
+ * position, in the direction of play, into a small set of slots through
+ * a TrajectoryReader. The painter swaps its frame for the decoded one
+ * without waiting, as with SimulationThread, and keeps showing its
+ * current frame if the wanted one is not decoded yet.
+ *
+ * Playing backwards decodes from the keyframe before the wanted frame,
+ * and keeps every frame passed on the way that is also about to be
+ * wanted, so one pass from a keyframe serves several frames.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class TrajectoryPlayer implements FrameSource, AutoCloseable {
+
+    // frames decoded ahead of the position, and the slots holding them
+    private static final int AHEAD = 6;
+    private static final int SLOTS = AHEAD + 2;
+
+    private static final int EMPTY = -1;
+    private static final int DECODING = -2;
+
+    private final TrajectoryReader reader;
+    private final int frameCount;
+    private final Frame[] slots = new Frame[SLOTS];
+    private final int[] slotFrame = new int[SLOTS];
+    private final Thread thread;
+
+    private double position;
+    private double speed;
+    private boolean paused;
+    private long lastNanos = -1;
+    private int shown = -1;
+    private boolean closed;
+
+    /**
+     * Opens a trajectory for playback at the given speed and starts the
+     * prefetch thread.
+     *
+     * @param path the trajectory file.
+     * @param speed the playback speed in recorded frames per second.
+     * @throws IOException if the file cannot be read or is not a
+     * trajectory.
+     */
+    public TrajectoryPlayer(Path path, double speed) throws IOException {
+        reader = new TrajectoryReader(path);
+        frameCount = reader.getFrameCount();
+        this.speed = speed;
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new Frame();
+            slotFrame[i] = EMPTY;
+        }
+
+        thread = new Thread(this::prefetch, "trajectory-prefetch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the frame number the playback position is on.
+     *
+     * @return the current frame number.
+     */
+    private int target() {
+        return (int) position;
+    }
+
+    /**
+     * Returns the direction of play, 1 or -1.
+     */
+    private int direction() {
+        return speed < 0 ? -1 : 1;
+    }
+
+    /**
+     * Returns true if frame j is one of the frames the prefetch thread
+     * should have ready: the current one and the next few in the
+     * direction of play.
+     */
+    private boolean wanted(int j) {
+        int d = (j - target()) * direction();
+        return j >= 0 && j < frameCount && d >= 0 && d < AHEAD;
+    }
+
+    private int slotOf(int j) {
+        for (int i = 0; i < SLOTS; i++) {
+            if (slotFrame[i] == j) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a slot that holds nothing wanted, marked as decoding, or -1
+     * if every slot is in use.
+     */
+    private int claimSlot() {
+        for (int i = 0; i < SLOTS; i++) {
+            if (slotFrame[i] == EMPTY || slotFrame[i] >= 0 && !wanted(slotFrame[i])) {
+                slotFrame[i] = DECODING;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Advances the position by the time since the last call, stopping
+     * at either end of the recording.
+     */
+    private void advance() {
+        long now = System.nanoTime();
+        if (lastNanos >= 0 && !paused) {
+            position += speed * (now - lastNanos) / 1e9;
+            if (position < 0 || position > frameCount - 1) {
+                position = Math.max(0, Math.min(frameCount - 1, position));
+                paused = true;
+            }
+        }
+        lastNanos = now;
+    }
+
+    /**
+     * Returns the frame at the playback position if it has been decoded,
+     * handing the caller's frame back to the slots for reuse.
+     *
+     * @param front the frame the caller is done with.
+     * @return the frame to draw.
+     */
+    @Override
+    public synchronized Frame acquire(Frame front) {
+        advance();
+        int j = target();
+        if (j == shown) {
+            return front;
+        }
+
+        int i = slotOf(j);
+        notifyAll();
+        if (i < 0) {
+            return front;
+        }
+
+        Frame frame = slots[i];
+        slots[i] = front;
+        slotFrame[i] = EMPTY;
+        shown = j;
+        return frame;
+    }
+
+    /**
+     * Decodes the wanted frames that are not ready yet, nearest first,
+     * until the player is closed.
+     */
+    private void prefetch() {
+        TrajectoryReader.Visitor keep = new TrajectoryReader.Visitor() {
+            @Override
+            public Frame frame(int j) {
+                synchronized (TrajectoryPlayer.this) {
+                    if (!wanted(j) || j == shown || slotOf(j) >= 0) {
+                        return null;
+                    }
+                    int i = claimSlot();
+                    return i < 0 ? null : slots[i];
+                }
+            }
+
+            @Override
+            public void decoded(int j, Frame frame) {
+                publish(j, frame);
+            }
+        };
+
+        try {
+            while (true) {
+                int j;
+                Frame into;
+                synchronized (this) {
+                    while (true) {
+                        if (closed) {
+                            return;
+                        }
+                        j = nextMissing();
+                        if (j >= 0) {
+                            int i = claimSlot();
+                            if (i >= 0) {
+                                into = slots[i];
+                                break;
+                            }
+                        }
+                        wait();
+                    }
+                }
+
+                reader.read(j, into, keep);
+                publish(j, into);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read trajectory: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the nearest wanted frame that is neither shown nor in a
+     * slot, or -1 if all are ready.
+     */
+    private int nextMissing() {
+        for (int d = 0; d < AHEAD; d++) {
+            int j = target() + d * direction();
+            if (j >= 0 && j < frameCount && j != shown && slotOf(j) < 0) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks the slot holding the given frame object as holding frame j.
+     */
+    private synchronized void publish(int j, Frame frame) {
+        for (int i = 0; i < SLOTS; i++) {
+            if (slots[i] == frame) {
+                slotFrame[i] = j;
+            }
+        }
+    }
+
+    /**
+     * Moves the playback position to the given frame.
+     *
+     * @param frame the frame number, clamped to the recording.
+     */
+    public synchronized void seek(int frame) {
+        position = Math.max(0, Math.min(frameCount - 1, frame));
+        notifyAll();
+    }
+
+    /**
+     * Sets the playback speed. A negative speed plays backwards.
+     *
+     * @param speed the speed in recorded frames per second.
+     */
+    public synchronized void setSpeed(double speed) {
+        this.speed = speed;
+        notifyAll();
+    }
+
+    /**
+     * Returns the playback speed.
+     *
+     * @return the speed in recorded frames per second.
+     */
+    public synchronized double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Pauses or resumes playback.
+     *
+     * @param paused true to pause.
+     */
+    public synchronized void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * Returns true if playback is paused.
+     *
+     * @return true if paused.
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Returns the frame number of the playback position.
+     *
+     * @return the current frame number.
+     */
+    public synchronized int getPosition() {
+        return target();
+    }
+
+    /**
+     * Returns the number of frames in the recording.
+     *
+     * @return the frame count.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the reader the frames are decoded from, for the recording's
+     * dimensions and timing. Frames must not be read from it directly
+     * while the player is open.
+     *
+     * @return the reader.
+     */
+    public TrajectoryReader getReader() {
+        return reader;
+    }
+
+    /**
+     * Stops the prefetch thread and closes the file.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            thread.join();
+            reader.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Could not close trajectory: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package project02;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class that reads frames back from a trajectory file written by
+ * TrajectoryRecorder, in any order.
+ *
+ * The reader keeps a keyframe index: the file offset of every keyframe.
+ * Since keyframes come at a fixed interval of recorded frames, the
+ * keyframe a frame depends on is found by one division, and reading any
+ * frame decodes at most one keyframe interval of records. Reading the
+ * frame after the last one read decodes a single record. The index is
+ * saved next to the trajectory with an .idx suffix and loaded instead
+ * of scanning the file again, unless the trajectory has changed size
+ * since.
+ *
+ * Each keyframe interval of the file is memory-mapped on its own when
+ * it is first read from, so the file can be far larger than a single
+ * mapping allows. A record cut short at the end of the file, as left by
+ * a run that was killed, is ignored.
+ *
+ * A reader must only be used by one thread at a time.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class TrajectoryReader implements AutoCloseable {
+
+    private static final int INDEX_MAGIC = 0x49544D4D;  // "MMTI" in little-endian order
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER_BYTES = 40;
+
+    private final FileChannel channel;
+    private final int width, height, interval, keyframeInterval;
+    private final double precision;
+    private final TrajectoryCodec codec;
+
+    private long[] keyframes;  // file offset of every keyframe record
+    private long end;          // offset just past the last whole record
+    private long indexedSize;  // size of the file when the index was built
+    private int frameCount;
+    private long firstTick;
+
+    private MappedByteBuffer group;
+    private int groupIndex = -1;
+    private int next = -1;     // frame the codec can decode next without seeking
+    private final Frame scratch = new Frame();
+
+    /**
+     * Opens a trajectory file and loads or builds its keyframe index.
+     *
+     * @param path the trajectory file.
+     * @throws IOException if the file cannot be read or is not a
+     * trajectory.
+     */
+    public TrajectoryReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(TrajectoryCodec.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header, 0);
+            if (header.getInt() != TrajectoryCodec.MAGIC) {
+                throw new IOException(path + " is not a trajectory");
+            }
+            int version = header.getInt();
+            if (version != TrajectoryCodec.VERSION) {
+                throw new IOException(path + " has unsupported trajectory version " + version);
+            }
+            width = header.getInt();
+            height = header.getInt();
+            interval = header.getInt();
+            keyframeInterval = header.getInt();
+            precision = header.getDouble();
+            codec = new TrajectoryCodec(precision);
+
+            Path indexPath = path.resolveSibling(path.getFileName() + ".idx");
+            if (!loadIndex(indexPath)) {
+                buildIndex();
+                saveIndex(indexPath);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long at) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, at + buffer.position()) < 0) {
+                throw new IOException("unexpected end of trajectory");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Walks the record headers from the start of the file, noting where
+     * each keyframe begins, and stops at the end of the last whole record.
+     */
+    private void buildIndex() throws IOException {
+        long size = channel.size();
+        indexedSize = size;
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryCodec.RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long[] keys = new long[16];
+        int keyCount = 0;
+        int frames = 0;
+        long at = TrajectoryCodec.HEADER_BYTES;
+
+        while (at + TrajectoryCodec.RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, at);
+            byte kind = header.get();
+            long tick = header.getLong();
+            header.getInt();
+            long recordEnd = at + TrajectoryCodec.RECORD_HEADER_BYTES + header.getInt();
+            if (recordEnd > size) {
+                break;
+            }
+
+            if (frames % keyframeInterval == 0) {
+                if (kind != TrajectoryCodec.KEY) {
+                    throw new IOException("trajectory is missing the keyframe of frame " + frames);
+                }
+                if (keyCount == keys.length) {
+                    keys = Arrays.copyOf(keys, keyCount * 2);
+                }
+                keys[keyCount++] = at;
+            }
+            if (frames == 0) {
+                firstTick = tick;
+            }
+            frames++;
+            at = recordEnd;
+        }
+
+        keyframes = Arrays.copyOf(keys, keyCount);
+        frameCount = frames;
+        end = at;
+    }
+
+    /**
+     * Loads the saved index if it covers the trajectory at its current
+     * size.
+     *
+     * @return true if the index was loaded.
+     */
+    private boolean loadIndex(Path indexPath) throws IOException {
+        if (!Files.isRegularFile(indexPath)) {
+            return false;
+        }
+
+        try (FileChannel index = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            if (index.size() < INDEX_HEADER_BYTES) {
+                return false;
+            }
+            ByteBuffer buffer = index.map(FileChannel.MapMode.READ_ONLY, 0, index.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != INDEX_VERSION) {
+                return false;
+            }
+            long fileSize = buffer.getLong();
+            long indexedEnd = buffer.getLong();
+            int frames = buffer.getInt();
+            int keyCount = buffer.getInt();
+            long tick = buffer.getLong();
+            if (fileSize != channel.size() || keyCount < 0
+                    || buffer.remaining() < (long) keyCount * Long.BYTES) {
+                return false;
+            }
+
+            keyframes = new long[keyCount];
+            buffer.asLongBuffer().get(keyframes);
+            end = indexedEnd;
+            frameCount = frames;
+            firstTick = tick;
+            return true;
+        }
+    }
+
+    /**
+     * Saves the index next to the trajectory. A failure only costs a
+     * scan the next time the trajectory is opened.
+     */
+    private void saveIndex(Path indexPath) {
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_BYTES + Long.BYTES * keyframes.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(indexedSize).putLong(end)
+                .putInt(frameCount).putInt(keyframes.length).putLong(firstTick);
+        for (long key : keyframes) {
+            buffer.putLong(key);
+        }
+        buffer.flip();
+
+        Path temp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (FileChannel index = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                index.write(buffer);
+            }
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // only the cached index is lost
+        }
+    }
+
+    /**
+     * Maps the keyframe interval that frame k belongs to and positions
+     * the mapping at its keyframe.
+     */
+    private void seekKeyframe(int k) throws IOException {
+        int g = k / keyframeInterval;
+        if (g != groupIndex) {
+            long from = keyframes[g];
+            long to = g + 1 < keyframes.length ? keyframes[g + 1] : end;
+            if (to - from > Integer.MAX_VALUE) {
+                throw new IOException("keyframe interval " + g + " is too large to map");
+            }
+            group = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            group.order(ByteOrder.LITTLE_ENDIAN);
+            groupIndex = g;
+        }
+        group.position(0);
+        next = g * keyframeInterval;
+    }
+
+    /**
+     * Decodes the next frame in the file into the given frame.
+     */
+    private void decodeNext(Frame into) throws IOException {
+        if (next % keyframeInterval == 0 && next / keyframeInterval != groupIndex) {
+            seekKeyframe(next);
+        }
+
+        byte kind = group.get();
+        long tick = group.getLong();
+        int n = group.getInt();
+        int length = group.getInt();
+        int payloadEnd = group.position() + length;
+        codec.decode(group, n, kind == TrajectoryCodec.KEY, into);
+        if (group.position() != payloadEnd) {
+            throw new IOException("corrupt trajectory record at frame " + next);
+        }
+        into.tick = tick;
+        next++;
+    }
+
+    /**
+     * Decodes frame k into the given frame. Every frame decoded on the
+     * way from the keyframe is passed to the visitor, if one is given,
+     * which may return a frame to decode the following one into.
+     *
+     * @param k the frame number, from 0.
+     * @param into the frame to decode frame k into.
+     * @param visitor called with each frame decoded before k, or null.
+     * @throws IOException if the file cannot be read or is corrupt.
+     * @throws IndexOutOfBoundsException if k is out of range.
+     */
+    void read(int k, Frame into, Visitor visitor) throws IOException {
+        if (k < 0 || k >= frameCount) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        // carry on from the last frame read unless starting at k's keyframe decodes less
+        if (next < 0 || k < next || k - next > k % keyframeInterval) {
+            seekKeyframe(k);
+        }
+
+        while (next < k) {
+            int j = next;
+            Frame passing = visitor != null ? visitor.frame(j) : null;
+            decodeNext(passing != null ? passing : scratch);
+            if (passing != null) {
+                visitor.decoded(j, passing);
+            }
+        }
+        decodeNext(into);
+    }
+
+    /**
+     * Decodes frame k into the given frame.
+     *
+     * @param k the frame number, from 0.
+     * @param into the frame to decode into.
+     * @return the decoded frame.
+     * @throws IOException if the file cannot be read or is corrupt.
+     * @throws IndexOutOfBoundsException if k is out of range.
+     */
+    public Frame read(int k, Frame into) throws IOException {
+        read(k, into, null);
+        return into;
+    }
+
+    /**
+     * Receives the frames decoded on the way to a requested frame, so a
+     * caller reading backwards can keep them instead of decoding them
+     * again.
+     */
+    interface Visitor {
+
+        /**
+         * Returns the frame to decode frame j into, or null to decode it
+         * into scratch space and drop it.
+         *
+         * @param j the frame number.
+         * @return the frame to decode into, or null.
+         */
+        Frame frame(int j);
+
+        /**
+         * Called after frame j was decoded into the frame returned by
+         * frame(j).
+         *
+         * @param j the frame number.
+         * @param frame the decoded frame.
+         */
+        void decoded(int j, Frame frame);
+    }
+
+    /**
+     * Returns the number of whole frames in the file.
+     *
+     * @return the frame count.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the tick of the first recorded frame.
+     *
+     * @return the first tick.
+     */
+    public long getFirstTick() {
+        return firstTick;
+    }
+
+    /**
+     * Returns the number of ticks between recorded frames.
+     *
+     * @return the recording interval.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the number of recorded frames between keyframes.
+     *
+     * @return the keyframe interval.
+     */
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * Returns the frame number recorded at the given tick, or the
+     * nearest recorded one, clamped to the frames in the file.
+     *
+     * @param tick the tick.
+     * @return the frame number.
+     */
+    public int frameAt(long tick) {
+        long k = (tick - firstTick) / interval;
+        return (int) Math.max(0, Math.min(frameCount - 1, k));
+    }
+
+    /**
+     * Returns the size of one position step in pixels.
+     *
+     * @return the precision.
+     */
+    public double getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns the file offset of the record of frame k, or the end of
+     * the last whole record if k is the frame count.
+     *
+     * @param k the frame number, from 0 to the frame count.
+     * @return the file offset.
+     * @throws IOException if the file cannot be read.
+     */
+    long offsetOf(int k) throws IOException {
+        if (k >= frameCount) {
+            return end;
+        }
+        long at = keyframes[k / keyframeInterval];
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryCodec.RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int j = k % keyframeInterval; j > 0; j--) {
+            header.clear();
+            readFully(header, at);
+            at += TrajectoryCodec.RECORD_HEADER_BYTES + header.getInt(TrajectoryCodec.RECORD_HEADER_BYTES - Integer.BYTES);
+        }
+        return at;
+    }
+
+    /**
+     * Returns the width of the recorded window.
+     *
+     * @return the width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the recorded window.
+     *
+     * @return the height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        group = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,288 @@
+package project02;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Class that appends recorded frames to a trajectory file, in the format
+ * described by TrajectoryCodec, on a background thread.
+ *
+ * Recording a frame only copies the bodies into a Frame taken from a
+ * small set of spare frames and puts it on a bounded queue; the writer
+ * thread encodes it and gathers the records into a large buffer that is
+ * written with one FileChannel call when it fills or the queue runs dry.
+ * If the writer falls behind by more than the queue holds, recording
+ * waits for it rather than dropping frames, so the file always has
+ * every recorded tick.
+ *
+ * Every keyframe_interval-th recorded frame is a keyframe, which a
+ * player can start decoding from.
+ *
+ * A run restored from a checkpoint can continue the trajectory it was
+ * recording: the frames after the checkpoint's tick, which the restored
+ * run is about to record again, are cut off, and recording resumes
+ * there with a keyframe, since the frames before it are not at hand to
+ * predict from.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class TrajectoryRecorder implements AutoCloseable {
+
+    private static final int QUEUE_FRAMES = 8;
+    private static final int BATCH_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final TrajectoryCodec codec;
+    private final int keyframeInterval;
+    private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(QUEUE_FRAMES);
+    private final BlockingQueue<Frame> spare = new ArrayBlockingQueue<>(QUEUE_FRAMES + 1);
+    private final Frame end = new Frame();  // queued by close to stop the writer
+    private final Thread thread;
+
+    private ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer payload = ByteBuffer.allocate(0);
+    private long frames;
+    private volatile long bytes;
+    private volatile IOException failure;
+    private boolean closed;
+    private boolean resumed;  // the next frame follows frames this recorder did not encode
+
+    /**
+     * Creates the trajectory file, replacing any existing one, writes its
+     * header, and starts the writer thread.
+     *
+     * @param path the file to write.
+     * @param width the window width.
+     * @param height the window height.
+     * @param interval the ticks between recorded frames.
+     * @param keyframeInterval the recorded frames between keyframes.
+     * @param precision the size of one position step in pixels.
+     * @throws IOException if the file cannot be created.
+     */
+    public TrajectoryRecorder(Path path, int width, int height, int interval, int keyframeInterval,
+            double precision) throws IOException {
+        this(path, width, height, interval, keyframeInterval, precision, -1);
+    }
+
+    /**
+     * Continues the trajectory in the file after the frame recorded at
+     * the given tick, cutting off any frames recorded after it, and
+     * starts the writer thread. The file must have been recorded with the
+     * same settings. If the file does not exist yet, or the tick is
+     * negative, a new trajectory is created as by the constructor above.
+     *
+     * @param path the file to write.
+     * @param width the window width.
+     * @param height the window height.
+     * @param interval the ticks between recorded frames.
+     * @param keyframeInterval the recorded frames between keyframes.
+     * @param precision the size of one position step in pixels.
+     * @param tick the tick of the checkpoint being continued from.
+     * @throws IOException if the file cannot be opened, is not a
+     * trajectory recorded with these settings, or ends before the tick.
+     */
+    public TrajectoryRecorder(Path path, int width, int height, int interval, int keyframeInterval,
+            double precision, long tick) throws IOException {
+        this.codec = new TrajectoryCodec(precision);
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        for (int i = 0; i <= QUEUE_FRAMES; i++) {
+            spare.add(new Frame());
+        }
+
+        if (tick >= 0 && Files.isRegularFile(path)) {
+            long at = resumeAt(path, width, height, interval, precision, tick);
+            // the saved keyframe index no longer matches once frames are cut off and appended
+            Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".idx"));
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.truncate(at);
+            channel.position(at);
+            resumed = true;
+        } else {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            TrajectoryCodec.writeHeader(batch, width, height, interval, this.keyframeInterval, precision);
+        }
+
+        thread = new Thread(this::run, "trajectory-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Checks that an existing trajectory was recorded with the given
+     * settings, counts the frames recorded up to the tick, and returns
+     * the offset just past them.
+     */
+    private long resumeAt(Path path, int width, int height, int interval, double precision, long tick)
+            throws IOException {
+        try (TrajectoryReader existing = new TrajectoryReader(path)) {
+            if (existing.getWidth() != width || existing.getHeight() != height
+                    || existing.getInterval() != interval || existing.getKeyframeInterval() != keyframeInterval
+                    || existing.getPrecision() != precision) {
+                throw new IOException(path + " was recorded with different settings");
+            }
+
+            int count = existing.getFrameCount();
+            long first = existing.getFirstTick();
+            int keep = count == 0 || tick < first ? 0 : (int) Math.min(count, (tick - first) / interval + 1);
+            // the restored run records next at the first multiple of the interval after the tick
+            long nextTick = (tick / interval + 1) * interval;
+            if (keep > 0 && first + (long) keep * interval != nextTick) {
+                throw new IOException(path + " ends at tick " + (first + (long) (keep - 1) * interval)
+                        + ", before the checkpoint's tick " + tick);
+            }
+            frames = keep;
+            return existing.offsetOf(keep);
+        }
+    }
+
+    /**
+     * Copies the current bodies of the simulation and queues them to be
+     * written. Waits if the writer is a full queue behind.
+     *
+     * @param simulation the simulation to record.
+     * @throws IllegalStateException if the recorder is closed or a
+     * previous write failed.
+     */
+    public void record(Simulation simulation) {
+        if (closed || failure != null) {
+            throw new IllegalStateException("trajectory recorder is not writing", failure);
+        }
+
+        try {
+            Frame frame = spare.take();
+            simulation.copyTo(frame);
+            queue.put(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encodes and writes queued frames until close queues the end marker.
+     */
+    private void run() {
+        try {
+            while (true) {
+                Frame frame = queue.poll();
+                if (frame == null) {
+                    flush();
+                    frame = queue.take();
+                }
+                if (frame == end) {
+                    flush();
+                    return;
+                }
+
+                append(frame);
+                spare.add(frame);
+            }
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Could not write trajectory: " + e.getMessage());
+            drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encodes one frame as a record at the end of the batch, writing the
+     * batch out first if the record does not fit.
+     */
+    private void append(Frame frame) throws IOException {
+        int max = TrajectoryCodec.maxPayload(frame.count);
+        if (payload.capacity() < max) {
+            payload = ByteBuffer.allocate(Math.max(max, payload.capacity() * 2));
+        }
+
+        boolean key = resumed || frames % keyframeInterval == 0;
+        resumed = false;
+        payload.clear();
+        codec.encode(frame, key, payload);
+        payload.flip();
+        frames++;
+
+        int record = TrajectoryCodec.RECORD_HEADER_BYTES + payload.remaining();
+        if (batch.remaining() < record) {
+            flush();
+        }
+        if (batch.capacity() < record) {
+            batch = ByteBuffer.allocateDirect(record).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        batch.put(key ? TrajectoryCodec.KEY : TrajectoryCodec.DELTA);
+        batch.putLong(frame.tick);
+        batch.putInt(frame.count);
+        batch.putInt(payload.remaining());
+        batch.put(payload);
+    }
+
+    /**
+     * Writes the batch to the file.
+     */
+    private void flush() throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            bytes += channel.write(batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Hands every queued frame back after a failed write, so record
+     * does not wait forever on a writer that has stopped.
+     */
+    private void drain() {
+        Frame frame;
+        while ((frame = queue.poll()) != null) {
+            if (frame != end) {
+                spare.offer(frame);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes written to the file so far.
+     *
+     * @return the written bytes.
+     */
+    public long getBytesWritten() {
+        return bytes;
+    }
+
+    /**
+     * Writes every queued frame, stops the writer thread, and closes the
+     * file. Closing twice does nothing.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            if (failure == null) {
+                queue.put(end);
+            }
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close trajectory: " + e.getMessage());
+        }
+    }
+}
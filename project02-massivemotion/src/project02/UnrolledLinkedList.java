@@ -0,0 +1,511 @@
+package project02;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Class that implements an unrolled linked list: a doubly linked list
+ * whose nodes each hold a small array of elements instead of a single
+ * one. Walking the list reads a whole array before following the next
+ * pointer, so iteration runs close to ArrayList speed, while inserting
+ * or removing in the middle only shifts the elements of one node.
+ *
+ * A full node is split in half on insert, and a node that drops below
+ * half full on remove is merged with the next node when both fit in
+ * one. Appending fills the tail node, so add at the end is O(1).
+ * Nodes are recycled through a Pool like the other linked lists.
+ *
+ * @param <T> the type of elements stored in the list.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public class UnrolledLinkedList<T> implements List<T>, Iterable<T> {
+
+    /**
+     * The number of elements a node holds when no capacity is given.
+     */
+    public static final int DEFAULT_NODE_CAPACITY = 64;
+
+    /**
+     * A private static inner class representing a node holding up to
+     * capacity elements in items[0] to items[count - 1].
+     */
+    private static class Node {
+        final Object[] items;
+        int count;
+        Node next, prev;
+
+        Node(int capacity) {
+            items = new Object[capacity];
+        }
+    }
+
+    private final int capacity;
+    private final Pool<Node> nodes;
+    private Node head;
+    private Node tail;
+    private int size;
+
+    // the offset within the node returned by the last call to find
+    private int found;
+
+    /**
+     * Constructs an empty UnrolledLinkedList holding 64 elements per node.
+     */
+    public UnrolledLinkedList() {
+        this(DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty UnrolledLinkedList with the given number of
+     * elements per node.
+     *
+     * @param nodeCapacity the number of elements each node holds, at
+     * least 2.
+     */
+    public UnrolledLinkedList(int nodeCapacity) {
+        capacity = Math.max(nodeCapacity, 2);
+        nodes = new Pool<>(Pool.DEFAULT_CAPACITY / capacity + 1, () -> new Node(capacity));
+    }
+
+    /**
+     * Returns an empty node, recycled from the node pool when one is
+     * spare.
+     */
+    private Node newNode() {
+        Node node = nodes.acquire();
+        node.count = 0;
+        node.next = null;
+        node.prev = null;
+        return node;
+    }
+
+    /**
+     * Links a new empty node after the given one, or as the only node
+     * when the given one is null.
+     *
+     * @return the new node.
+     */
+    private Node insertAfter(Node node) {
+        Node created = newNode();
+        if (node == null) {
+            head = tail = created;
+            return created;
+        }
+
+        created.prev = node;
+        created.next = node.next;
+        if (node.next != null) {
+            node.next.prev = created;
+        } else {
+            tail = created;
+        }
+        node.next = created;
+        return created;
+    }
+
+    /**
+     * Unlinks the given node from its neighbors, updating head and tail
+     * when needed, and returns it to the node pool. Does not change the
+     * size.
+     */
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+
+        Arrays.fill(node.items, 0, node.count, null);
+        node.count = 0;
+        node.next = null;
+        node.prev = null;
+        nodes.release(node);
+    }
+
+    /**
+     * Removes n elements from the node starting at the given offset,
+     * shifting the rest down. Does not change the size.
+     */
+    private static void removeSlots(Node node, int offset, int n) {
+        System.arraycopy(node.items, offset + n, node.items, offset, node.count - offset - n);
+        Arrays.fill(node.items, node.count - n, node.count, null);
+        node.count -= n;
+    }
+
+    /**
+     * Merges the next node into the given one if the given node is less
+     * than half full and both fit in one node.
+     */
+    private void mergeWithNext(Node node) {
+        Node next = node.next;
+        if (next == null || node.count >= capacity / 2 || node.count + next.count > capacity) {
+            return;
+        }
+
+        System.arraycopy(next.items, 0, node.items, node.count, next.count);
+        node.count += next.count;
+        unlink(next);
+    }
+
+    /**
+     * Removes the element at the given offset of the node, then unlinks
+     * the node if it is empty, or merges it with the next node if it is
+     * less than half full.
+     *
+     * @return the removed element.
+     */
+    @SuppressWarnings("unchecked")
+    private T removeAt(Node node, int offset) {
+        T removed = (T) node.items[offset];
+        removeSlots(node, offset, 1);
+        size--;
+
+        if (node.count == 0) {
+            unlink(node);
+        } else {
+            mergeWithNext(node);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the node holding the element at the given position, walking
+     * from whichever end is closer. The offset of the element within the
+     * node is left in found.
+     */
+    private Node find(int pos) {
+        if (pos < size / 2) {
+            Node node = head;
+            while (pos >= node.count) {
+                pos -= node.count;
+                node = node.next;
+            }
+            found = pos;
+            return node;
+        }
+
+        Node node = tail;
+        int before = size - node.count;
+        while (pos < before) {
+            node = node.prev;
+            before -= node.count;
+        }
+        found = pos - before;
+        return node;
+    }
+
+    /**
+     * Adds an item at the specified position in the list.
+     *
+     * @param pos the index to insert the item.
+     * @param item the item to be added.
+     * @throws IndexOutOfBoundsException if the given position is
+     * out of range.
+     */
+    public void add(int pos, T item) {
+        if (pos < 0 || pos > size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (pos == size) {
+            add(item);
+            return;
+        }
+
+        Node node = find(pos);
+        int offset = found;
+
+        if (node.count == capacity) {
+            // split the full node, moving its upper half into a new node
+            Node upper = insertAfter(node);
+            int half = capacity / 2;
+            System.arraycopy(node.items, half, upper.items, 0, capacity - half);
+            Arrays.fill(node.items, half, capacity, null);
+            upper.count = capacity - half;
+            node.count = half;
+
+            if (offset > half) {
+                node = upper;
+                offset -= half;
+            }
+        }
+
+        System.arraycopy(node.items, offset, node.items, offset + 1, node.count - offset);
+        node.items[offset] = item;
+        node.count++;
+        size++;
+    }
+
+    /**
+     * Adds the item at the end of the list, starting a new tail node when
+     * the current one is full.
+     *
+     * @return returns true if the item is added successfully.
+     */
+    public boolean add(T item) {
+        Node node = tail;
+        if (node == null || node.count == capacity) {
+            node = insertAfter(tail);
+        }
+
+        node.items[node.count++] = item;
+        size++;
+        return true;
+    }
+
+    /**
+     * Gets the value at the specified position of the list.
+     *
+     * @param pos the index of the value to return.
+     * @return the value at the specified position.
+     * @throws IndexOutOfBoundsException if the given position is
+     * out of range.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        Node node = find(pos);
+        return (T) node.items[found];
+    }
+
+    /**
+     * Removes and returns the element at the specified position.
+     *
+     * @param pos the index of the element to remove.
+     * @return the item removed.
+     * @throws IndexOutOfBoundsException if the given position is
+     * out of range.
+     */
+    public T remove(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        Node node = find(pos);
+        return removeAt(node, found);
+    }
+
+    /**
+     * Removes every element that matches the filter in one walk from the
+     * head. From the first removed element on, the kept elements are
+     * packed into as few nodes as possible, and the nodes left empty at
+     * the end are recycled.
+     *
+     * @param filter the predicate that returns true for elements to remove.
+     * @return true if any element was removed.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super T> filter) {
+        // write is null until the first removal, elements before it stay put
+        Node write = null;
+        int w = 0;
+
+        for (Node read = head; read != null; read = read.next) {
+            int count = read.count;
+            for (int r = 0; r < count; r++) {
+                Object item = read.items[r];
+                if (filter.test((T) item)) {
+                    if (write == null) {
+                        write = read;
+                        w = r;
+                    }
+                    size--;
+                } else if (write != null) {
+                    if (w == capacity) {
+                        write.count = capacity;
+                        write = write.next;
+                        w = 0;
+                    }
+                    write.items[w++] = item;
+                }
+            }
+        }
+
+        if (write == null) {
+            return false;
+        }
+
+        if (w < write.count) {
+            Arrays.fill(write.items, w, write.count, null);
+        }
+        write.count = w;
+
+        Node node = write.next;
+        while (node != null) {
+            Node next = node.next;
+            unlink(node);
+            node = next;
+        }
+        if (write.count == 0) {
+            unlink(write);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the elements from fromIndex (inclusive) to toIndex
+     * (exclusive), trimming the partly covered nodes at either end and
+     * unlinking the whole nodes in between.
+     *
+     * @param fromIndex the index of the first element to remove.
+     * @param toIndex one past the index of the last element to remove.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (fromIndex == toIndex) {
+            return;
+        }
+
+        Node node = find(fromIndex);
+        int offset = found;
+        Node kept = offset > 0 ? node : node.prev;
+
+        int remaining = toIndex - fromIndex;
+        while (remaining > 0) {
+            int n = Math.min(node.count - offset, remaining);
+            removeSlots(node, offset, n);
+            remaining -= n;
+
+            Node next = node.next;
+            if (node.count == 0) {
+                unlink(node);
+            }
+            node = next;
+            offset = 0;
+        }
+        size -= toIndex - fromIndex;
+
+        if (kept != null) {
+            mergeWithNext(kept);
+        }
+    }
+
+    /**
+     * Adds every item of the given iterable after the tail.
+     *
+     * @param items the items to be added.
+     * @return true if the list changed.
+     */
+    public boolean addAll(Iterable<? extends T> items) {
+        // only copy the original elements when adding the list to itself
+        int limit = items == this ? size : Integer.MAX_VALUE;
+        int added = 0;
+
+        Iterator<? extends T> it = items.iterator();
+        while (added < limit && it.hasNext()) {
+            add(it.next());
+            added++;
+        }
+        return added > 0;
+    }
+
+    /**
+     * Returns the number of items currently stored in the list.
+     *
+     * @return size of the list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the pool this list recycles its nodes through.
+     *
+     * @return the node pool.
+     */
+    @Override
+    public Pool<?> getNodePool() {
+        return nodes;
+    }
+
+    /**
+     * Inner class that returns an iterator over the elements
+     * in the list in the proper sequence.
+     *
+     * @return an iterator for iterating through the list of elements.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            // the next element is node.items[index], or the first element
+            // of node.next once index reaches node.count
+            private Node node = head;
+            private int index;
+            private boolean canRemove;
+
+            /**
+             * Returns true if there are more elements to iterate over.
+             *
+             * @return true if there are more elements to iterate over.
+             */
+            @Override
+            public boolean hasNext() {
+                return node != null && (index < node.count || node.next != null);
+            }
+
+            /**
+             * Returns the next element in the iteration.
+             *
+             * @return the next element in the list.
+             * @throws NoSuchElementException if no more elements remain.
+             */
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (index == node.count) {
+                    node = node.next;
+                    index = 0;
+                }
+
+                canRemove = true;
+                return (T) node.items[index++];
+            }
+
+            /**
+             * Removes the last element returned by next from its node.
+             *
+             * @throws IllegalStateException if next has not been called, or
+             * remove was already called after the last call to next.
+             */
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+
+                canRemove = false;
+                index--;
+                if (node.count == 1) {
+                    // the node is about to be unlinked, continue from the next one
+                    Node next = node.next;
+                    removeAt(node, index);
+                    node = next;
+                    index = 0;
+                } else {
+                    // a merge only appends to this node, so index stays valid
+                    removeAt(node, index);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,203 @@
+package project02;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels written with the jdk.incubator.vector API, which the JIT
+ * compiler turns into SIMD instructions of the given width: 128 bits
+ * (SSE, NEON), 256 bits (AVX2), or 512 bits (AVX-512). Every loop runs
+ * over whole vectors and finishes the last few elements one at a time.
+ *
+ * The JIT compiler only emits vector instructions when it sees the
+ * vector species as a constant, so each width is a subclass holding its
+ * species in static final fields, and the loops read them through
+ * species and sizes. With one width in use those calls are inlined.
+ *
+ * This class needs the module at runtime (java --add-modules
+ * jdk.incubator.vector), so Simulation only loads it, by name, once it
+ * has found the module.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public abstract class VectorKernels implements Kernels {
+
+    /**
+     * Returns the kernels for the given vector width.
+     *
+     * @param bits the vector width, 128, 256, or 512, or 0 for the
+     * widest the CPU supports.
+     * @return the kernels.
+     * @throws IllegalArgumentException if there are no kernels of that
+     * width.
+     */
+    public static VectorKernels of(int bits) {
+        if (bits == 0) {
+            bits = Math.max(128, DoubleVector.SPECIES_PREFERRED.vectorBitSize());
+        }
+        switch (bits) {
+            case 128:
+                return new Bits128();
+            case 256:
+                return new Bits256();
+            case 512:
+                return new Bits512();
+            default:
+                throw new IllegalArgumentException("No " + bits + "-bit vector kernels");
+        }
+    }
+
+    /**
+     * Returns the species of the coordinate vectors.
+     *
+     * @return the double species.
+     */
+    abstract VectorSpecies<Double> species();
+
+    /**
+     * Loads one vector of body sizes as doubles.
+     *
+     * @param size the sizes of the bodies.
+     * @param i the first body, with a whole vector of bodies from it.
+     * @return the sizes from i on.
+     */
+    abstract DoubleVector sizes(int[] size, int i);
+
+    @Override
+    public void axpy(double a, double[] x, double[] y, int from, int to) {
+        VectorSpecies<Double> species = species();
+        int i = from;
+        for (int upper = from + species.loopBound(to - from); i < upper; i += species.length()) {
+            DoubleVector.fromArray(species, x, i).mul(a)
+                    .add(DoubleVector.fromArray(species, y, i))
+                    .intoArray(y, i);
+        }
+        for (; i < to; i++) {
+            y[i] += x[i] * a;
+        }
+    }
+
+    @Override
+    public int offScreen(double[] x, double[] y, int[] size, double width, double height, boolean[] off,
+            int from, int to) {
+        VectorSpecies<Double> species = species();
+        int count = 0;
+        int i = from;
+        // masks of two lanes are not compiled to vector instructions, so those widths test each body alone
+        int upper = species.length() > 2 ? from + species.loopBound(to - from) : from;
+        for (; i < upper; i += species.length()) {
+            DoubleVector s = sizes(size, i);
+            DoubleVector vx = DoubleVector.fromArray(species, x, i);
+            DoubleVector vy = DoubleVector.fromArray(species, y, i);
+            DoubleVector low = s.neg();
+            VectorMask<Double> out = vx.lt(low).or(vx.compare(VectorOperators.GT, s.add(width)))
+                    .or(vy.lt(low)).or(vy.compare(VectorOperators.GT, s.add(height)));
+            out.intoArray(off, i);
+            count += out.trueCount();
+        }
+        for (; i < to; i++) {
+            int s = size[i];
+            boolean out = x[i] < -s || x[i] > width + s || y[i] < -s || y[i] > height + s;
+            off[i] = out;
+            if (out) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void gravity(double[] x, double[] y, double[] m, int n, double gravity, double softening2,
+            int from, int to, double[] ax, double[] ay) {
+        VectorSpecies<Double> species = species();
+        int lanes = species.length();
+        int upper = species.loopBound(n);
+        DoubleVector one = DoubleVector.broadcast(species, 1.0);
+
+        for (int i = from; i < to; i++) {
+            double px = x[i], py = y[i];
+            DoubleVector sumX = DoubleVector.zero(species), sumY = DoubleVector.zero(species);
+
+            for (int j = 0; j < upper; j += lanes) {
+                DoubleVector dx = DoubleVector.fromArray(species, x, j).sub(px);
+                DoubleVector dy = DoubleVector.fromArray(species, y, j).sub(py);
+                DoubleVector inv = one.div(dx.mul(dx).add(dy.mul(dy)).add(softening2).sqrt());
+                DoubleVector f = DoubleVector.fromArray(species, m, j).mul(inv).mul(inv).mul(inv);
+                if (i >= j && i < j + lanes) {
+                    // without softening the pull of the body on itself is infinity times 0
+                    f = f.blend(0.0, VectorMask.fromLong(species, 1L << (i - j)));
+                }
+                sumX = f.mul(dx).add(sumX);
+                sumY = f.mul(dy).add(sumY);
+            }
+
+            double restX = 0, restY = 0;
+            for (int j = upper; j < n; j++) {
+                if (j == i) {
+                    continue;
+                }
+                double dx = x[j] - px, dy = y[j] - py;
+                double inv = 1.0 / Math.sqrt(dx * dx + dy * dy + softening2);
+                double f = m[j] * inv * inv * inv;
+                restX += f * dx;
+                restY += f * dy;
+            }
+
+            ax[i] = gravity * (sumX.reduceLanes(VectorOperators.ADD) + restX);
+            ay[i] = gravity * (sumY.reduceLanes(VectorOperators.ADD) + restY);
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "vector " + species().vectorBitSize() + "-bit";
+    }
+
+    private static final class Bits128 extends VectorKernels {
+        private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_128;
+
+        @Override
+        VectorSpecies<Double> species() {
+            return SPECIES;
+        }
+
+        @Override
+        DoubleVector sizes(int[] size, int i) {
+            return DoubleVector.broadcast(SPECIES, size[i]).withLane(1, size[i + 1]);
+        }
+    }
+
+    private static final class Bits256 extends VectorKernels {
+        private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_256;
+        private static final VectorSpecies<Integer> SIZES = IntVector.SPECIES_128;
+
+        @Override
+        VectorSpecies<Double> species() {
+            return SPECIES;
+        }
+
+        @Override
+        DoubleVector sizes(int[] size, int i) {
+            return (DoubleVector) IntVector.fromArray(SIZES, size, i).convertShape(VectorOperators.I2D, SPECIES, 0);
+        }
+    }
+
+    private static final class Bits512 extends VectorKernels {
+        private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_512;
+        private static final VectorSpecies<Integer> SIZES = IntVector.SPECIES_256;
+
+        @Override
+        VectorSpecies<Double> species() {
+            return SPECIES;
+        }
+
+        @Override
+        DoubleVector sizes(int[] size, int i) {
+            return (DoubleVector) IntVector.fromArray(SIZES, size, i).convertShape(VectorOperators.I2D, SPECIES, 0);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package project02;
+
+/**
+ * Interface for anything the SimulationThread can advance and take
+ * frames from: a Simulation in this process, or a DomainCoordinator
+ * driving worker processes that each own a strip of the window.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+public interface World {
+
+    /**
+     * Advances every body by one tick.
+     */
+    public void tick();
+
+    /**
+     * Copies the position, size, and color of every body into the given
+     * frame, stamped with the current tick.
+     *
+     * @param frame the frame to write into.
+     */
+    public void copyTo(Frame frame);
+
+    /**
+     * Returns the number of bodies, including the star.
+     *
+     * @return the body count.
+     */
+    public int getBodyCount();
+
+    /**
+     * Returns the number of ticks run so far.
+     *
+     * @return the tick count.
+     */
+    public long getTicks();
+
+    /**
+     * Returns the width of the simulated area in pixels.
+     *
+     * @return the width.
+     */
+    public int getWidth();
+
+    /**
+     * Returns the height of the simulated area in pixels.
+     *
+     * @return the height.
+     */
+    public int getHeight();
+
+    /**
+     * Returns the timing histograms and body counters of the run.
+     *
+     * @return the metrics.
+     */
+    public SimulationMetrics getMetrics();
+
+    /**
+     * Releases the threads, memory, files, or processes held by the run.
+     * It must not be used afterwards.
+     */
+    public void close();
+}
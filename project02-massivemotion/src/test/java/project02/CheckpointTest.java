@@ -0,0 +1,151 @@
+package project02;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a Checkpoint reads back exactly what was written, that
+ * damaged files are rejected, and that a simulation restored from a
+ * checkpoint carries on exactly as the original run.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+class CheckpointTest {
+
+    private static Properties config(String storage) throws IOException {
+        Properties config = TestConfig.defaults();
+        config.setProperty("storage", storage);
+        return config;
+    }
+
+    @Test
+    void roundTrip(@TempDir Path dir) throws IOException {
+        Properties config = new Properties();
+        config.setProperty("storage", "soa");
+        config.setProperty("note", "non-ASCII é and = signs");
+        Random random = new Random(5);
+        random.nextLong();
+
+        // counts around the padding and the 64 KiB write buffer
+        for (int n : new int[] {0, 1, 7, 8193, 20000}) {
+            Checkpoint checkpoint = new Checkpoint(config, 1234567890123L + n, random, n);
+            Random values = new Random(n);
+            for (int i = 0; i < n; i++) {
+                checkpoint.x[i] = values.nextDouble() * 1024;
+                checkpoint.y[i] = values.nextDouble() * 768;
+                checkpoint.vx[i] = values.nextGaussian();
+                checkpoint.vy[i] = -values.nextGaussian();
+                checkpoint.mass[i] = values.nextDouble() * 1E21;
+                checkpoint.size[i] = values.nextInt(40);
+                checkpoint.palette[i] = (byte) values.nextInt(Palette.size());
+            }
+            Path path = dir.resolve("run" + n + ".ckpt");
+            checkpoint.write(path);
+
+            Checkpoint read = Checkpoint.read(path);
+            assertEquals(checkpoint.getTick(), read.getTick());
+            assertEquals(n, read.getCount());
+            assertEquals(config, read.getConfig());
+            assertArrayEquals(checkpoint.x, read.x);
+            assertArrayEquals(checkpoint.y, read.y);
+            assertArrayEquals(checkpoint.vx, read.vx);
+            assertArrayEquals(checkpoint.vy, read.vy);
+            assertArrayEquals(checkpoint.mass, read.mass);
+            assertArrayEquals(checkpoint.size, read.size);
+            assertArrayEquals(checkpoint.palette, read.palette);
+
+            Random expected = new Random(5);
+            expected.nextLong();
+            Random restored = read.getRandom();
+            for (int k = 0; k < 10; k++) {
+                assertEquals(expected.nextLong(), restored.nextLong());
+            }
+            assertFalse(Files.exists(path.resolveSibling(path.getFileName() + ".tmp")));
+        }
+    }
+
+    @Test
+    void rejectsDamagedFiles(@TempDir Path dir) throws IOException {
+        Checkpoint checkpoint = new Checkpoint(new Properties(), 3, new Random(1), 100);
+        Path path = dir.resolve("run.ckpt");
+        checkpoint.write(path);
+        byte[] bytes = Files.readAllBytes(path);
+
+        Path truncated = dir.resolve("truncated.ckpt");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> Checkpoint.read(truncated));
+
+        Path shortHeader = dir.resolve("short.ckpt");
+        Files.write(shortHeader, Arrays.copyOf(bytes, 16));
+        assertThrows(IOException.class, () -> Checkpoint.read(shortHeader));
+
+        Path magic = dir.resolve("magic.ckpt");
+        byte[] badMagic = bytes.clone();
+        badMagic[0] ^= 1;
+        Files.write(magic, badMagic);
+        assertThrows(IOException.class, () -> Checkpoint.read(magic));
+
+        Path version = dir.resolve("version.ckpt");
+        byte[] badVersion = bytes.clone();
+        badVersion[4] = (byte) (Checkpoint.VERSION + 1);
+        Files.write(version, badVersion);
+        assertThrows(IOException.class, () -> Checkpoint.read(version));
+    }
+
+    @Test
+    void writerKeepsTheNewest(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("run.ckpt");
+        CheckpointWriter writer = new CheckpointWriter(path);
+        for (int tick = 1; tick <= 50; tick++) {
+            writer.submit(new Checkpoint(new Properties(), tick, new Random(tick), 1000));
+        }
+        writer.close();
+
+        assertEquals(50, Checkpoint.read(path).getTick());
+        assertThrows(IllegalStateException.class,
+                () -> writer.submit(new Checkpoint(new Properties(), 51, new Random(), 0)));
+    }
+
+    @Test
+    void restoredSimulationCarriesOn(@TempDir Path dir) throws IOException {
+        for (String storage : new String[] {"list", "soa"}) {
+            Simulation original = new Simulation(new PropertyReader(config(storage)), new Random(11));
+            for (int t = 0; t < 200; t++) {
+                original.tick();
+            }
+            Path path = dir.resolve(storage + ".ckpt");
+            original.snapshot().write(path);
+            Simulation restored = Simulation.restore(Checkpoint.read(path));
+            assertEquals(original.getTicks(), restored.getTicks());
+
+            for (int t = 0; t < 200; t++) {
+                original.tick();
+                restored.tick();
+            }
+            Frame expected = new Frame();
+            Frame actual = new Frame();
+            original.copyTo(expected);
+            restored.copyTo(actual);
+            assertEquals(expected.count, actual.count, storage);
+            assertArrayEquals(Arrays.copyOf(expected.x, expected.count), Arrays.copyOf(actual.x, actual.count),
+                    storage);
+            assertArrayEquals(Arrays.copyOf(expected.y, expected.count), Arrays.copyOf(actual.y, actual.count),
+                    storage);
+            original.close();
+            restored.close();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package project02;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that CollisionGrid merges overlapping bodies while conserving
+ * mass and momentum, and that bodies far off-screen, not finite, or
+ * larger than the whole grid neither hang it nor get lost.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+class CollisionGridTest {
+
+    private double[] x, y, vx, vy, m;
+    private int[] size;
+
+    private void bodies(int n) {
+        x = new double[n];
+        y = new double[n];
+        vx = new double[n];
+        vy = new double[n];
+        m = new double[n];
+        size = new int[n];
+    }
+
+    private void body(int i, double bx, double by, double bvx, double bvy, double mass, int diameter) {
+        x[i] = bx;
+        y[i] = by;
+        vx[i] = bvx;
+        vy[i] = bvy;
+        m[i] = mass;
+        size[i] = diameter;
+    }
+
+    @Test
+    void mergesOverlappingBodies() {
+        bodies(4);
+        body(0, 500, 500, 0, 0, 1E29, 30);
+        body(1, 100, 100, 2, 0, 1, 10);
+        body(2, 105, 100, 0, 4, 3, 10);
+        body(3, 300, 300, 1, 1, 1, 10);
+
+        CollisionGrid grid = new CollisionGrid(10);
+        assertEquals(1, grid.resolve(x, y, vx, vy, m, size, 4, 0));
+        assertFalse(grid.getDead()[1]);
+        assertTrue(grid.getDead()[2]);
+        assertFalse(grid.getDead()[3]);
+        assertEquals(4, m[1]);
+        assertEquals(103.75, x[1]);
+        assertEquals(0.5, vx[1]);
+        assertEquals(3, vy[1]);
+        assertEquals(14, size[1]);
+    }
+
+    @Test
+    @Timeout(value = 5, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void skipsFarAndNonFiniteBodies() {
+        bodies(7);
+        body(0, 512, 384, 0, 0, 2E29, 30);
+        body(1, 1E11, 384, 0, 0, 1E21, 10);
+        body(2, -1E300, 1E300, 0, 0, 1E21, 10);
+        body(3, Double.NaN, 384, 0, 0, 1E21, 10);
+        body(4, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0, 0, 1E21, 10);
+        body(5, 100, 100, 0, 0, 1E21, 10);
+        body(6, 104, 100, 0, 0, 1E21, 10);
+
+        CollisionGrid grid = new CollisionGrid(10);
+        assertEquals(1, grid.resolve(x, y, vx, vy, m, size, 7, 0));
+        for (int i = 0; i < 6; i++) {
+            assertFalse(grid.getDead()[i], "body " + i);
+        }
+        assertTrue(grid.getDead()[6]);
+    }
+
+    @Test
+    @Timeout(value = 5, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void hugeBodyScansTheBuckets() {
+        int n = 1000;
+        bodies(n);
+        Random random = new Random(4);
+        body(0, 0, 0, 0, 0, 1E21, Integer.MAX_VALUE / 2);
+        double total = m[0];
+        for (int i = 1; i < n; i++) {
+            body(i, random.nextDouble() * 1E6, random.nextDouble() * 1E6, 0, 0, 1E21, 10);
+            total += m[i];
+        }
+
+        // its reach covers about 1E16 cells, far more than there are buckets
+        CollisionGrid grid = new CollisionGrid(10);
+        assertEquals(n - 1, grid.resolve(x, y, vx, vy, m, size, n, -1));
+        assertFalse(grid.getDead()[0]);
+        assertEquals(total, m[0], total * 1E-12);
+    }
+
+    @Test
+    @Timeout(value = 20, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void scenarioWithAFarBodyRuns(@TempDir Path dir) throws IOException {
+        Path scenario = dir.resolve("far.csv");
+        Files.writeString(scenario, "512,384,0,0,2E29,30\n1E11,384,0,0,1E21,10\n");
+        for (String storage : new String[] {"list", "soa"}) {
+            Properties config = TestConfig.defaults();
+            config.setProperty("storage", storage);
+            config.setProperty("scenario_file", scenario.toString());
+            config.setProperty("gen_x", "0");
+            config.setProperty("gen_y", "0");
+            Simulation simulation = new Simulation(new PropertyReader(config), new Random(1));
+            assertEquals(2, simulation.getBodyCount(), storage);
+            for (int t = 0; t < 10; t++) {
+                simulation.tick();
+            }
+            // the far body is culled once it has been skipped by the grid
+            assertEquals(1, simulation.getBodyCount(), storage);
+            simulation.close();
+        }
+    }
+}
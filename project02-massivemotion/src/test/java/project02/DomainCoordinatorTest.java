@@ -0,0 +1,114 @@
+package project02;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests a run split over two launched DomainWorker processes against
+ * the same run in one process: comets falling into a star that sits on
+ * the boundary of the two strips, so both workers' copies of the star
+ * absorb comets.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+class DomainCoordinatorTest {
+
+    // how far a body may drift from where the one-process run has it, in pixels; the far summary cells
+    // approximate a strip's bodies, which so far keeps the two runs within a few millionths of a pixel
+    private static final double TOLERANCE = 0.01;
+    private static final int COMETS = 200;
+
+    @Test
+    @Timeout(value = 120, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void twoWorkersMatchOneProcess(@TempDir Path dir) throws IOException {
+        Path scenario = dir.resolve("infall.csv");
+        StringBuilder csv = new StringBuilder("512,384,0,0,2E29,30\n");
+        Random random = new Random(8);
+        for (int i = 0; i < COMETS; i++) {
+            // at least 30 degrees off the vertical through the star, so falling comets stay 10 pixels from
+            // the strip boundary until they reach the star; bodies in different strips never merge
+            double r = 60 + random.nextDouble() * 290;
+            double angle = Math.PI / 6 + random.nextDouble() * 2 * Math.PI / 3 + (random.nextBoolean() ? Math.PI : 0);
+            csv.append(512 + r * Math.sin(angle)).append(',').append(384 + r * Math.cos(angle))
+                    .append(",0,0,1E21,10\n");
+        }
+        Files.writeString(scenario, csv);
+
+        Properties config = TestConfig.defaults();
+        config.setProperty("scenario_file", scenario.toString());
+        config.setProperty("storage", "soa");
+        config.setProperty("gen_x", "0");
+        config.setProperty("gen_y", "0");
+        config.setProperty("seed", "5");
+        Simulation single = new Simulation(new PropertyReader(config), new Random(5));
+        double mass = totalMass(single);
+
+        Properties split = new Properties();
+        split.putAll(config);
+        split.setProperty("workers", "2");
+        DomainCoordinator domain = new DomainCoordinator(new PropertyReader(split), true);
+        try {
+            assertEquals(COMETS + 1, domain.getBodyCount());
+            Frame expected = new Frame();
+            Frame actual = new Frame();
+            for (int t = 1; t <= 300; t++) {
+                single.tick();
+                domain.tick();
+                if (t % 25 == 0) {
+                    single.copyTo(expected);
+                    domain.copyTo(actual);
+                    assertEquals(single.getBodyCount(), domain.getBodyCount(), "tick " + t);
+                    double distance = maxDistance(expected, actual);
+                    assertTrue(distance <= TOLERANCE, "tick " + t + ": " + distance + " pixels");
+                    assertEquals(mass, domain.getTotalMass(), mass * 1E-12, "tick " + t);
+                }
+            }
+            // every comet has reached the star
+            assertEquals(1, domain.getBodyCount());
+        } finally {
+            domain.close();
+            single.close();
+        }
+    }
+
+    private static double totalMass(Simulation simulation) {
+        BodyStore store = simulation.getStore();
+        double total = 0;
+        for (int i = 0; i < store.count; i++) {
+            total += store.mass[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns how far the farthest body of one frame is from the nearest
+     * body of the other, in either direction.
+     */
+    private static double maxDistance(Frame a, Frame b) {
+        return Math.max(farthest(a, b), farthest(b, a));
+    }
+
+    private static double farthest(Frame from, Frame to) {
+        double worst = 0;
+        for (int i = 0; i < from.count; i++) {
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < to.count; j++) {
+                double dx = from.x[i] - to.x[j], dy = from.y[i] - to.y[j];
+                nearest = Math.min(nearest, dx * dx + dy * dy);
+            }
+            worst = Math.max(worst, Math.sqrt(nearest));
+        }
+        return worst;
+    }
+}
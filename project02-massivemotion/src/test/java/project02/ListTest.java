@@ -0,0 +1,217 @@
+package project02;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Named;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Tests every List implementation against java.util.ArrayList: the
+ * single-element operations, the bulk removeIf, removeRange, and addAll
+ * (including adding a list to itself), and removing through the
+ * iterator.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+class ListTest {
+
+    static Stream<Named<Supplier<List<Integer>>>> lists() {
+        return Stream.of(
+                Named.of("ArrayList", ArrayList::new),
+                Named.of("LinkedList", LinkedList::new),
+                Named.of("DoublyLinkedList", DoublyLinkedList::new),
+                Named.of("DummyHeadLinkedList", DummyHeadLinkedList::new),
+                Named.of("UnrolledLinkedList", () -> new UnrolledLinkedList<>(4)),
+                Named.of("IndexedSkipList", IndexedSkipList::new),
+                Named.of("RingArrayList", RingArrayList::new));
+    }
+
+    private static List<Integer> filled(Supplier<List<Integer>> factory, java.util.List<Integer> expected,
+            int n) {
+        List<Integer> list = factory.get();
+        for (int i = 0; i < n; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+        return list;
+    }
+
+    private static void assertSame(java.util.List<Integer> expected, List<Integer> actual) {
+        assertEquals(expected.size(), actual.size(), "size");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "get(" + i + ")");
+        }
+        Iterator<Integer> it = actual.iterator();
+        for (Integer value : expected) {
+            assertTrue(it.hasNext());
+            assertEquals(value, it.next());
+        }
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+
+    @ParameterizedTest
+    @MethodSource("lists")
+    void addAndRemoveAtIndex(Supplier<List<Integer>> factory) {
+        java.util.List<Integer> expected = new java.util.ArrayList<>();
+        List<Integer> list = factory.get();
+        Random random = new Random(1);
+        for (int step = 0; step < 2000; step++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                int at = random.nextInt(expected.size() + 1);
+                list.add(at, step);
+                expected.add(at, step);
+            } else {
+                int at = random.nextInt(expected.size());
+                assertEquals(expected.remove(at), list.remove(at));
+            }
+        }
+        assertSame(expected, list);
+    }
+
+    @ParameterizedTest
+    @MethodSource("lists")
+    void indexOutOfBounds(Supplier<List<Integer>> factory) {
+        List<Integer> list = factory.get();
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.add(1, 0));
+        list.add(7);
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.removeRange(0, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.removeRange(1, 0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("lists")
+    void removeIf(Supplier<List<Integer>> factory) {
+        java.util.List<Integer> expected = new java.util.ArrayList<>();
+        List<Integer> list = filled(factory, expected, 100);
+
+        assertFalse(list.removeIf(v -> v > 1000));
+        assertTrue(list.removeIf(v -> v % 3 == 0 || v < 5 || v > 95));
+        expected.removeIf(v -> v % 3 == 0 || v < 5 || v > 95);
+        assertSame(expected, list);
+
+        // the filter sees every element once, in order
+        int[] calls = {0};
+        list.removeIf(v -> {
+            assertEquals(expected.get(calls[0]), v);
+            calls[0]++;
+            return false;
+        });
+        assertEquals(expected.size(), calls[0]);
+
+        assertTrue(list.removeIf(v -> true));
+        expected.clear();
+        assertSame(expected, list);
+        list.add(1);
+        expected.add(1);
+        assertSame(expected, list);
+    }
+
+    @ParameterizedTest
+    @MethodSource("lists")
+    void removeRange(Supplier<List<Integer>> factory) {
+        java.util.List<Integer> expected = new java.util.ArrayList<>();
+        List<Integer> list = filled(factory, expected, 50);
+
+        list.removeRange(10, 10);
+        list.removeRange(10, 20);
+        expected.subList(10, 20).clear();
+        assertSame(expected, list);
+        list.removeRange(0, 5);
+        expected.subList(0, 5).clear();
+        assertSame(expected, list);
+        list.removeRange(list.size() - 5, list.size());
+        expected.subList(expected.size() - 5, expected.size()).clear();
+        assertSame(expected, list);
+        list.removeRange(0, list.size());
+        expected.clear();
+        assertSame(expected, list);
+        list.add(3);
+        expected.add(3);
+        assertSame(expected, list);
+    }
+
+    @ParameterizedTest
+    @MethodSource("lists")
+    void addAll(Supplier<List<Integer>> factory) {
+        java.util.List<Integer> expected = new java.util.ArrayList<>();
+        List<Integer> list = filled(factory, expected, 10);
+
+        assertFalse(list.addAll(new java.util.ArrayList<>()));
+        java.util.List<Integer> more = java.util.List.of(100, 101, 102);
+        assertTrue(list.addAll(more));
+        expected.addAll(more);
+        assertSame(expected, list);
+
+        List<Integer> other = factory.get();
+        other.add(200);
+        other.add(201);
+        assertTrue(list.addAll(other));
+        expected.addAll(java.util.List.of(200, 201));
+        assertSame(expected, list);
+    }
+
+    @ParameterizedTest
+    @MethodSource("lists")
+    void addAllToItself(Supplier<List<Integer>> factory) {
+        java.util.List<Integer> expected = new java.util.ArrayList<>();
+        List<Integer> list = filled(factory, expected, 37);
+
+        assertTrue(list.addAll(list));
+        expected.addAll(new java.util.ArrayList<>(expected));
+        assertSame(expected, list);
+
+        List<Integer> empty = factory.get();
+        assertFalse(empty.addAll(empty));
+        assertEquals(0, empty.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("lists")
+    void iteratorRemove(Supplier<List<Integer>> factory) {
+        java.util.List<Integer> expected = new java.util.ArrayList<>();
+        List<Integer> list = filled(factory, expected, 60);
+
+        Iterator<Integer> it = list.iterator();
+        assertThrows(IllegalStateException.class, it::remove);
+        while (it.hasNext()) {
+            int v = it.next();
+            if (v % 4 == 0 || v == 59) {
+                it.remove();
+                assertThrows(IllegalStateException.class, it::remove);
+            }
+        }
+        expected.removeIf(v -> v % 4 == 0 || v == 59);
+        assertSame(expected, list);
+
+        // adding after removing the last element appends at the new end
+        list.add(1000);
+        expected.add(1000);
+        assertSame(expected, list);
+
+        for (Iterator<Integer> all = list.iterator(); all.hasNext();) {
+            all.next();
+            all.remove();
+        }
+        expected.clear();
+        assertSame(expected, list);
+        list.add(5);
+        expected.add(5);
+        assertSame(expected, list);
+    }
+}
@@ -0,0 +1,149 @@
+package project02;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that ScenarioFile parses numbers exactly like Double.parseDouble
+ * on every path (the exact fast path, Eisel-Lemire, and the fallback),
+ * and that scenarios read back what was written.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+class ScenarioFileTest {
+
+    private static void assertParsesLikeJdk(String text) {
+        byte[] bytes = (" " + text + " ").getBytes(StandardCharsets.US_ASCII);
+        double expected = Double.parseDouble(text);
+        double actual = ScenarioFile.parseDouble(bytes, 1, bytes.length - 1);
+        assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual), text);
+    }
+
+    @Test
+    void parsesEdgeCasesLikeJdk() {
+        String[] cases = {
+            "0", "-0", "+0", "0.0", "-0.0", "1", "-1", "+1", "1.", ".5", "-.5", "00012.5000",
+            "0.1", "0.2", "0.3", "3.141592653589793", "2.718281828459045", "1E21", "2E29", "1e-26", "1E+3",
+            "9007199254740992", "9007199254740993", "9007199254740994", "9007199254740995",
+            "1e22", "1e23", "1.7976931348623157e308", "1.7976931348623159e308", "1e309", "-1e400",
+            "2.2250738585072014E-308", "2.2250738585072011e-308", "4.9e-324", "2.4e-324", "1e-400",
+            "9223372036854775807", "18446744073709551615", "18446744073709551616",
+            "1234567890123456789", "12345678901234567890", "0.000000000000000000000000000001",
+            "1.00000000000000011102230246251565404236316680908203125",
+            "1.00000000000000011102230246251565404236316680908203124",
+            "7.3177701707893310e+15", "5e-324", "123456789e-5", "1e0010", "1e-0010",
+        };
+        for (String text : cases) {
+            assertParsesLikeJdk(text);
+        }
+    }
+
+    @Test
+    void parsesRandomNumbersLikeJdk() {
+        Random random = new Random(42);
+        for (int k = 0; k < 200000; k++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                continue;
+            }
+            assertParsesLikeJdk(Double.toString(value));
+            assertParsesLikeJdk(String.format(Locale.ROOT, "%.17e", value));
+        }
+        for (int k = 0; k < 200000; k++) {
+            // random digit strings of up to 22 digits with a random exponent
+            StringBuilder text = new StringBuilder();
+            int digits = 1 + random.nextInt(22);
+            for (int d = 0; d < digits; d++) {
+                text.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextBoolean()) {
+                text.insert(random.nextInt(digits + 1), '.');
+            }
+            text.append('e').append(random.nextInt(700) - 350);
+            assertParsesLikeJdk(text.toString());
+        }
+    }
+
+    @Test
+    void rejectsWhatJdkRejects() {
+        for (String text : new String[] {"", "-", ".", "e5", "1e", "1e+", "1.2.3", "abc", "1x"}) {
+            byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+            assertThrows(NumberFormatException.class, () -> ScenarioFile.parseDouble(bytes, 0, bytes.length),
+                    text);
+        }
+    }
+
+    @Test
+    void readsCsv(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("scenario.csv");
+        Files.writeString(path, "# a header comment\nx,y,vx,vy,mass,size\n"
+                + "512, 384, 0, 0, 2E29, 30\n\n"
+                + "10.5,20.25,-1.5,0.125,1E21,10\n"
+                + "1,2,3,4,5,6,0\n");
+
+        java.util.List<String> bodies = new java.util.ArrayList<>();
+        long count = ScenarioFile.read(path, (x, y, vx, vy, mass, size, palette) ->
+                bodies.add(x + " " + y + " " + vx + " " + vy + " " + mass + " " + size + " " + palette));
+        assertEquals(3, count);
+        assertEquals(java.util.List.of(
+                "512.0 384.0 0.0 0.0 2.0E29 30 " + Palette.STAR,
+                "10.5 20.25 -1.5 0.125 1.0E21 10 " + Palette.COMET,
+                "1.0 2.0 3.0 4.0 5.0 6 " + Palette.STAR), bodies);
+    }
+
+    @Test
+    void binaryRoundTrip(@TempDir Path dir) throws IOException {
+        int n = 1000;
+        Random random = new Random(7);
+        double[] x = new double[n], y = new double[n], vx = new double[n], vy = new double[n];
+        double[] mass = new double[n];
+        int[] size = new int[n];
+        byte[] palette = new byte[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble() * 1024;
+            y[i] = random.nextDouble() * 768;
+            vx[i] = random.nextGaussian();
+            vy[i] = random.nextGaussian();
+            mass[i] = random.nextDouble() * 1E21;
+            size[i] = 1 + random.nextInt(30);
+            palette[i] = (byte) random.nextInt(Palette.size());
+        }
+        Path path = dir.resolve("scenario.bin");
+        ScenarioFile.write(path, x, y, vx, vy, mass, size, palette, n);
+
+        double[][] read = new double[5][n];
+        int[] readSize = new int[n];
+        byte[] readPalette = new byte[n];
+        int[] i = {0};
+        long count = ScenarioFile.read(path, (bx, by, bvx, bvy, bmass, bsize, bpalette) -> {
+            int k = i[0]++;
+            read[0][k] = bx;
+            read[1][k] = by;
+            read[2][k] = bvx;
+            read[3][k] = bvy;
+            read[4][k] = bmass;
+            readSize[k] = bsize;
+            readPalette[k] = bpalette;
+        });
+        assertEquals(n, count);
+        assertArrayEquals(x, read[0]);
+        assertArrayEquals(y, read[1]);
+        assertArrayEquals(vx, read[2]);
+        assertArrayEquals(vy, read[3]);
+        assertArrayEquals(mass, read[4]);
+        assertArrayEquals(size, readSize);
+        assertArrayEquals(palette, readPalette);
+    }
+}
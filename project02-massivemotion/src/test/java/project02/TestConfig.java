@@ -0,0 +1,34 @@
+package project02;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Builds the configuration tests run simulations with: the default
+ * MassiveMotion.txt on one thread, so a run given a seeded Random is
+ * repeatable.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+final class TestConfig {
+
+    private TestConfig() {
+    }
+
+    /**
+     * Returns the default configuration with threads set to 1.
+     *
+     * @return a new configuration the caller may change.
+     * @throws IOException if MassiveMotion.txt cannot be read.
+     */
+    static Properties defaults() throws IOException {
+        Properties config = new Properties();
+        try (InputStream in = TestConfig.class.getResourceAsStream("/MassiveMotion.txt")) {
+            config.load(in);
+        }
+        config.setProperty("threads", "1");
+        return config;
+    }
+}
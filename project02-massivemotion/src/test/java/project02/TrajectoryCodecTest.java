@@ -0,0 +1,266 @@
+package project02;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that TrajectoryCodec decodes exactly what it encoded, rounded to
+ * the precision, as bodies move, are removed in order or by swapping,
+ * and are added, and that a trajectory recorded by a simulation, or
+ * recorded in two parts around a restored checkpoint, reads back the
+ * same frames.
+ *
+ * @author Oliver Reyes
+ * @version 1.0
+ */
+class TrajectoryCodecTest {
+
+    private static final double PRECISION = 0.01;
+
+    private static Properties config(Path record, int interval) throws IOException {
+        Properties config = TestConfig.defaults();
+        config.setProperty("record_file", record.toString());
+        config.setProperty("record_interval", Integer.toString(interval));
+        config.setProperty("record_keyframe_interval", "8");
+        config.setProperty("record_precision", Double.toString(PRECISION));
+        return config;
+    }
+
+    /**
+     * Runs a simulation recording every interval-th tick into the file
+     * and returns a copy of each frame it recorded.
+     */
+    private static Frame[] record(Path path, int interval, int frames) throws IOException {
+        Simulation simulation = new Simulation(new PropertyReader(config(path, interval)), new Random(3));
+        Frame[] recorded = new Frame[frames];
+        for (int k = 0; k < frames; k++) {
+            for (int t = 0; t < interval; t++) {
+                simulation.tick();
+            }
+            recorded[k] = new Frame();
+            simulation.copyTo(recorded[k]);
+        }
+        simulation.close();
+        return recorded;
+    }
+
+    private static void assertDecoded(Frame expected, Frame actual, String message) {
+        assertEquals(expected.count, actual.count, message);
+        for (int i = 0; i < expected.count; i++) {
+            assertEquals(Math.round(expected.x[i] / PRECISION), Math.round(actual.x[i] / PRECISION), message);
+            assertEquals(Math.round(expected.y[i] / PRECISION), Math.round(actual.y[i] / PRECISION), message);
+            assertEquals(expected.size[i], actual.size[i], message);
+            assertEquals(expected.palette[i], actual.palette[i], message);
+        }
+    }
+
+    @Test
+    void varints() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        long[] longs = {0, 1, -1, 63, -64, 64, 127, 128, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        int[] ints = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE};
+        for (long value : longs) {
+            TrajectoryCodec.putVarLong(buffer, value);
+        }
+        for (int value : ints) {
+            TrajectoryCodec.putVarInt(buffer, value);
+        }
+        buffer.flip();
+        for (long value : longs) {
+            assertEquals(value, TrajectoryCodec.getVarLong(buffer));
+        }
+        for (int value : ints) {
+            assertEquals(value, TrajectoryCodec.getVarInt(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void codecRoundTrip() {
+        Random random = new Random(1);
+        TrajectoryCodec encoder = new TrajectoryCodec(PRECISION);
+        TrajectoryCodec decoder = new TrajectoryCodec(PRECISION);
+        int capacity = 2000, n = 500;
+        double[] x = new double[capacity], y = new double[capacity];
+        double[] vx = new double[capacity], vy = new double[capacity];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble() * 1000;
+            y[i] = random.nextDouble() * 700;
+            vx[i] = random.nextGaussian();
+            vy[i] = random.nextGaussian();
+        }
+
+        Frame frame = new Frame();
+        Frame decoded = new Frame();
+        long bytes = 0, bodies = 0;
+        for (int t = 0; t < 1000; t++) {
+            // removeIf keeps the order on even ticks, swapping with the last body scrambles it on odd ones
+            boolean swap = t % 2 == 1;
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                x[i] += vx[i];
+                y[i] += vy[i];
+                if (random.nextInt(200) == 0) {
+                    if (swap) {
+                        n--;
+                        // the last body has not moved yet and moves when i is visited again
+                        x[i] = x[n];
+                        y[i] = y[n];
+                        vx[i] = vx[n];
+                        vy[i] = vy[n];
+                        i--;
+                    }
+                    continue;
+                }
+                x[m] = x[i];
+                y[m] = y[i];
+                vx[m] = vx[i];
+                vy[m] = vy[i];
+                m++;
+            }
+            n = m;
+            for (int s = random.nextInt(4); s > 0 && n < capacity; s--, n++) {
+                x[n] = random.nextDouble() * 1000;
+                y[n] = 0;
+                vx[n] = random.nextGaussian();
+                vy[n] = 1;
+            }
+
+            frame.resize(n);
+            for (int i = 0; i < n; i++) {
+                frame.x[i] = x[i];
+                frame.y[i] = y[i];
+                frame.size[i] = 10 + (t / 100 + i) % 3;
+                frame.palette[i] = (byte) (i == 0 ? Palette.STAR : Palette.COMET);
+            }
+            boolean key = t % 64 == 0;
+            ByteBuffer payload = ByteBuffer.allocate(TrajectoryCodec.maxPayload(n));
+            encoder.encode(frame, key, payload);
+            bytes += payload.position();
+            bodies += n;
+            payload.flip();
+            decoder.decode(payload, n, key, decoded);
+            assertFalse(payload.hasRemaining(), "tick " + t);
+            assertDecoded(frame, decoded, "tick " + t);
+        }
+        // steady motion with matched removals costs a few bytes per body, not a keyframe's worth
+        assertTrue((double) bytes / bodies < 4, bytes / (double) bodies + " bytes per body");
+    }
+
+    @Test
+    void recordedFileDecodes(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("run.traj");
+        int interval = 3;
+        Frame[] recorded = record(path, interval, 100);
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(TrajectoryCodec.MAGIC, in.getInt());
+        assertEquals(TrajectoryCodec.VERSION, in.getInt());
+        assertEquals(1024, in.getInt());
+        assertEquals(768, in.getInt());
+        assertEquals(interval, in.getInt());
+        assertEquals(8, in.getInt());
+        assertEquals(PRECISION, in.getDouble());
+
+        TrajectoryCodec codec = new TrajectoryCodec(PRECISION);
+        Frame frame = new Frame();
+        for (int k = 0; k < recorded.length; k++) {
+            byte type = in.get();
+            assertEquals(k % 8 == 0 ? TrajectoryCodec.KEY : TrajectoryCodec.DELTA, type, "frame " + k);
+            assertEquals(recorded[k].tick, in.getLong());
+            int n = in.getInt();
+            int length = in.getInt();
+            ByteBuffer payload = in.slice(in.position(), length);
+            codec.decode(payload, n, type == TrajectoryCodec.KEY, frame);
+            assertFalse(payload.hasRemaining(), "frame " + k);
+            assertDecoded(recorded[k], frame, "frame " + k);
+            in.position(in.position() + length);
+        }
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    void recordedFileReadsBack(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("run.traj");
+        int interval = 3;
+        Frame[] recorded = record(path, interval, 100);
+
+        try (TrajectoryReader reader = new TrajectoryReader(path)) {
+            assertEquals(recorded.length, reader.getFrameCount());
+            assertEquals(interval, reader.getFirstTick());
+            assertEquals(interval, reader.getInterval());
+            assertEquals(8, reader.getKeyframeInterval());
+            assertEquals(1024, reader.getWidth());
+            assertEquals(768, reader.getHeight());
+
+            // in order, then jumping around so every read seeks from a keyframe
+            Frame frame = new Frame();
+            for (int k = 0; k < recorded.length; k++) {
+                reader.read(k, frame);
+                assertEquals(recorded[k].tick, frame.tick);
+                assertDecoded(recorded[k], frame, "frame " + k);
+            }
+            Random random = new Random(2);
+            for (int j = 0; j < 50; j++) {
+                int k = random.nextInt(recorded.length);
+                assertDecoded(recorded[k], reader.read(k, frame), "frame " + k);
+                assertEquals(k, reader.frameAt(recorded[k].tick));
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.read(recorded.length, new Frame()));
+        }
+    }
+
+    @Test
+    void resumedRecordingMatches(@TempDir Path dir) throws IOException {
+        int interval = 2;
+        Path whole = dir.resolve("whole.traj");
+        record(whole, interval, 200);
+
+        // record past the checkpoint, as a run killed after its last checkpoint would have
+        Path parts = dir.resolve("parts.traj");
+        Simulation first = new Simulation(new PropertyReader(config(parts, interval)), new Random(3));
+        Checkpoint checkpoint = null;
+        for (int t = 1; t <= 250; t++) {
+            first.tick();
+            if (t == 151) {
+                checkpoint = first.snapshot();
+            }
+        }
+        first.close();
+        Simulation second = Simulation.restore(checkpoint);
+        for (int t = 151; t < 400; t++) {
+            second.tick();
+        }
+        second.close();
+
+        try (TrajectoryReader expected = new TrajectoryReader(whole);
+                TrajectoryReader actual = new TrajectoryReader(parts)) {
+            assertEquals(expected.getFrameCount(), actual.getFrameCount());
+            Frame a = new Frame();
+            Frame b = new Frame();
+            for (int k = 0; k < expected.getFrameCount(); k++) {
+                expected.read(k, a);
+                actual.read(k, b);
+                assertEquals(a.tick, b.tick);
+                assertEquals(a.count, b.count);
+                assertArrayEquals(Arrays.copyOf(a.x, a.count), Arrays.copyOf(b.x, b.count), "frame " + k);
+                assertArrayEquals(Arrays.copyOf(a.y, a.count), Arrays.copyOf(b.y, b.count), "frame " + k);
+            }
+        }
+    }
+}